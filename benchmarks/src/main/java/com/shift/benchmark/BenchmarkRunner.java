@@ -0,0 +1,34 @@
+package com.shift.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Точка входа для запуска бенчмарков.
+ * Принимает стандартные аргументы JMH (например, регулярное выражение для выбора бенчмарков или {@code -p threads=1}).
+ * Если формат результатов не указан явно, результаты сохраняются в JSON-файл {@code jmh-result.json},
+ * чтобы запуски на разных коммитах можно было сравнивать.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        if (commandLine.getResultFormat().hasValue() || commandLine.getResult().hasValue()) {
+            builder.parent(commandLine);
+        }
+        else {
+            builder.parent(commandLine).resultFormat(ResultFormatType.JSON).result("jmh-result.json");
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,110 @@
+package com.shift.benchmark;
+
+import com.shift.category.Category;
+import com.shift.category.CategoryDispatcher;
+import com.shift.data.DataType;
+import com.shift.processor.LineClassifier;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Бенчмарк классификации строк.
+ * Сравнивает {@link LineClassifier} с регулярными выражениями, которые использовались до него.
+ * Методы {@code dispatcher} и {@code regexChain} сравнивают единый автомат с пользовательскими категориями
+ * и последовательную проверку тех же выражений: время автомата не должно зависеть от количества категорий.
+ * Результат - время классификации всего набора строк.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassificationBenchmark {
+
+    private static final Pattern INTEGER = Pattern.compile("-?\\d+");
+    private static final Pattern FLOAT = Pattern.compile("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?");
+
+    @Param({"MOSTLY_INTEGERS", "LONG_STRINGS", "SCIENTIFIC_FLOATS", "HUGE_NUMBERS", "MIXED"})
+    public Datasets.Mix mix;
+
+    @Param({"10000"})
+    public int lines;
+
+    private static final List<Category> CATEGORIES = List.of(
+            new Category("uuid", "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}"),
+            new Category("date", "\\d{4}-\\d{2}-\\d{2}"),
+            new Category("time", "\\d{2}:\\d{2}(:\\d{2})?"),
+            new Category("hex", "0x[0-9A-Fa-f]+"),
+            new Category("email", "[\\w.+-]+@[\\w-]+(\\.[\\w-]+)+"),
+            new Category("ipv4", "\\d{1,3}(\\.\\d{1,3}){3}"),
+            new Category("word", "[A-Za-z]+"));
+
+    private List<String> data;
+
+    private CategoryDispatcher dispatcher;
+
+    private Pattern[] chain;
+
+    @Setup
+    public void setUp() {
+        data = Datasets.generate(mix, lines, 42);
+        dispatcher = new CategoryDispatcher(CATEGORIES);
+        chain = CATEGORIES.stream().map(category -> Pattern.compile(category.pattern())).toArray(Pattern[]::new);
+    }
+
+    @Benchmark
+    public void classifier(Blackhole blackhole) {
+        for (String line : data) {
+            blackhole.consume(LineClassifier.classify(line));
+        }
+    }
+
+    @Benchmark
+    public void compiledRegex(Blackhole blackhole) {
+        for (String line : data) {
+            DataType type = INTEGER.matcher(line).matches() ? DataType.INTEGER
+                    : FLOAT.matcher(line).matches() ? DataType.FLOAT : DataType.STRING;
+            blackhole.consume(type);
+        }
+    }
+
+    @Benchmark
+    public void stringMatches(Blackhole blackhole) {
+        for (String line : data) {
+            DataType type = line.matches("-?\\d+") ? DataType.INTEGER
+                    : line.matches("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?") ? DataType.FLOAT : DataType.STRING;
+            blackhole.consume(type);
+        }
+    }
+
+    @Benchmark
+    public void dispatcher(Blackhole blackhole) {
+        for (String line : data) {
+            blackhole.consume(dispatcher.classify(line));
+        }
+    }
+
+    @Benchmark
+    public void regexChain(Blackhole blackhole) {
+        for (String line : data) {
+            int category = LineClassifier.classify(line).ordinal();
+            if (category == DataType.STRING.ordinal()) {
+                for (int i = 0; i < chain.length; i++) {
+                    if (chain[i].matcher(line).matches()) {
+                        category = CategoryDispatcher.FIRST_CUSTOM + i;
+                        break;
+                    }
+                }
+            }
+            blackhole.consume(category);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.shift.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Генератор наборов входных данных для бенчмарков.
+ * Наборы детерминированы: одинаковые параметры всегда дают одинаковые строки,
+ * поэтому результаты разных запусков можно сравнивать между коммитами.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public final class Datasets {
+
+    private Datasets() {
+    }
+
+    /**
+     * Состав набора данных.
+     */
+    public enum Mix {
+        /**
+         * 90% целых чисел, помещающихся в {@code long}, остальное - короткие строки.
+         */
+        MOSTLY_INTEGERS,
+        /**
+         * Длинные строки от 100 до 400 символов, в том числе кириллица.
+         */
+        LONG_STRINGS,
+        /**
+         * Вещественные числа в научной записи.
+         */
+        SCIENTIFIC_FLOATS,
+        /**
+         * Целые и вещественные числа, не помещающиеся в {@code long} и {@code double}.
+         */
+        HUGE_NUMBERS,
+        /**
+         * Равномерная смесь всех категорий, похожая на реальные входные файлы.
+         */
+        MIXED
+    }
+
+    /**
+     * Генерирует строки набора данных.
+     *
+     * @param mix   Состав набора.
+     * @param lines Количество строк.
+     * @param seed  Начальное значение генератора случайных чисел.
+     * @return Список строк.
+     */
+    public static List<String> generate(Mix mix, int lines, long seed) {
+        Random random = new Random(seed);
+        List<String> result = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            result.add(switch (mix) {
+                case MOSTLY_INTEGERS -> random.nextInt(10) == 0 ? text(random, 5, 20) : Long.toString(random.nextLong() >> random.nextInt(60));
+                case LONG_STRINGS -> text(random, 100, 400);
+                case SCIENTIFIC_FLOATS -> scientific(random);
+                case HUGE_NUMBERS -> random.nextBoolean() ? digits(random, 20, 60) : digits(random, 10, 40) + "." + digits(random, 10, 40);
+                case MIXED -> switch (random.nextInt(4)) {
+                    case 0 -> Long.toString(random.nextInt());
+                    case 1 -> String.format("%.4f", random.nextDouble() * 1000).replace(',', '.');
+                    case 2 -> scientific(random);
+                    default -> text(random, 5, 60);
+                };
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Записывает набор данных во временный файл.
+     *
+     * @param mix   Состав набора.
+     * @param lines Количество строк.
+     * @param seed  Начальное значение генератора случайных чисел.
+     * @return Путь к созданному файлу.
+     * @throws IOException Если произошла ошибка при записи файла.
+     */
+    public static Path writeTempFile(Mix mix, int lines, long seed) throws IOException {
+        Path file = Files.createTempFile("bench-" + mix.name().toLowerCase() + "-", ".txt");
+        file.toFile().deleteOnExit();
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (String line : generate(mix, lines, seed)) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    private static String scientific(Random random) {
+        return (random.nextBoolean() ? "-" : "") + random.nextInt(10) + "." + digits(random, 1, 12)
+                + (random.nextBoolean() ? "E" : "e") + (random.nextBoolean() ? "-" : "+") + random.nextInt(300);
+    }
+
+    private static String digits(Random random, int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder builder = new StringBuilder(length);
+        builder.append((char) ('1' + random.nextInt(9)));
+        for (int i = 1; i < length; i++) builder.append((char) ('0' + random.nextInt(10)));
+        return builder.toString();
+    }
+
+    private static String text(Random random, int minLength, int maxLength) {
+        String alphabet = "abcdefghijklmnopqrstuvwxyz абвгдежзийклмнопрстуфхцчшщыэюя.,-0123456789";
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder builder = new StringBuilder(length);
+        builder.append((char) ('A' + random.nextInt(26)));
+        for (int i = 1; i < length; i++) builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return builder.toString();
+    }
+}
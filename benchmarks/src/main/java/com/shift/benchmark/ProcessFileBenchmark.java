@@ -0,0 +1,71 @@
+package com.shift.benchmark;
+
+import com.shift.cli.CommandLineOptions;
+import com.shift.processor.FileProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк полного цикла обработки файлов: чтение, классификация, статистика и запись результатов.
+ * Параметр {@code mode} выбирает обычный, потоковый режим или разбор по частям через отображение в память,
+ * параметр {@code threads} - значение {@code --threads}. Строки {@code lines} делятся поровну между {@code files}
+ * входными файлами, поэтому потоки используются во всех режимах: в обычном и потоковом параллельно
+ * обрабатываются разные файлы, а при отображении в память - части каждого файла.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessFileBenchmark {
+
+    @Param({"MIXED", "MOSTLY_INTEGERS", "HUGE_NUMBERS"})
+    public Datasets.Mix mix;
+
+    @Param({"200000"})
+    public int lines;
+
+    @Param({"buffered", "stream", "mmap"})
+    public String mode;
+
+    @Param({"4"})
+    public int files;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    private List<Path> inputs;
+    private Path outputDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        inputs = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            inputs.add(Datasets.writeTempFile(mix, lines / files, 42 + i));
+        }
+        outputDir = Files.createTempDirectory("bench-process-");
+    }
+
+    @Benchmark
+    public FileProcessor processFile() throws IOException {
+        CommandLineOptions options = new CommandLineOptions();
+        options.setOutputPath(outputDir.toString());
+        options.setStreaming(!mode.equals("buffered"));
+        options.setMemoryMapped(mode.equals("mmap"));
+        options.setThreads(threads);
+        FileProcessor processor = new FileProcessor(options);
+        processor.processFiles(inputs);
+        processor.writeResults();
+        return processor;
+    }
+}
@@ -0,0 +1,91 @@
+package com.shift.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк запуска утилиты в отдельном процессе JVM: время от запуска процесса до первого байта стандартного вывода
+ * (статистики) на небольшом входном файле, то есть почти целиком запуск JVM, загрузка классов и разбор аргументов.
+ * Параметр {@code launcher} сравнивает обычный запуск {@code java -jar} ({@code plain}) с запуском
+ * с архивом классов AppCDS ({@code cds}), который создается при сборке основного модуля с профилем {@code startup}.
+ * Пути к jar-файлу и архиву задаются системными свойствами {@code startup.jar} и {@code startup.archive},
+ * по умолчанию - файлы в ../target.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"plain", "cds"})
+    public String launcher;
+
+    @Param({"1000"})
+    public int lines;
+
+    private List<String> command;
+    private Path outputDir;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path jar = Path.of(System.getProperty("startup.jar", "../target/file-filter-util-jar-with-dependencies.jar"));
+        Path archive = Path.of(System.getProperty("startup.archive", "../target/file-filter-util.jsa"));
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException("Не найден jar-файл утилиты: " + jar.toAbsolutePath());
+        }
+        if (launcher.equals("cds") && !Files.exists(archive)) {
+            throw new IllegalStateException("Не найден архив AppCDS: " + archive.toAbsolutePath()
+                    + "; соберите основной модуль командой mvn -P startup package");
+        }
+        Path input = Datasets.writeTempFile(Datasets.Mix.MIXED, lines, 42);
+        outputDir = Files.createTempDirectory("bench-startup-");
+
+        command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (launcher.equals("cds")) {
+            command.add("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+            command.add("-Xlog:cds=off");
+            command.add("-Xlog:cds+dynamic=off");
+        }
+        command.add("-jar");
+        command.add(jar.toAbsolutePath().toString());
+        command.addAll(List.of("-s", "-o", outputDir.toString(), input.toString()));
+    }
+
+    @Benchmark
+    public int timeToFirstOutput() throws IOException {
+        process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        int first = process.getInputStream().read();
+        if (first < 0) {
+            throw new IllegalStateException("Утилита завершилась без вывода");
+        }
+        return first;
+    }
+
+    /**
+     * Дочитывает вывод и дожидается завершения процесса вне измеряемого времени.
+     */
+    @TearDown(Level.Invocation)
+    public void awaitExit() throws IOException, InterruptedException {
+        try (InputStream out = process.getInputStream()) {
+            out.transferTo(OutputStream.nullOutputStream());
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Утилита завершилась с кодом " + process.exitValue());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.shift.benchmark;
+
+import com.shift.data.Statistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк обновления {@link Statistics} для каждой категории.
+ * Значения разбираются заранее, поэтому измеряется только обновление статистики.
+ * Параметр {@code sketches} показывает стоимость вероятностных сводок (квантили и различные значения).
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatisticsBenchmark {
+
+    @Param({"10000"})
+    public int lines;
+
+    @Param({"false", "true"})
+    public boolean sketches;
+
+    private long[] longs;
+    private BigInteger[] hugeIntegers;
+    private BigDecimal[] floats;
+    private String[] strings;
+
+    @Setup
+    public void setUp() {
+        longs = Datasets.generate(Datasets.Mix.MOSTLY_INTEGERS, lines, 1).stream()
+                .filter(line -> line.matches("-?\\d+")).mapToLong(Long::parseLong).toArray();
+        hugeIntegers = Datasets.generate(Datasets.Mix.HUGE_NUMBERS, lines, 2).stream()
+                .filter(line -> line.indexOf('.') < 0).map(BigInteger::new).toArray(BigInteger[]::new);
+        floats = Datasets.generate(Datasets.Mix.SCIENTIFIC_FLOATS, lines, 3).stream()
+                .map(BigDecimal::new).toArray(BigDecimal[]::new);
+        List<String> text = Datasets.generate(Datasets.Mix.LONG_STRINGS, lines, 4);
+        strings = text.toArray(String[]::new);
+    }
+
+    @Benchmark
+    public Statistics integers() {
+        Statistics statistics = new Statistics(sketches);
+        for (long value : longs) statistics.updateIntegerStatistics(value);
+        return statistics;
+    }
+
+    @Benchmark
+    public Statistics hugeIntegers() {
+        Statistics statistics = new Statistics(sketches);
+        for (BigInteger value : hugeIntegers) statistics.updateIntegerStatistics(value);
+        return statistics;
+    }
+
+    @Benchmark
+    public Statistics floats() {
+        Statistics statistics = new Statistics(sketches);
+        for (BigDecimal value : floats) statistics.updateFloatStatistics(value);
+        return statistics;
+    }
+
+    @Benchmark
+    public Statistics strings() {
+        Statistics statistics = new Statistics(sketches);
+        for (String value : strings) statistics.updateStringStatistics(value);
+        return statistics;
+    }
+}
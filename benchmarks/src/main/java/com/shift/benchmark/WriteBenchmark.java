@@ -0,0 +1,58 @@
+package com.shift.benchmark;
+
+import com.shift.cli.CommandLineOptions;
+import com.shift.processor.FileProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк записи результатов в файлы.
+ * Списки категорий заполняются заранее, поэтому {@link FileProcessor#writeResults()}
+ * измеряет только запись списков в файлы.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+    @Param({"MOSTLY_INTEGERS", "LONG_STRINGS", "MIXED"})
+    public Datasets.Mix mix;
+
+    @Param({"100000"})
+    public int lines;
+
+    private Path outputDir;
+    private List<String> data;
+    private FileProcessor processor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        outputDir = Files.createTempDirectory("bench-write-");
+        data = Datasets.generate(mix, lines, 42);
+    }
+
+    @Setup(Level.Invocation)
+    public void fill() {
+        CommandLineOptions options = new CommandLineOptions();
+        options.setOutputPath(outputDir.toString());
+        processor = new FileProcessor(options);
+        // Все строки пишутся в файл строк, чтобы измерять запись, а не классификацию
+        processor.getStrings().addAll(data);
+    }
+
+    @Benchmark
+    public void writeResults() throws IOException {
+        processor.writeResults();
+    }
+}
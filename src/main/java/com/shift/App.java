@@ -1,11 +1,22 @@
 package com.shift;
 
 import com.shift.cli.CommandLineOptions;
+import com.shift.daemon.Daemon;
+import com.shift.daemon.DaemonClient;
+import com.shift.output.BinaryColumnReader;
+import com.shift.output.BinaryColumnWriter;
+import com.shift.processor.FileFollower;
 import com.shift.processor.FileProcessor;
+import com.shift.processor.InputFiles;
 import picocli.CommandLine;
 
 import java.io.IOException;
-import java.nio.file.Paths;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Главный класс приложения, отвечающий за запуск утилиты для фильтрации содержимого файлов.
@@ -25,15 +36,57 @@ public class App {
      *             Поддерживаются следующие опции:
      *             -s: Вывод краткой статистики.
      *             -f: Вывод полной статистики.
+     *             --sketches: Приближенные квантили и количество различных значений в полной статистике.
+     *             --report: Путь к отчету о запуске в формате JSON.
+     *             --categories: Файл описания пользовательских категорий.
      *             -a: Добавление данных в существующие файлы.
      *             -o: Путь для сохранения результатов.
      *             -p: Префикс для имен выходных файлов.
-     *             Файлы для обработки указываются в качестве позиционных аргументов.
+     *             --stream: Потоковый режим без накопления данных в памяти.
+     *             -t: Количество потоков для обработки файлов.
+     *             --concurrency: Количество файлов, одновременно читаемых в виртуальных потоках.
+     *             -r: Обработка файлов в поддиректориях указанных директорий.
+     *             --mmap: Параллельный разбор каждого файла по частям через отображение в память.
+     *             --async-write: Асинхронная запись выходных файлов в отдельных потоках.
+     *             --bytes: Побайтовая обработка без декодирования строк.
+     *             -z: Сжатие выходных файлов в формате gzip.
+     *             --shard-lines, --shard-size: Деление выходных файлов на части с манифестом частей.
+     *             -i: Обработка только новых данных с прошлого запуска.
+     *             --follow: Слежение за входными файлами и обработка дописываемых строк до остановки приложения.
+     *             -u: Удаление повторяющихся строк, --unique-memory: предел памяти таблицы отпечатков в байтах.
+     *             --sort: Сортировка выходных файлов, --sort-memory: бюджет памяти сортировки в байтах.
+     *             --format: Формат файлов чисел: text или binary.
+     *             --decode: Преобразование файлов двоичного формата обратно в текст.
+     *             --daemon: Выполнение задач клиентов через сокет Unix --socket, не более --max-jobs одновременно.
+     *             --client: Передача остальных аргументов демону и вывод результата задачи.
+     *             Файлы для обработки, сжатые в формате gzip, распаковываются автоматически.
+     *             Файлы для обработки указываются в качестве позиционных аргументов; вместо файлов можно указать
+     *             директории или шаблоны glob.
      */
     public static void main(String[] args) {
+        // Клиент только передает аргументы демону, не разбирая их, поэтому запускается быстрее
+        if (DaemonClient.isRequested(args)) {
+            int status = DaemonClient.run(args, System.out, System.err);
+            if (status != 0) System.exit(status);
+            return;
+        }
+        run(args, null, System.out, System.err);
+    }
+
+    /**
+     * Выполняет одну задачу утилиты: разбирает аргументы, обрабатывает файлы и выводит статистику.
+     * Используется как при запуске из командной строки, так и демоном для задач клиентов.
+     *
+     * @param args      Аргументы командной строки.
+     * @param directory Рабочая директория задачи для разрешения относительных путей или {@code null} для текущей.
+     * @param out       Поток для статистики и справки.
+     * @param err       Поток для сообщений об ошибках.
+     * @return Код завершения: 0 - успех, 1 - ошибка при обработке файлов, 2 - ошибка в аргументах или настройках.
+     */
+    public static int run(String[] args, Path directory, PrintStream out, PrintStream err) {
         // Создаем объект для обработки командной строки
         CommandLineOptions options = new CommandLineOptions();
-        CommandLine commandLine = new CommandLine(options);
+        CommandLine commandLine = new CommandLine(options).setCaseInsensitiveEnumValuesAllowed(true);
 
         try {
             // Парсим аргументы командной строки
@@ -41,43 +94,159 @@ public class App {
         }
         catch (CommandLine.ParameterException e) {
             // Обрабатываем ошибки парсинга
-            System.err.println("Ошибка: " + e.getMessage());
-            commandLine.usage(System.err);
-            return;
+            err.println("Ошибка: " + e.getMessage());
+            commandLine.usage(err);
+            return 2;
         }
 
         // Если запрошена помощь, выводим справку и завершаем работу
         if (commandLine.isUsageHelpRequested()) {
-            commandLine.usage(System.out);
-            return;
+            commandLine.usage(out);
+            return 0;
         }
 
         // Если запрошена версия утилиты, выводим версию и завершаем работу
         if (commandLine.isVersionHelpRequested()){
-            commandLine.printVersionHelp(System.out);
-            return;
+            commandLine.printVersionHelp(out);
+            return 0;
+        }
+
+        if (directory != null) {
+            // Задача демона выполняется в его процессе, поэтому режимы, которые занимают процесс, в ней недоступны
+            if (options.isDaemon() || options.isClient() || options.isFollow()) {
+                err.println("Ошибка в настройках: режимы --daemon, --client и --follow недоступны в задачах демона");
+                return 2;
+            }
+            options.resolvePaths(directory);
+            options.setDaemonJob(true);
+        }
+
+        // В режиме демона выполняем задачи клиентов до остановки приложения
+        if (options.isDaemon()) {
+            try {
+                new Daemon(options, out, err).serve();
+                return 0;
+            }
+            catch (IllegalArgumentException e) {
+                err.println("Ошибка в настройках: " + e.getMessage());
+                return 2;
+            }
+            catch (IOException e) {
+                err.println("Ошибка демона: " + e.getMessage());
+                return 1;
+            }
+        }
+
+        // В режиме преобразования файлы двоичного формата записываются как текст без фильтрации
+        if (options.isDecode()) {
+            return decode(options, commandLine, out, err);
+        }
+
+        // Проверяем, что указаны файлы для обработки
+        if (options.getInputFiles() == null) {
+            err.println("Укажите хоть один файл");
+            commandLine.usage(out);
+            return 2;
         }
 
         // Создаем объект для обработки файлов
-        FileProcessor processor = new FileProcessor(options);
+        FileProcessor processor;
         try {
-            // Обрабатываем каждый файл, указанный в аргументах
-            for (String filePath : options.getInputFiles()) {
-                processor.processFile(Paths.get(filePath));
+            processor = new FileProcessor(options);
+        }
+        catch (IllegalArgumentException | UncheckedIOException e) {
+            // Обрабатываем ошибки в описании пользовательских категорий и несовместимые опции
+            err.println("Ошибка в настройках: " + e.getMessage());
+            return 2;
+        }
+        processor.setErrors(err);
+
+        // Сигнал завершения записи результатов для обработчика остановки в режиме слежения
+        CountDownLatch finished = new CountDownLatch(1);
+        int status;
+        try {
+            // В инкрементальном режиме загружаем состояние предыдущих запусков
+            if (options.isIncremental()) {
+                processor.loadCheckpoint();
+            }
+            List<Path> filePaths = InputFiles.expand(options.getInputFiles(), options.isRecursive(), err);
+            if (options.isFollow()) {
+                // Следим за файлами до остановки приложения (например, Ctrl+C), после чего закрываем результаты как обычно
+                FileFollower follower = new FileFollower(processor, filePaths, out);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    follower.stop();
+                    try {
+                        finished.await();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+                follower.follow();
+            }
+            else {
+                // Обрабатываем каждый файл, указанный в аргументах
+                processor.processFiles(filePaths);
             }
             // Записываем результаты в файлы
             processor.writeResults();
+            // Публикуем замеры запуска и записываем отчет, если он запрошен
+            processor.finishRun();
             // Выводим статистику
-            processor.printStatistics();
-        }
-        catch (NullPointerException e){
-            // Обрабатываем случай, когда не указаны файлы для обработки
-            System.err.println("Укажите хоть один файл");
-            commandLine.usage(System.out);
+            processor.printStatistics(out);
+            status = 0;
         }
         catch (IOException e) {
             // Обрабатываем ошибки при обработке файлов
-            System.err.println("Ошибка при обработке файлов: " + e.getMessage());
+            err.println("Ошибка при обработке файлов: " + e.getMessage());
+            status = 1;
+        }
+        finally {
+            // Закрываем файлы и удаляем временные файлы и при ошибке: процесс демона продолжает работу
+            try {
+                processor.close();
+            }
+            catch (IOException e) {
+                err.println("Ошибка при закрытии файлов: " + e.getMessage());
+                status = 1;
+            }
+            finished.countDown();
+        }
+        return status;
+    }
+
+    /**
+     * Преобразует входные файлы двоичного формата в текстовые файлы в директории результатов.
+     * Имя текстового файла - имя входного файла с префиксом и расширением {@code .txt} вместо {@code .bin}.
+     *
+     * @param options     Настройки командной строки.
+     * @param commandLine Обработчик командной строки для вывода справки.
+     * @param out         Поток для справки.
+     * @param err         Поток для сообщений об ошибках.
+     * @return Код завершения.
+     */
+    private static int decode(CommandLineOptions options, CommandLine commandLine, PrintStream out, PrintStream err) {
+        if (options.getInputFiles() == null) {
+            // Обрабатываем случай, когда не указаны файлы для преобразования
+            err.println("Укажите хоть один файл");
+            commandLine.usage(out);
+            return 2;
+        }
+        try {
+            for (Path source : InputFiles.expand(options.getInputFiles(), options.isRecursive(), err)) {
+                String name = source.getFileName().toString();
+                if (name.endsWith(BinaryColumnWriter.EXTENSION)) {
+                    name = name.substring(0, name.length() - BinaryColumnWriter.EXTENSION.length());
+                }
+                Path target = Path.of(options.getOutputPath(), options.getPrefix() + name + ".txt");
+                Files.createDirectories(target.toAbsolutePath().getParent());
+                BinaryColumnReader.decode(source, target);
+            }
+            return 0;
+        }
+        catch (IOException e) {
+            err.println("Ошибка при преобразовании файлов: " + e.getMessage());
+            return 1;
         }
     }
-}
\ No newline at end of file
+}
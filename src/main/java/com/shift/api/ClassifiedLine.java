@@ -0,0 +1,25 @@
+package com.shift.api;
+
+import com.shift.data.DataType;
+
+/**
+ * Классифицированная строка входных данных, которую {@link LineFilter} передает подписчику.
+ * Строка относится либо к встроенной категории ({@code type}), либо к пользовательской ({@code category}).
+ *
+ * @param type     Встроенная категория или {@code null} для строки пользовательской категории.
+ * @param category Имя пользовательской категории или {@code null} для строки встроенной категории.
+ * @param line     Строка без символов перевода строки.
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public record ClassifiedLine(DataType type, String category, String line) {
+
+    /**
+     * Проверяет, относится ли строка к пользовательской категории.
+     *
+     * @return {@code true}, если строка попала в пользовательскую категорию.
+     */
+    public boolean isCustom() {
+        return category != null;
+    }
+}
@@ -0,0 +1,153 @@
+package com.shift.api;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Подписка, через которую {@link LineFilter} передает строки подписчику с учетом его запроса.
+ * Строки читаются и классифицируются только под запрошенное количество: пока запрос исчерпан,
+ * поток обработки ожидает, поэтому медленный подписчик приостанавливает чтение входных данных.
+ * Все сигналы подписчику подаются из потока обработки, а {@link #request(long)} и {@link #cancel()}
+ * только меняют состояние, поэтому их можно вызывать из любого потока, в том числе из {@code onNext}.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+final class LineEmitter implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super ClassifiedLine> subscriber;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition requested = lock.newCondition();
+
+    /**
+     * Запрошенное и еще не выданное потоку обработки количество строк.
+     */
+    private long demand;
+
+    /**
+     * Ошибка запроса неположительного количества строк, о которой нужно сообщить подписчику.
+     */
+    private IllegalArgumentException invalidRequest;
+
+    private volatile boolean cancelled;
+
+    /**
+     * Конструктор класса.
+     *
+     * @param subscriber Подписчик на классифицированные строки.
+     */
+    LineEmitter(Flow.Subscriber<? super ClassifiedLine> subscriber) {
+        this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+        lock.lock();
+        try {
+            if (n <= 0) {
+                if (invalidRequest == null) invalidRequest = new IllegalArgumentException("Запрошено неположительное количество строк: " + n);
+            }
+            else {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            requested.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void cancel() {
+        lock.lock();
+        try {
+            cancelled = true;
+            requested.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Проверяет, отменена ли подписка.
+     *
+     * @return {@code true}, если подписчик отменил подписку или передача прекращена.
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Ожидает запроса строк и забирает его целиком, чтобы не обращаться к блокировке на каждой строке.
+     * Если подписчик запросил неположительное количество строк, ему сообщается ошибка и передача прекращается.
+     *
+     * @return Количество строк, которые можно передать, или 0, если передача прекращена.
+     * @throws InterruptedIOException Если ожидание прервано.
+     */
+    long awaitDemand() throws InterruptedIOException {
+        IllegalArgumentException error;
+        lock.lock();
+        try {
+            while (demand == 0 && !cancelled && invalidRequest == null) {
+                requested.await();
+            }
+            error = cancelled ? null : invalidRequest;
+            if (error == null && !cancelled) {
+                long credit = demand;
+                demand = 0;
+                return credit;
+            }
+            cancelled = true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+            throw new InterruptedIOException("Передача строк прервана");
+        }
+        finally {
+            lock.unlock();
+        }
+        if (error != null) subscriber.onError(error);
+        return 0;
+    }
+
+    /**
+     * Передает строку подписчику. Исключение подписчика прекращает передачу.
+     *
+     * @param line Классифицированная строка.
+     */
+    void emit(ClassifiedLine line) {
+        try {
+            subscriber.onNext(line);
+        }
+        catch (RuntimeException e) {
+            cancelled = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Сообщает подписчику о завершении данных, если подписка не отменена.
+     */
+    void complete() {
+        if (!cancelled) {
+            cancelled = true;
+            subscriber.onComplete();
+        }
+    }
+
+    /**
+     * Сообщает подписчику об ошибке обработки, если подписка не отменена.
+     *
+     * @param error Ошибка.
+     */
+    void fail(Throwable error) {
+        if (!cancelled) {
+            cancelled = true;
+            subscriber.onError(error);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.shift.api;
+
+import com.shift.category.Categories;
+import com.shift.category.Category;
+import com.shift.category.CategoryDispatcher;
+import com.shift.data.DataType;
+import com.shift.data.Statistics;
+import com.shift.processor.InputFiles;
+import com.shift.processor.LineClassifier;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * Программный интерфейс утилиты для встраивания в другие приложения на JVM.
+ * Разделяет строки входных данных на те же категории, что и утилита командной строки (целые числа,
+ * вещественные числа, строки и пользовательские категории), и передает их подписчику {@link Flow.Subscriber}
+ * вместо записи в выходные файлы. Ничего не выводит в стандартный вывод и не зависит от разбора командной строки.
+ * <p>
+ * Подписчик управляет скоростью обработки: строки читаются и классифицируются только под его запрос
+ * ({@link Flow.Subscription#request(long)}), поэтому обработка ожидает медленного подписчика, а объем памяти
+ * не зависит от объема данных. Методы {@code process} выполняют обработку в вызывающем потоке и возвращают
+ * статистику по переданным строкам после сигнала {@code onComplete}. Если подписчик отменил подписку,
+ * возвращается статистика по строкам, переданным до отмены. Ошибка чтения сообщается подписчику
+ * через {@code onError} и выбрасывается из метода. Входные данные в формате gzip распаковываются автоматически.
+ * <p>
+ * Объект не хранит состояния между вызовами и может использоваться из нескольких потоков одновременно.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public final class LineFilter {
+    /**
+     * Встроенные категории по номеру.
+     */
+    private static final DataType[] DATA_TYPES = DataType.values();
+
+    /**
+     * Классификатор пользовательских категорий или {@code null}, если их нет.
+     */
+    private final CategoryDispatcher dispatcher;
+
+    /**
+     * Флаг вероятностных сводок в статистике.
+     */
+    private final boolean sketches;
+
+    /**
+     * Конструктор для разделения только на встроенные категории без вероятностных сводок.
+     */
+    public LineFilter() {
+        this(List.of(), false);
+    }
+
+    /**
+     * Конструктор класса.
+     * Категории поставщиков {@link com.shift.category.CategoryProvider} не подключаются автоматически;
+     * при необходимости их можно получить через {@link Categories#provided()}.
+     *
+     * @param categories Пользовательские категории в порядке приоритета.
+     * @param sketches   Вести ли в статистике вероятностные сводки с квантилями и количеством различных значений.
+     * @throws IllegalArgumentException Если имя категории повторяется или выражение категории содержит ошибку.
+     */
+    public LineFilter(List<Category> categories, boolean sketches) {
+        this.dispatcher = Categories.dispatcher(categories);
+        this.sketches = sketches;
+    }
+
+    /**
+     * Обрабатывает файл.
+     *
+     * @param filePath   Путь к файлу.
+     * @param subscriber Подписчик на классифицированные строки.
+     * @return Статистика по переданным строкам.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    public Statistics process(Path filePath, Flow.Subscriber<? super ClassifiedLine> subscriber) throws IOException {
+        try (InputStream in = InputFiles.newInputStream(filePath)) {
+            return process(InputFiles.newBufferedReader(in), subscriber);
+        }
+    }
+
+    /**
+     * Обрабатывает поток байтов в кодировке UTF-8. Поток не закрывается.
+     *
+     * @param in         Поток байтов.
+     * @param subscriber Подписчик на классифицированные строки.
+     * @return Статистика по переданным строкам.
+     * @throws IOException Если произошла ошибка при чтении потока.
+     */
+    public Statistics process(InputStream in, Flow.Subscriber<? super ClassifiedLine> subscriber) throws IOException {
+        return process(InputFiles.newBufferedReader(InputFiles.newInputStream(in)), subscriber);
+    }
+
+    /**
+     * Обрабатывает байты в кодировке UTF-8, поступающие от издателя. Границы буферов не обязаны совпадать
+     * с границами строк. Буферы запрашиваются у издателя по мере чтения, то есть также под запрос подписчика,
+     * а при отмене подписки или ошибке отменяется и подписка на издателя.
+     *
+     * @param publisher  Издатель буферов байтов.
+     * @param subscriber Подписчик на классифицированные строки.
+     * @return Статистика по переданным строкам.
+     * @throws IOException Если издатель сообщил об ошибке или данные не являются корректным UTF-8.
+     */
+    public Statistics process(Flow.Publisher<ByteBuffer> publisher, Flow.Subscriber<? super ClassifiedLine> subscriber)
+            throws IOException {
+        try (PublisherInputStream in = new PublisherInputStream(publisher)) {
+            return process(in, subscriber);
+        }
+    }
+
+    /**
+     * Читает строки под запрос подписчика, классифицирует их, обновляет статистику и передает подписчику.
+     *
+     * @param reader     Поток чтения строк.
+     * @param subscriber Подписчик на классифицированные строки.
+     * @return Статистика по переданным строкам.
+     * @throws IOException Если произошла ошибка при чтении.
+     */
+    private Statistics process(BufferedReader reader, Flow.Subscriber<? super ClassifiedLine> subscriber) throws IOException {
+        Statistics statistics = new Statistics(sketches);
+        if (dispatcher != null) {
+            for (Category category : dispatcher.getCategories()) statistics.addCategory(category.name());
+        }
+
+        LineEmitter emitter = new LineEmitter(subscriber);
+        subscriber.onSubscribe(emitter);
+        try {
+            long credit = 0;
+            while (!emitter.isCancelled()) {
+                if (credit == 0 && (credit = emitter.awaitDemand()) == 0) break;
+                String line = reader.readLine();
+                if (line == null) {
+                    emitter.complete();
+                    break;
+                }
+                emitter.emit(classify(line, statistics));
+                if (credit != Long.MAX_VALUE) credit--;
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            emitter.fail(e);
+            throw e;
+        }
+        return statistics;
+    }
+
+    /**
+     * Определяет категорию строки и обновляет статистику.
+     *
+     * @param line       Строка входных данных.
+     * @param statistics Статистика обработки.
+     * @return Классифицированная строка.
+     */
+    private ClassifiedLine classify(String line, Statistics statistics) {
+        int category = dispatcher != null ? dispatcher.classify(line) : LineClassifier.classify(line).ordinal();
+        if (category >= CategoryDispatcher.FIRST_CUSTOM) {
+            String name = dispatcher.category(category).name();
+            statistics.updateCategoryStatistics(name, line.length());
+            return new ClassifiedLine(null, name, line);
+        }
+        DataType type = DATA_TYPES[category];
+        statistics.update(type, line);
+        return new ClassifiedLine(type, null, line);
+    }
+}
@@ -0,0 +1,170 @@
+package com.shift.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Поток байтов, читающий буферы из {@link Flow.Publisher}.
+ * Буферы запрашиваются у издателя небольшими порциями по мере чтения, поэтому издатель не может
+ * опередить обработку больше чем на {@link #PREFETCH} буферов. Закрытие потока отменяет подписку.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+final class PublisherInputStream extends InputStream implements Flow.Subscriber<ByteBuffer> {
+    /**
+     * Наибольшее количество буферов, запрошенных у издателя и еще не прочитанных.
+     */
+    static final int PREFETCH = 16;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<ByteBuffer> buffers = new ArrayDeque<>();
+
+    private Flow.Subscription subscription;
+    private boolean done;
+    private Throwable error;
+    private boolean closed;
+
+    /**
+     * Количество полностью прочитанных буферов, взамен которых еще не запрошены новые.
+     */
+    private int consumed;
+
+    /**
+     * Конструктор класса. Подписывается на издателя.
+     *
+     * @param publisher Издатель буферов байтов.
+     */
+    PublisherInputStream(Flow.Publisher<ByteBuffer> publisher) {
+        publisher.subscribe(this);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        lock.lock();
+        try {
+            if (this.subscription != null || closed) {
+                // Повторная подписка или подписка после закрытия не принимается
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+        }
+        finally {
+            lock.unlock();
+        }
+        subscription.request(PREFETCH);
+    }
+
+    @Override
+    public void onNext(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            // Пустой буфер не будет прочитан, поэтому сразу запрашиваем замену
+            subscription.request(1);
+            return;
+        }
+        lock.lock();
+        try {
+            buffers.add(buffer.duplicate());
+            changed.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        lock.lock();
+        try {
+            error = throwable;
+            changed.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        lock.lock();
+        try {
+            done = true;
+            changed.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+        int read;
+        int refill = 0;
+        lock.lock();
+        try {
+            while (buffers.isEmpty() && !done && error == null) {
+                if (closed) throw new IOException("Поток закрыт");
+                changed.await();
+            }
+            if (buffers.isEmpty()) {
+                if (error != null) throw new IOException("Ошибка издателя данных", error);
+                return -1;
+            }
+            ByteBuffer head = buffers.peek();
+            read = Math.min(length, head.remaining());
+            head.get(bytes, offset, read);
+            if (!head.hasRemaining()) {
+                buffers.poll();
+                consumed++;
+            }
+            // Запрашиваем новые буферы порциями, когда прочитана половина запрошенных
+            if (consumed >= PREFETCH / 2) {
+                refill = consumed;
+                consumed = 0;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Чтение данных прервано");
+        }
+        finally {
+            lock.unlock();
+        }
+        // Запрос выполняется вне блокировки: издатель может передать буферы прямо из request
+        if (refill > 0) subscription.request(refill);
+        return read;
+    }
+
+    @Override
+    public void close() {
+        Flow.Subscription current;
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            current = done || error != null ? null : subscription;
+            buffers.clear();
+            changed.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+        if (current != null) current.cancel();
+    }
+}
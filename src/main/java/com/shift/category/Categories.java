@@ -0,0 +1,109 @@
+package com.shift.category;
+
+import com.shift.cli.CommandLineOptions;
+import com.shift.data.DataType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * Загрузка пользовательских категорий из реализаций {@link CategoryProvider} и из файла описания категорий.
+ * Файл описания задается опцией {@code --categories} и содержит по одной категории в строке
+ * в виде {@code имя = выражение}; пустые строки и строки, начинающиеся с {@code #}, пропускаются.
+ * Пробелы вокруг имени и выражения отбрасываются. Категории из файла идут после категорий поставщиков.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public final class Categories {
+
+    private Categories() {
+    }
+
+    /**
+     * Загружает пользовательские категории и строит для них классификатор.
+     *
+     * @param options Настройки командной строки.
+     * @return Классификатор или {@code null}, если пользовательских категорий нет.
+     * @throws IllegalArgumentException Если описание категорий содержит ошибку.
+     * @throws UncheckedIOException     Если файл описания не удалось прочитать.
+     */
+    public static CategoryDispatcher load(CommandLineOptions options) {
+        List<Category> categories = new ArrayList<>(provided());
+        if (options.getCategoriesFile() != null) {
+            categories.addAll(parse(Path.of(options.getCategoriesFile())));
+        }
+        return dispatcher(categories);
+    }
+
+    /**
+     * Возвращает категории всех поставщиков {@link CategoryProvider}, найденных через {@link ServiceLoader}.
+     *
+     * @return Категории поставщиков.
+     */
+    public static List<Category> provided() {
+        List<Category> categories = new ArrayList<>();
+        for (CategoryProvider provider : ServiceLoader.load(CategoryProvider.class)) {
+            categories.addAll(provider.categories());
+        }
+        return categories;
+    }
+
+    /**
+     * Строит классификатор для пользовательских категорий, проверив, что их имена не повторяются.
+     *
+     * @param categories Категории в порядке приоритета.
+     * @return Классификатор или {@code null}, если категорий нет.
+     * @throws IllegalArgumentException Если имя категории повторяется или совпадает со встроенной, или выражение содержит ошибку.
+     */
+    public static CategoryDispatcher dispatcher(List<Category> categories) {
+        if (categories.isEmpty()) return null;
+
+        Set<String> names = new HashSet<>();
+        for (DataType type : DataType.values()) names.add(type.getFileName());
+        for (Category category : categories) {
+            if (!names.add(category.fileName())) {
+                throw new IllegalArgumentException("Категория " + category.name() + " объявлена повторно или совпадает со встроенной");
+            }
+        }
+        return new CategoryDispatcher(categories);
+    }
+
+    /**
+     * Читает категории из файла описания.
+     *
+     * @param path Путь к файлу описания.
+     * @return Категории в порядке объявления.
+     * @throws IllegalArgumentException Если строка файла не имеет вида {@code имя = выражение}.
+     * @throws UncheckedIOException     Если файл не удалось прочитать.
+     */
+    public static List<Category> parse(Path path) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать описание категорий " + path, e);
+        }
+
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int separator = line.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException(path + ", строка " + (i + 1) + ": ожидается \"имя = выражение\"");
+            }
+            categories.add(new Category(line.substring(0, separator).strip(), line.substring(separator + 1).strip()));
+        }
+        return categories;
+    }
+}
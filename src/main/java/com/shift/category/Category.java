@@ -0,0 +1,48 @@
+package com.shift.category;
+
+import java.util.regex.Pattern;
+
+/**
+ * Пользовательская категория строк: имя и регулярное выражение, которому должна целиком соответствовать строка.
+ * Строки категории записываются в файл {@code <префикс><имя>.txt}, а для категории ведется отдельная статистика.
+ * Выражение записывается в подмножестве синтаксиса {@link Pattern}, которое компилируется в детерминированный автомат
+ * (см. {@link CategoryDispatcher}): символы ASCII, экранирование, {@code .}, классы {@code [...]} с диапазонами
+ * и отрицанием, {@code \d \w \s} и их отрицания, группы {@code (...)} и {@code (?:...)}, альтернатива {@code |},
+ * повторения {@code * + ? {n} {n,} {n,m}}. Обратные ссылки, просмотр вперед и назад не поддерживаются.
+ *
+ * @param name    Имя категории: латинские буквы, цифры, {@code _} и {@code -}.
+ * @param pattern Регулярное выражение.
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public record Category(String name, String pattern) {
+    /**
+     * Допустимые имена категорий.
+     */
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    /**
+     * Конструктор записи с проверкой имени.
+     *
+     * @param name    Имя категории.
+     * @param pattern Регулярное выражение.
+     * @throws IllegalArgumentException Если имя недопустимо.
+     */
+    public Category {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Недопустимое имя категории: " + name);
+        }
+        if (pattern == null) {
+            throw new IllegalArgumentException("Не задано выражение категории " + name);
+        }
+    }
+
+    /**
+     * Возвращает имя выходного файла категории (без префикса).
+     *
+     * @return Имя файла.
+     */
+    public String fileName() {
+        return name + ".txt";
+    }
+}
@@ -0,0 +1,203 @@
+package com.shift.category;
+
+import com.shift.data.DataType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Классификатор строк по встроенным и пользовательским категориям за один проход по строке.
+ * Выражения всех категорий, включая встроенные {@code -?\d+} (целые числа) и
+ * {@code -?\d+(\.\d+)?([eE][-+]?\d+)?} (вещественные числа), объединяются в один недетерминированный автомат,
+ * который построением подмножеств переводится в детерминированный. Поэтому время классификации строки
+ * зависит только от ее длины, но не от количества категорий.
+ * Если строка подходит под несколько категорий, она относится к первой из них: сначала идут встроенные числовые
+ * категории, затем пользовательские в порядке объявления. Строки, не подходящие ни под одну категорию, являются строками.
+ * Переходы автомата хранятся в одной плоской таблице: по строке на состояние и по столбцу на символ ASCII,
+ * все остальные символы делят один общий столбец.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class CategoryDispatcher {
+    /**
+     * Номер первой пользовательской категории. Меньшие номера совпадают с {@link DataType#ordinal()}.
+     */
+    public static final int FIRST_CUSTOM = DataType.values().length;
+
+    /**
+     * Наибольшее количество состояний детерминированного автомата.
+     */
+    private static final int MAX_STATES = 20_000;
+
+    /**
+     * Выражения встроенных числовых категорий, совпадающие с {@code LineClassifier}.
+     */
+    private static final List<String> BUILT_IN = List.of("-?\\d+", "-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?");
+
+    /**
+     * Пользовательские категории в порядке номеров, начиная с {@link #FIRST_CUSTOM}.
+     */
+    private final List<Category> categories;
+
+    /**
+     * Таблица переходов: {@code transitions[state * ALPHABET + symbol]}, -1 - тупиковое состояние.
+     */
+    private final int[] transitions;
+
+    /**
+     * Номер категории для каждого состояния ({@link DataType#STRING}, если состояние не заключительное).
+     */
+    private final int[] accepts;
+
+    /**
+     * Строит классификатор.
+     *
+     * @param categories Пользовательские категории в порядке приоритета.
+     * @throws IllegalArgumentException Если выражение категории содержит ошибку или автомат слишком велик.
+     */
+    public CategoryDispatcher(List<Category> categories) {
+        this.categories = List.copyOf(categories);
+        List<String> patterns = new ArrayList<>(BUILT_IN);
+        for (Category category : categories) patterns.add(category.pattern());
+        PatternNfa nfa = new PatternNfa(patterns);
+
+        // Построение подмножеств: состояние автомата - множество состояний недетерминированного автомата
+        Map<BitSet, Integer> states = new HashMap<>();
+        List<BitSet> sets = new ArrayList<>();
+        Deque<Integer> queue = new ArrayDeque<>();
+        BitSet initial = closure(nfa, singleton(nfa.start));
+        states.put(initial, 0);
+        sets.add(initial);
+        queue.add(0);
+        int[] table = new int[64 * PatternNfa.ALPHABET];
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            BitSet set = sets.get(state);
+            for (int symbol = 0; symbol < PatternNfa.ALPHABET; symbol++) {
+                BitSet next = new BitSet(nfa.size());
+                for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                    BitSet chars = nfa.symbols.get(s);
+                    if (chars != null && chars.get(symbol)) next.set(nfa.targets.get(s));
+                }
+                int target = -1;
+                if (!next.isEmpty()) {
+                    next = closure(nfa, next);
+                    Integer known = states.get(next);
+                    if (known == null) {
+                        if (sets.size() == MAX_STATES) {
+                            throw new IllegalArgumentException("Выражения категорий слишком сложны: автомат превышает "
+                                    + MAX_STATES + " состояний");
+                        }
+                        known = sets.size();
+                        states.put(next, known);
+                        sets.add(next);
+                        queue.add(known);
+                    }
+                    target = known;
+                }
+                int index = state * PatternNfa.ALPHABET + symbol;
+                if (index >= table.length) table = Arrays.copyOf(table, table.length * 2);
+                table[index] = target;
+            }
+        }
+        this.transitions = Arrays.copyOf(table, sets.size() * PatternNfa.ALPHABET);
+
+        this.accepts = new int[sets.size()];
+        for (int state = 0; state < sets.size(); state++) {
+            int best = Integer.MAX_VALUE;
+            BitSet set = sets.get(state);
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                int accept = nfa.accepts.get(s);
+                if (accept >= 0 && accept < best) best = accept;
+            }
+            accepts[state] = best == Integer.MAX_VALUE ? DataType.STRING.ordinal() : toCategory(best);
+        }
+    }
+
+    /**
+     * Переводит номер выражения в номер категории: встроенные выражения соответствуют целым и вещественным числам.
+     */
+    private static int toCategory(int pattern) {
+        return switch (pattern) {
+            case 0 -> DataType.INTEGER.ordinal();
+            case 1 -> DataType.FLOAT.ordinal();
+            default -> FIRST_CUSTOM + pattern - BUILT_IN.size();
+        };
+    }
+
+    private static BitSet singleton(int state) {
+        BitSet set = new BitSet();
+        set.set(state);
+        return set;
+    }
+
+    /**
+     * Дополняет множество состояниями, достижимыми по пустым переходам.
+     */
+    private static BitSet closure(PatternNfa nfa, BitSet set) {
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) stack.push(s);
+        while (!stack.isEmpty()) {
+            for (int next : nfa.epsilons.get(stack.pop())) {
+                if (!set.get(next)) {
+                    set.set(next);
+                    stack.push(next);
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Определяет категорию строки.
+     *
+     * @param line Строка.
+     * @return Номер категории: {@link DataType#ordinal()} для встроенных категорий
+     * или {@link #FIRST_CUSTOM} и больше для пользовательских.
+     */
+    public int classify(CharSequence line) {
+        int state = 0;
+        for (int i = 0, length = line.length(); i < length; i++) {
+            char c = line.charAt(i);
+            state = transitions[state * PatternNfa.ALPHABET + PatternNfa.symbol(c)];
+            if (state < 0) return DataType.STRING.ordinal();
+        }
+        return accepts[state];
+    }
+
+    /**
+     * Возвращает пользовательскую категорию по номеру.
+     *
+     * @param index Номер категории, не меньший {@link #FIRST_CUSTOM}.
+     * @return Категория.
+     */
+    public Category category(int index) {
+        return categories.get(index - FIRST_CUSTOM);
+    }
+
+    /**
+     * Возвращает пользовательские категории в порядке номеров.
+     *
+     * @return Неизменяемый список категорий.
+     */
+    public List<Category> getCategories() {
+        return Collections.unmodifiableList(categories);
+    }
+
+    /**
+     * Возвращает количество состояний автомата.
+     *
+     * @return Количество состояний.
+     */
+    public int stateCount() {
+        return accepts.length;
+    }
+}
@@ -0,0 +1,23 @@
+package com.shift.category;
+
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Точка расширения для поставки пользовательских категорий из библиотек.
+ * Реализации находятся через {@link ServiceLoader}: класс реализации указывается в файле
+ * {@code META-INF/services/com.shift.category.CategoryProvider} внутри jar-файла, добавленного в classpath.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public interface CategoryProvider {
+
+    /**
+     * Возвращает категории в порядке приоритета: если строка подходит под несколько категорий,
+     * она относится к первой из них.
+     *
+     * @return Список категорий.
+     */
+    List<Category> categories();
+}
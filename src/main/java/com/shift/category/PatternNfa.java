@@ -0,0 +1,413 @@
+package com.shift.category;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Недетерминированный автомат (конструкция Томпсона) для нескольких регулярных выражений сразу.
+ * Выражения разбираются рекурсивным спуском в дерево, которое затем переводится в состояния автомата.
+ * Алфавит автомата - символы ASCII (0-127), класс {@link #LINE_SEPARATOR} для разделителей строк вне ASCII,
+ * которые, как и в {@link java.util.regex.Pattern}, не совпадают с {@code .}, и один общий класс {@link #OTHER}
+ * для всех остальных символов.
+ * Каждое выражение получает свое заключительное состояние с номером выражения.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+class PatternNfa {
+    /**
+     * Класс символов вне ASCII.
+     */
+    static final int OTHER = 128;
+
+    /**
+     * Класс разделителей строк вне ASCII: U+0085, U+2028 и U+2029.
+     */
+    static final int LINE_SEPARATOR = 129;
+
+    /**
+     * Размер алфавита автомата.
+     */
+    static final int ALPHABET = 130;
+
+    /**
+     * Наибольшее допустимое число повторений в {@code {n,m}}.
+     */
+    private static final int MAX_REPEAT = 1000;
+
+    /**
+     * Наибольшее количество состояний автомата для всех выражений вместе.
+     * Вложенные повторения раскрываются в копии выражения, поэтому, например, {@code (a{1000}){1000}}
+     * дало бы миллионы состояний; такие выражения отклоняются до построения автомата.
+     */
+    static final int MAX_NFA_STATES = 10_000;
+
+    /**
+     * Переходы по символам: множество символов и целевое состояние. Множество равно {@code null}, если перехода нет.
+     */
+    final List<BitSet> symbols = new ArrayList<>();
+    final List<Integer> targets = new ArrayList<>();
+
+    /**
+     * Пустые переходы каждого состояния.
+     */
+    final List<List<Integer>> epsilons = new ArrayList<>();
+
+    /**
+     * Номер выражения для заключительных состояний или -1.
+     */
+    final List<Integer> accepts = new ArrayList<>();
+
+    /**
+     * Начальное состояние.
+     */
+    final int start;
+
+    /**
+     * Строит автомат для списка выражений.
+     *
+     * @param patterns Выражения в порядке приоритета.
+     * @throws IllegalArgumentException Если выражение содержит ошибку или неподдерживаемую конструкцию.
+     */
+    PatternNfa(List<String> patterns) {
+        start = newState();
+        long total = 1;
+        for (int i = 0; i < patterns.size(); i++) {
+            Node node = new Parser(patterns.get(i)).parse();
+            total += states(node);
+            if (total > MAX_NFA_STATES) {
+                throw new IllegalArgumentException("Ошибка в выражении \"" + patterns.get(i) + "\": автомат превышает "
+                        + MAX_NFA_STATES + " состояний, уменьшите количество повторений");
+            }
+            int[] fragment = compile(node);
+            epsilons.get(start).add(fragment[0]);
+            accepts.set(fragment[1], i);
+        }
+    }
+
+    int size() {
+        return accepts.size();
+    }
+
+    private int newState() {
+        symbols.add(null);
+        targets.add(-1);
+        epsilons.add(new ArrayList<>());
+        accepts.add(-1);
+        return accepts.size() - 1;
+    }
+
+    /**
+     * Переводит узел дерева в фрагмент автомата.
+     *
+     * @param node Узел дерева выражения.
+     * @return Начальное и конечное состояния фрагмента.
+     */
+    private int[] compile(Node node) {
+        if (node instanceof Chars chars) {
+            int from = newState();
+            int to = newState();
+            symbols.set(from, chars.set);
+            targets.set(from, to);
+            return new int[]{from, to};
+        }
+        if (node instanceof Sequence sequence) {
+            int from = newState();
+            int end = from;
+            for (Node part : sequence.parts) {
+                int[] fragment = compile(part);
+                epsilons.get(end).add(fragment[0]);
+                end = fragment[1];
+            }
+            return new int[]{from, end};
+        }
+        if (node instanceof Choice choice) {
+            int from = newState();
+            int to = newState();
+            for (Node option : choice.options) {
+                int[] fragment = compile(option);
+                epsilons.get(from).add(fragment[0]);
+                epsilons.get(fragment[1]).add(to);
+            }
+            return new int[]{from, to};
+        }
+        Repeat repeat = (Repeat) node;
+        int from = newState();
+        int end = from;
+        for (int i = 0; i < repeat.min; i++) {
+            int[] fragment = compile(repeat.node);
+            epsilons.get(end).add(fragment[0]);
+            end = fragment[1];
+        }
+        if (repeat.max < 0) {
+            int[] fragment = compile(repeat.node);
+            int to = newState();
+            epsilons.get(end).add(fragment[0]);
+            epsilons.get(end).add(to);
+            epsilons.get(fragment[1]).add(fragment[0]);
+            epsilons.get(fragment[1]).add(to);
+            return new int[]{from, to};
+        }
+        int to = newState();
+        for (int i = repeat.min; i < repeat.max; i++) {
+            int[] fragment = compile(repeat.node);
+            epsilons.get(end).add(fragment[0]);
+            epsilons.get(end).add(to);
+            end = fragment[1];
+        }
+        epsilons.get(end).add(to);
+        return new int[]{from, to};
+    }
+
+    /**
+     * Возвращает символ алфавита автомата для символа строки.
+     *
+     * @param c Символ строки.
+     * @return Код ASCII, {@link #LINE_SEPARATOR} или {@link #OTHER}.
+     */
+    static int symbol(char c) {
+        if (c < OTHER) return c;
+        return c == '\u0085' || c == '\u2028' || c == '\u2029' ? LINE_SEPARATOR : OTHER;
+    }
+
+    /**
+     * Вычисляет количество состояний, которое создаст {@link #compile(Node)} для узла.
+     * Результат ограничен сверху, чтобы произведение вложенных повторений не переполнилось.
+     *
+     * @param node Узел дерева выражения.
+     * @return Количество состояний, но не больше {@code MAX_NFA_STATES + 1}.
+     */
+    private static long states(Node node) {
+        long count;
+        if (node instanceof Chars) {
+            count = 2;
+        }
+        else if (node instanceof Sequence sequence) {
+            count = 1;
+            for (Node part : sequence.parts) count += states(part);
+        }
+        else if (node instanceof Choice choice) {
+            count = 2;
+            for (Node option : choice.options) count += states(option);
+        }
+        else {
+            Repeat repeat = (Repeat) node;
+            long inner = states(repeat.node);
+            count = 2 + inner * (repeat.max < 0 ? repeat.min + 1 : repeat.max);
+        }
+        return Math.min(count, MAX_NFA_STATES + 1L);
+    }
+
+    /**
+     * Узел дерева выражения.
+     */
+    private sealed interface Node permits Chars, Sequence, Choice, Repeat {
+    }
+
+    private record Chars(BitSet set) implements Node {
+    }
+
+    private record Sequence(List<Node> parts) implements Node {
+    }
+
+    private record Choice(List<Node> options) implements Node {
+    }
+
+    private record Repeat(Node node, int min, int max) implements Node {
+    }
+
+    /**
+     * Разбор выражения рекурсивным спуском.
+     */
+    private static final class Parser {
+        private final String pattern;
+        private int position;
+
+        Parser(String pattern) {
+            this.pattern = pattern;
+        }
+
+        Node parse() {
+            // Выражение всегда сопоставляется со всей строкой, поэтому якоря по краям допускаются и ничего не меняют
+            if (pattern.startsWith("^")) position++;
+            Node node = choice();
+            if (position == pattern.length() - 1 && pattern.charAt(position) == '$') position++;
+            if (position < pattern.length()) throw error("неожиданный символ '" + pattern.charAt(position) + "'");
+            return node;
+        }
+
+        private Node choice() {
+            List<Node> options = new ArrayList<>();
+            options.add(sequence());
+            while (peek('|')) {
+                position++;
+                options.add(sequence());
+            }
+            return options.size() == 1 ? options.get(0) : new Choice(options);
+        }
+
+        private Node sequence() {
+            List<Node> parts = new ArrayList<>();
+            while (position < pattern.length() && !peek('|') && !peek(')')) {
+                if (peek('$') && position == pattern.length() - 1) break;
+                parts.add(repeat(atom()));
+            }
+            return parts.size() == 1 ? parts.get(0) : new Sequence(parts);
+        }
+
+        private Node repeat(Node node) {
+            while (position < pattern.length()) {
+                char c = pattern.charAt(position);
+                int min;
+                int max;
+                if (c == '*') { min = 0; max = -1; }
+                else if (c == '+') { min = 1; max = -1; }
+                else if (c == '?') { min = 0; max = 1; }
+                else if (c == '{') {
+                    int close = pattern.indexOf('}', position);
+                    if (close < 0) throw error("не закрыта скобка '{'");
+                    String[] bounds = pattern.substring(position + 1, close).split(",", -1);
+                    try {
+                        min = Integer.parseInt(bounds[0].trim());
+                        max = bounds.length == 1 ? min : bounds[1].isBlank() ? -1 : Integer.parseInt(bounds[1].trim());
+                    }
+                    catch (NumberFormatException e) {
+                        throw error("неверное количество повторений");
+                    }
+                    if (bounds.length > 2 || min < 0 || max != -1 && max < min || Math.max(min, max) > MAX_REPEAT) {
+                        throw error("неверное количество повторений");
+                    }
+                    position = close;
+                }
+                else break;
+                position++;
+                // Ленивые и сверхжадные квантификаторы не меняют множество подходящих строк
+                if (peek('?') || peek('+')) position++;
+                node = new Repeat(node, min, max);
+            }
+            return node;
+        }
+
+        private Node atom() {
+            char c = pattern.charAt(position++);
+            switch (c) {
+                case '(' -> {
+                    if (pattern.startsWith("?:", position)) position += 2;
+                    else if (peek('?')) throw error("группы вида (?...) не поддерживаются");
+                    Node node = choice();
+                    if (!peek(')')) throw error("не закрыта скобка '('");
+                    position++;
+                    return node;
+                }
+                case '[' -> {
+                    return new Chars(charClass());
+                }
+                case '.' -> {
+                    BitSet set = new BitSet(ALPHABET);
+                    set.set(0, ALPHABET);
+                    set.clear('\n');
+                    set.clear('\r');
+                    set.clear(LINE_SEPARATOR);
+                    return new Chars(set);
+                }
+                case '\\' -> {
+                    return new Chars(escape());
+                }
+                case '*', '+', '?', '{' -> throw error("повторение без выражения");
+                case ')', ']', '}' -> throw error("лишняя скобка '" + c + "'");
+                case '^', '$' -> throw error("якоря допускаются только по краям выражения");
+                default -> {
+                    return new Chars(single(c));
+                }
+            }
+        }
+
+        private BitSet charClass() {
+            BitSet set = new BitSet(ALPHABET);
+            boolean negated = peek('^');
+            if (negated) position++;
+            boolean first = true;
+            while (position < pattern.length() && (first || !peek(']'))) {
+                first = false;
+                char c = pattern.charAt(position++);
+                BitSet item;
+                int low;
+                if (c == '\\') {
+                    item = escape();
+                    low = item.cardinality() == 1 ? item.nextSetBit(0) : -1;
+                }
+                else if (c == '[') {
+                    throw error("вложенные классы символов не поддерживаются");
+                }
+                else {
+                    item = single(c);
+                    low = c;
+                }
+                if (low >= 0 && peek('-') && position + 1 < pattern.length() && pattern.charAt(position + 1) != ']') {
+                    position++;
+                    char high = pattern.charAt(position++);
+                    int highCode = high;
+                    if (high == '\\') {
+                        BitSet escaped = escape();
+                        if (escaped.cardinality() != 1) throw error("неверный диапазон");
+                        highCode = escaped.nextSetBit(0);
+                    }
+                    if (highCode >= PatternNfa.OTHER || highCode < low) throw error("неверный диапазон");
+                    set.set(low, highCode + 1);
+                }
+                else {
+                    set.or(item);
+                }
+            }
+            if (!peek(']')) throw error("не закрыта скобка '['");
+            position++;
+            if (negated) set.flip(0, ALPHABET);
+            return set;
+        }
+
+        private BitSet escape() {
+            if (position >= pattern.length()) throw error("выражение оканчивается на '\\'");
+            char c = pattern.charAt(position++);
+            BitSet set = new BitSet(ALPHABET);
+            switch (c) {
+                case 'd', 'D' -> set.set('0', '9' + 1);
+                case 'w', 'W' -> {
+                    set.set('a', 'z' + 1);
+                    set.set('A', 'Z' + 1);
+                    set.set('0', '9' + 1);
+                    set.set('_');
+                }
+                case 's', 'S' -> {
+                    set.set(' ');
+                    set.set('\t', '\r' + 1);
+                }
+                case 't' -> set.set('\t');
+                case 'n' -> set.set('\n');
+                case 'r' -> set.set('\r');
+                case 'f' -> set.set('\f');
+                default -> {
+                    if (Character.isLetterOrDigit(c)) throw error("неподдерживаемая последовательность \\" + c);
+                    return single(c);
+                }
+            }
+            if (Character.isUpperCase(c) && "DWS".indexOf(c) >= 0) set.flip(0, ALPHABET);
+            return set;
+        }
+
+        private BitSet single(char c) {
+            if (c >= PatternNfa.OTHER) throw error("поддерживаются только символы ASCII");
+            BitSet set = new BitSet(ALPHABET);
+            set.set(c);
+            return set;
+        }
+
+        private boolean peek(char c) {
+            return position < pattern.length() && pattern.charAt(position) == c;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Ошибка в выражении \"" + pattern + "\" (позиция " + position + "): " + message);
+        }
+    }
+}
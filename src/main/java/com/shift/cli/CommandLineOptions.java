@@ -6,6 +6,7 @@ import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -42,6 +43,42 @@ public class CommandLineOptions {
     @Option(names = {"-a", "--append"}, description = "Режим добавления в существующие файлы")
     private boolean append = false;
 
+    /**
+     * Флаг инкрементального режима.
+     * Если флаг установлен, в директории результатов ведется манифест контрольной точки с состоянием
+     * каждого входного файла и накопленной статистикой. Повторные запуски обрабатывают только байты,
+     * дописанные в файлы с прошлого запуска, а файлы, которые были заменены или усечены, читаются заново.
+     * Включает режим добавления в существующие файлы.
+     */
+    @Option(names = {"-i", "--incremental"}, description = "Обработка только новых данных с прошлого запуска")
+    private boolean incremental = false;
+
+    /**
+     * Флаг режима слежения за файлами.
+     * Если флаг установлен, после обработки входных файлов утилита не завершается, а следит за ними
+     * и обрабатывает дописываемые строки, пока ее не остановят. Включает потоковый режим.
+     */
+    @Option(names = {"--follow"}, description = "Слежение за входными файлами и обработка дописываемых строк")
+    private boolean follow = false;
+
+    /**
+     * Интервал опроса входных файлов в режиме слежения, в миллисекундах.
+     */
+    @Option(names = {"--poll-interval"}, description = "Интервал опроса входных файлов в миллисекундах для режима --follow")
+    private long pollInterval = 1000;
+
+    /**
+     * Интервал сброса выходных файлов на диск в режиме слежения, в миллисекундах.
+     */
+    @Option(names = {"--flush-interval"}, description = "Интервал сброса выходных файлов в миллисекундах для режима --follow")
+    private long flushInterval = 1000;
+
+    /**
+     * Интервал вывода статистики в режиме слежения, в миллисекундах. Ноль отключает периодический вывод.
+     */
+    @Option(names = {"--stats-interval"}, description = "Интервал вывода статистики в миллисекундах для режима --follow")
+    private long statsInterval = 60000;
+
     /**
      * Флаг, указывающий на вывод краткой статистики.
      * Если флаг установлен, будет выведена только информация о количестве элементов в каждой категории.
@@ -56,21 +93,282 @@ public class CommandLineOptions {
     @Option(names = {"-f", "--full-stats"}, description = "Вывод полной статистики")
     private boolean fullStats = false;
 
+    /**
+     * Флаг вероятностных сводок в полной статистике.
+     * Если флаг установлен, для каждой категории дополнительно оцениваются квантили P50, P90, P99
+     * (для строк - их длин) и количество различных значений. Сводки занимают единицы килобайт
+     * на категорию независимо от объема данных, но добавляют работу на каждую строку, поэтому по умолчанию выключены.
+     */
+    @Option(names = {"--sketches"}, description = "Приближенные квантили и количество различных значений в полной статистике")
+    private boolean sketches = false;
+
+    /**
+     * Путь к отчету о запуске в формате JSON.
+     * Отчет содержит объем и количество строк по каждому входному файлу, скорость обработки,
+     * время этапов, объем записанных данных по категориям, статистику и счетчики сборки мусора.
+     * По умолчанию отчет не записывается.
+     */
+    @Option(names = {"--report"}, paramLabel = "FILE", description = "Записать отчет о запуске в формате JSON")
+    private String report;
+
+    /**
+     * Путь к файлу описания пользовательских категорий.
+     * Файл содержит по одной категории в строке в виде {@code имя = выражение}. Строки, целиком подходящие
+     * под выражение категории, записываются в файл {@code <префикс><имя>.txt}, и для категории ведется своя статистика.
+     * Категории также могут поставляться библиотеками через {@code com.shift.category.CategoryProvider}.
+     */
+    @Option(names = {"--categories"}, paramLabel = "FILE", description = "Файл описания пользовательских категорий")
+    private String categoriesFile;
+
+    /**
+     * Флаг удаления повторяющихся строк.
+     * Если флаг установлен, в выходные файлы попадает только первое вхождение каждой строки,
+     * а статистика считается по различным строкам. Вместо строк запоминаются их 128-битные отпечатки
+     * в таблице вне кучи Java. Файлы обрабатываются последовательно, чтобы первое вхождение определялось порядком входных файлов.
+     */
+    @Option(names = {"-u", "--unique"}, description = "Удаление повторяющихся строк")
+    private boolean unique = false;
+
+    /**
+     * Предел памяти таблицы отпечатков в режиме удаления повторов, в байтах.
+     * Каждая различная строка занимает в таблице около 21 байта. Когда предел достигнут,
+     * отпечатки сбрасываются во временные файлы в директории результатов.
+     */
+    @Option(names = {"--unique-memory"}, description = "Предел памяти таблицы отпечатков в байтах для режима --unique")
+    private long uniqueMemory = 256L * 1024 * 1024;
+
+    /**
+     * Флаг сортировки выходных файлов.
+     * Если флаг установлен, целые и вещественные числа записываются в порядке возрастания значений,
+     * а строки и пользовательские категории - в лексикографическом порядке. Строки сортируются внешней сортировкой
+     * слиянием, поэтому объем данных не ограничен памятью. В режиме добавления существующие строки
+     * сортируются вместе с новыми. Несовместим с режимом слежения.
+     */
+    @Option(names = {"--sort"}, description = "Сортировка выходных файлов")
+    private boolean sort = false;
+
+    /**
+     * Бюджет памяти для накопления строк при сортировке, в байтах.
+     * Когда он исчерпан, накопленные строки сортируются и сбрасываются во временный файл в директории результатов.
+     */
+    @Option(names = {"--sort-memory"}, description = "Бюджет памяти в байтах для режима --sort")
+    private long sortMemory = 64L * 1024 * 1024;
+
+    /**
+     * Флаг режима демона.
+     * Если флаг установлен, утилита не обрабатывает файлы сама, а слушает локальный сокет {@code --socket}
+     * и выполняет задачи клиентов ({@code --client}) в одном процессе, уже прогретом JIT-компилятором.
+     * Задачи выполняются одновременно, каждая со своими настройками.
+     */
+    @Option(names = {"--daemon"}, description = "Режим демона: выполнение задач клиентов через локальный сокет")
+    private boolean daemon = false;
+
+    /**
+     * Флаг режима клиента.
+     * Если флаг установлен, остальные аргументы передаются демону, а его вывод и код завершения возвращаются как есть.
+     * Относительные пути разрешаются относительно текущей директории клиента.
+     */
+    @Option(names = {"--client"}, description = "Передать задачу демону и вывести ее результат")
+    private boolean client = false;
+
+    /**
+     * Путь к сокету демона по умолчанию: во временной директории системы.
+     */
+    public static final String DEFAULT_SOCKET =
+            Path.of(System.getProperty("java.io.tmpdir"), "file-filter-util.sock").toString();
+
+    /**
+     * Путь к сокету Unix демона.
+     */
+    @Option(names = {"--socket"}, paramLabel = "PATH", description = "Путь к сокету демона")
+    private String socket = DEFAULT_SOCKET;
+
+    /**
+     * Наибольшее количество задач, одновременно выполняемых демоном. Остальные задачи ожидают в очереди.
+     */
+    @Option(names = {"--max-jobs"}, description = "Наибольшее количество одновременных задач демона")
+    private int maxJobs = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Флаг потокового режима.
+     * Если флаг установлен, строки записываются в выходные файлы сразу после классификации
+     * и не накапливаются в памяти, поэтому объем используемой памяти не зависит от размера входных файлов.
+     */
+    @Option(names = {"--stream"}, description = "Потоковый режим без накопления данных в памяти")
+    private boolean streaming = false;
+
+    /**
+     * Флаг сжатия выходных файлов.
+     * Если флаг установлен, выходные файлы записываются в формате gzip с расширением {@code .gz},
+     * а блоки данных сжимаются параллельно на всех ядрах процессора.
+     * В режиме добавления к существующему файлу дописывается новый член gzip, что допускается форматом.
+     */
+    @Option(names = {"-z", "--gzip"}, description = "Сжатие выходных файлов в формате gzip")
+    private boolean gzipOutput = false;
+
+    /**
+     * Формат выходных файлов целых и вещественных чисел.
+     * В двоичном формате числа записываются блоками в файлы {@code integers.bin} и {@code floats.bin}
+     * (см. {@link com.shift.output.BinaryColumnWriter}), и читателям не нужно разбирать десятичный текст.
+     * Строки и пользовательские категории всегда записываются в текстовом виде. Несовместим со сжатием gzip.
+     */
+    @Option(names = {"--format"}, description = "Формат файлов чисел: ${COMPLETION-CANDIDATES}")
+    private OutputFormat format = OutputFormat.TEXT;
+
+    /**
+     * Наибольшее количество строк в одной части выходного файла или 0, если файлы не делятся по количеству строк.
+     * Если задано это значение или {@code shardSize}, каждый выходной файл делится на пронумерованные части
+     * ({@code integers-00001.txt}, {@code integers-00002.txt}, ...), которые записываются параллельно в пуле потоков,
+     * а рядом записывается манифест частей (см. {@link com.shift.output.ShardedLineWriter}).
+     */
+    @Option(names = {"--shard-lines"}, description = "Деление выходных файлов на части по количеству строк")
+    private long shardLines = 0;
+
+    /**
+     * Наибольший объем строк одной части выходного файла в байтах UTF-8 до сжатия или 0,
+     * если файлы не делятся по объему. Часть содержит хотя бы одну строку, даже если строка длиннее.
+     */
+    @Option(names = {"--shard-size"}, description = "Деление выходных файлов на части по объему в байтах")
+    private long shardSize = 0;
+
+    /**
+     * Флаг преобразования файлов двоичного формата обратно в текст.
+     * Если флаг установлен, входные файлы считаются файлами {@code --format binary} и записываются
+     * в директорию результатов с префиксом как текстовые файлы с расширением {@code .txt}. Входные файлы не фильтруются.
+     */
+    @Option(names = {"--decode"}, description = "Преобразование файлов двоичного формата обратно в текст")
+    private boolean decode = false;
+
+    /**
+     * Флаг побайтового режима.
+     * Если флаг установлен, строки классифицируются прямо по байтам входного файла и копируются
+     * в выходные файлы без декодирования в строки и обратного кодирования. Включает потоковый режим.
+     * Байты строк копируются как есть, без проверки корректности UTF-8.
+     */
+    @Option(names = {"--bytes"}, description = "Побайтовая обработка без декодирования строк")
+    private boolean byteMode = false;
+
+    /**
+     * Флаг асинхронной записи.
+     * Если флаг установлен, каждый выходной файл записывается в отдельном потоке, а строки передаются ему
+     * пакетами через ограниченную очередь, поэтому запись на диск идет одновременно с разбором входных файлов.
+     * Включает потоковый режим.
+     */
+    @Option(names = {"--async-write"}, description = "Асинхронная запись выходных файлов в отдельных потоках")
+    private boolean asyncWrite = false;
+
+    /**
+     * Количество строк в одном пакете асинхронной записи.
+     */
+    @Option(names = {"--batch-size"}, description = "Количество строк в пакете асинхронной записи")
+    private int batchSize = 4096;
+
+    /**
+     * Наибольшее количество пакетов, ожидающих асинхронной записи в один файл.
+     * Когда очередь заполнена, разбор входных файлов приостанавливается до освобождения места.
+     */
+    @Option(names = {"--queue-depth"}, description = "Глубина очереди пакетов асинхронной записи")
+    private int queueDepth = 16;
+
+    /**
+     * Количество потоков для параллельной обработки входных файлов.
+     * По умолчанию файлы обрабатываются последовательно в одном потоке.
+     * Порядок строк в выходных файлах не зависит от количества потоков.
+     */
+    @Option(names = {"-t", "--threads"}, description = "Количество потоков для обработки файлов")
+    private int threads = 1;
+
+    /**
+     * Количество входных файлов, которые одновременно открываются и читаются в виртуальных потоках.
+     * Подходит для большого количества небольших файлов, когда время обработки определяется задержкой открытия файлов.
+     * Каждый читаемый файл до объединения результатов хранится в памяти. Значение больше единицы заменяет
+     * для разных файлов потоки опции {@code --threads}. Порядок строк в выходных файлах от него не зависит.
+     */
+    @Option(names = {"--concurrency"}, description = "Количество файлов, одновременно читаемых в виртуальных потоках")
+    private int concurrency = 1;
+
+    /**
+     * Флаг рекурсивного обхода директорий, указанных во входных файлах.
+     */
+    @Option(names = {"-r", "--recursive"}, description = "Обработка файлов в поддиректориях указанных директорий")
+    private boolean recursive = false;
+
+    /**
+     * Флаг режима отображения файлов в память.
+     * Если флаг установлен, каждый файл отображается в память и делится на части по границам строк,
+     * которые разбираются параллельно в количестве потоков, заданном опцией {@code --threads}.
+     * Подходит для очень больших файлов, когда параллельная обработка разных файлов не помогает.
+     */
+    @Option(names = {"--mmap"}, description = "Параллельный разбор каждого файла по частям через отображение в память")
+    private boolean memoryMapped = false;
+
+    /**
+     * Размер части файла в байтах для режима отображения в память.
+     * Фактическая граница части сдвигается до ближайшего перевода строки.
+     */
+    @Option(names = {"--chunk-size"}, description = "Размер части файла в байтах для режима --mmap")
+    private int chunkSize = 1024 * 1024;
+
     /**
      * Список входных файлов, которые будут обработаны утилитой.
-     * Файлы указываются в качестве позиционных аргументов.
+     * Файлы указываются в качестве позиционных аргументов. Вместо файла можно указать директорию
+     * или шаблон glob в кавычках, например {@code "logs/*.txt"}: они раскрываются в файлы в порядке путей.
      */
-    @Parameters(paramLabel = "FILES", description = "Входные файлы")
+    @Parameters(paramLabel = "FILES", description = "Входные файлы, директории или шаблоны glob")
     private List<String> inputFiles;
 
+    /**
+     * Выполняется ли запуск как задача демона, возможно одновременно с другими задачами в том же процессе.
+     * Задается приложением, а не опцией командной строки.
+     */
+    private boolean daemonJob = false;
+
+    /**
+     * Разрешает относительные пути к файлам относительно заданной директории.
+     * Используется демоном, чтобы пути в задаче клиента означали то же, что и в директории клиента.
+     * Шаблоны glob дополняются директорией так же, как пути.
+     *
+     * @param directory Рабочая директория клиента.
+     */
+    public void resolvePaths(Path directory) {
+        outputPath = directory.resolve(outputPath).toString();
+        if (report != null) report = directory.resolve(report).toString();
+        if (categoriesFile != null) categoriesFile = directory.resolve(categoriesFile).toString();
+        if (inputFiles != null) inputFiles = inputFiles.stream().map(file -> directory.resolve(file).toString()).toList();
+    }
+
     /**
      * Возвращает режим записи данных в файлы.
-     * Если флаг {@code append} установлен, возвращается режим {@link OutputMode#APPEND}, иначе {@link OutputMode#OVERWRITE}.
+     * Если флаг {@code append} или {@code incremental} установлен, возвращается режим {@link OutputMode#APPEND},
+     * иначе {@link OutputMode#OVERWRITE}.
      *
      * @return Режим записи данных в файлы.
      */
     public OutputMode getOutputMode() {
-        return append ? OutputMode.APPEND : OutputMode.OVERWRITE;
+        return append || incremental ? OutputMode.APPEND : OutputMode.OVERWRITE;
+    }
+
+    /**
+     * Проверяет, делятся ли выходные файлы на части.
+     *
+     * @return {@code true}, если задано {@code shardLines} или {@code shardSize}.
+     */
+    public boolean isSharded() {
+        return shardLines > 0 || shardSize > 0;
+    }
+
+    /**
+     * Перечисление форматов выходных файлов чисел.
+     */
+    public enum OutputFormat {
+        /**
+         * Текст, по одному числу в строке.
+         */
+        TEXT,
+        /**
+         * Двоичный поколоночный формат.
+         */
+        BINARY
     }
 
     /**
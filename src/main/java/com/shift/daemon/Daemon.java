@@ -0,0 +1,320 @@
+package com.shift.daemon;
+
+import com.shift.App;
+import com.shift.cli.CommandLineOptions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Демон утилиты ({@code --daemon}): слушает сокет Unix и выполняет задачи клиентов в одном процессе,
+ * в котором классы уже загружены, а код обработки скомпилирован JIT-компилятором.
+ * Каждая задача выполняется в своем виртуальном потоке через {@link App#run}, одновременно не более
+ * {@code --max-jobs} задач, остальные ожидают в очереди.
+ * <p>
+ * Протокол соединения (числа в порядке байтов big-endian, строки в формате {@link DataOutputStream#writeUTF}):
+ * <pre>
+ * запрос:  utf директория клиента, int количество аргументов, utf аргументы
+ * ответ:   кадры byte вид, int длина, байты вывода ({@link #STDOUT} или {@link #STDERR}),
+ *          последний кадр - byte {@link #EXIT}, int код завершения задачи
+ * </pre>
+ * Сокет доступен только владельцу процесса. Демон останавливается сигналом завершения (например, Ctrl+C)
+ * после выполнения начатых задач; соединения, по которым запрос еще не получен, при остановке закрываются.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class Daemon {
+    /**
+     * Виды кадров ответа.
+     */
+    static final int EXIT = 0;
+    static final int STDOUT = 1;
+    static final int STDERR = 2;
+
+    /**
+     * Наибольшее количество аргументов в запросе.
+     */
+    static final int MAX_ARGUMENTS = 4096;
+
+    private final Path socket;
+    private final int maxJobs;
+
+    /**
+     * Потоки для сообщений самого демона (не задач).
+     */
+    private final PrintStream out;
+    private final PrintStream err;
+
+    /**
+     * Канал сервера, пока демон работает.
+     */
+    private volatile ServerSocketChannel server;
+
+    /**
+     * Соединения, по которым еще читается запрос, и признак остановки демона.
+     * Такие соединения закрываются при остановке, иначе молчащий клиент задержал бы ее навсегда.
+     */
+    private final Set<SocketChannel> reading = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+
+    /**
+     * Сигнал завершения начатых задач после остановки.
+     */
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * Конструктор класса.
+     *
+     * @param options Настройки командной строки: путь к сокету и наибольшее количество задач.
+     * @param out     Поток для сообщений о работе демона.
+     * @param err     Поток для сообщений об ошибках соединений.
+     */
+    public Daemon(CommandLineOptions options, PrintStream out, PrintStream err) {
+        if (options.getMaxJobs() < 1) {
+            throw new IllegalArgumentException("--max-jobs должно быть положительным");
+        }
+        this.socket = Path.of(options.getSocket()).toAbsolutePath();
+        this.maxJobs = options.getMaxJobs();
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Слушает сокет и выполняет задачи клиентов до остановки демона.
+     *
+     * @throws IOException Если сокет занят другим демоном или его не удалось открыть.
+     */
+    public void serve() throws IOException {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socket);
+        removeStaleSocket(address);
+        Semaphore permits = new Semaphore(maxJobs);
+        Thread hook = new Thread(this::stopAndWait);
+        try (ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+             ExecutorService jobs = Executors.newVirtualThreadPerTaskExecutor()) {
+            channel.bind(address);
+            server = channel;
+            restrictPermissions();
+            Runtime.getRuntime().addShutdownHook(hook);
+            out.println("Демон ожидает задачи на сокете " + socket);
+            while (true) {
+                SocketChannel connection;
+                try {
+                    connection = channel.accept();
+                }
+                catch (ClosedChannelException e) {
+                    // Демон остановлен; закрытие пула дожидается начатых задач
+                    break;
+                }
+                jobs.submit(() -> handle(connection, permits));
+            }
+        }
+        finally {
+            server = null;
+            Files.deleteIfExists(socket);
+            stopped.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            }
+            catch (IllegalStateException e) {
+                // Приложение уже останавливается
+            }
+        }
+    }
+
+    /**
+     * Прекращает прием задач и закрывает соединения, по которым запрос еще не получен.
+     * Начатые задачи выполняются до конца, после чего {@link #serve()} завершается.
+     */
+    public void stop() {
+        stopping = true;
+        ServerSocketChannel channel = server;
+        if (channel == null) return;
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            err.println("Ошибка при закрытии сокета демона: " + e.getMessage());
+        }
+        for (SocketChannel connection : reading) close(connection);
+    }
+
+    private void close(SocketChannel connection) {
+        try {
+            connection.close();
+        }
+        catch (IOException e) {
+            err.println("Ошибка при закрытии соединения с клиентом: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Останавливает демон и дожидается начатых задач; выполняется при завершении приложения.
+     */
+    private void stopAndWait() {
+        stop();
+        try {
+            stopped.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Удаляет файл сокета, оставшийся от аварийно завершенного демона.
+     *
+     * @param address Адрес сокета.
+     * @throws IOException Если на сокете уже работает другой демон.
+     */
+    private void removeStaleSocket(UnixDomainSocketAddress address) throws IOException {
+        if (!Files.exists(socket)) return;
+        boolean alive;
+        try {
+            SocketChannel probe = SocketChannel.open(address);
+            probe.close();
+            alive = true;
+        }
+        catch (IOException e) {
+            alive = false;
+        }
+        if (alive) {
+            throw new IOException("Демон уже запущен на сокете " + socket);
+        }
+        Files.deleteIfExists(socket);
+    }
+
+    /**
+     * Оставляет доступ к сокету только владельцу: задачи выполняются с правами демона.
+     */
+    private void restrictPermissions() throws IOException {
+        try {
+            Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        }
+        catch (UnsupportedOperationException e) {
+            // Файловая система не поддерживает права POSIX
+        }
+    }
+
+    /**
+     * Читает запрос клиента, выполняет задачу и передает клиенту ее вывод и код завершения.
+     *
+     * @param connection Соединение с клиентом.
+     * @param permits    Разрешения на одновременное выполнение задач.
+     */
+    private void handle(SocketChannel connection, Semaphore permits) {
+        try (connection) {
+            // Соединение регистрируется до проверки признака остановки, поэтому остановка его не пропустит
+            reading.add(connection);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+            Path directory;
+            String[] args;
+            try {
+                if (stopping) return;
+                directory = Path.of(in.readUTF());
+                int count = in.readInt();
+                if (count < 0 || count > MAX_ARGUMENTS) {
+                    throw new IOException("некорректное количество аргументов: " + count);
+                }
+                args = new String[count];
+                for (int i = 0; i < count; i++) args[i] = in.readUTF();
+            }
+            finally {
+                reading.remove(connection);
+            }
+
+            Frames frames = new Frames(Channels.newOutputStream(connection));
+            PrintStream out = frames.printStream(STDOUT);
+            PrintStream err = frames.printStream(STDERR);
+            int status;
+            permits.acquire();
+            try {
+                status = App.run(args, directory, out, err);
+            }
+            catch (RuntimeException e) {
+                // Ошибка одной задачи не должна останавливать демон
+                err.println("Ошибка при выполнении задачи: " + e);
+                status = 1;
+            }
+            finally {
+                permits.release();
+            }
+            out.flush();
+            err.flush();
+            frames.exit(status);
+        }
+        catch (AsynchronousCloseException e) {
+            // Демон остановлен до получения запроса
+        }
+        catch (IOException e) {
+            err.println("Ошибка соединения с клиентом: " + e.getMessage());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Запись кадров ответа. Потоки вывода и ошибок задачи пишут в одно соединение, поэтому запись кадров синхронизирована.
+     */
+    private static final class Frames {
+        private final DataOutputStream out;
+
+        private Frames(OutputStream out) {
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+        }
+
+        private synchronized void write(int kind, byte[] bytes, int offset, int length) throws IOException {
+            out.writeByte(kind);
+            out.writeInt(length);
+            out.write(bytes, offset, length);
+            out.flush();
+        }
+
+        private synchronized void exit(int status) throws IOException {
+            out.writeByte(EXIT);
+            out.writeInt(status);
+            out.flush();
+        }
+
+        /**
+         * Возвращает поток вывода задачи, который передает каждую порцию текста отдельным кадром.
+         */
+        private PrintStream printStream(int kind) {
+            OutputStream stream = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    Frames.this.write(kind, new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    if (length > 0) Frames.this.write(kind, bytes, offset, length);
+                }
+            };
+            return new PrintStream(new BufferedOutputStream(stream), true, StandardCharsets.UTF_8);
+        }
+    }
+}
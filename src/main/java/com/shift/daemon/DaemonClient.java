@@ -0,0 +1,89 @@
+package com.shift.daemon;
+
+import com.shift.cli.CommandLineOptions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Клиент демона утилиты ({@code --client}): передает аргументы командной строки демону {@link Daemon}
+ * и выводит вывод задачи по мере его поступления.
+ * Аргументы не разбираются на стороне клиента, кроме {@code --client} и {@code --socket}, поэтому клиент
+ * не тратит время на разбор командной строки и загрузку классов обработки.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public final class DaemonClient {
+
+    private DaemonClient() {
+    }
+
+    /**
+     * Проверяет, запрошен ли режим клиента.
+     *
+     * @param args Аргументы командной строки.
+     * @return {@code true}, если среди аргументов есть {@code --client}.
+     */
+    public static boolean isRequested(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--client")) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Передает задачу демону и дожидается ее завершения.
+     *
+     * @param args Аргументы командной строки, включая {@code --client} и, возможно, {@code --socket}.
+     * @param out  Поток для вывода задачи.
+     * @param err  Поток для ошибок задачи.
+     * @return Код завершения задачи или 1, если не удалось связаться с демоном.
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        String socket = CommandLineOptions.DEFAULT_SOCKET;
+        List<String> forwarded = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--client")) continue;
+            if (arg.equals("--socket") && i + 1 < args.length) socket = args[++i];
+            else if (arg.startsWith("--socket=")) socket = arg.substring("--socket=".length());
+            else forwarded.add(arg);
+        }
+
+        Path path = Path.of(socket).toAbsolutePath();
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(path))) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            request.writeUTF(Path.of("").toAbsolutePath().toString());
+            request.writeInt(forwarded.size());
+            for (String arg : forwarded) request.writeUTF(arg);
+            request.flush();
+
+            DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            while (true) {
+                int kind = response.readByte();
+                int value = response.readInt();
+                if (kind == Daemon.EXIT) return value;
+                byte[] bytes = new byte[value];
+                response.readFully(bytes);
+                PrintStream target = kind == Daemon.STDERR ? err : out;
+                target.write(bytes);
+                target.flush();
+            }
+        }
+        catch (IOException e) {
+            err.println("Не удалось выполнить задачу на демоне " + path + ": " + e.getMessage());
+            return 1;
+        }
+    }
+}
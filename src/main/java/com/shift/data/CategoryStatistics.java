@@ -0,0 +1,61 @@
+package com.shift.data;
+
+import lombok.Getter;
+
+/**
+ * Статистика пользовательской категории строк: количество строк, минимальная и максимальная длина.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+@Getter
+public class CategoryStatistics {
+    /**
+     * Количество строк категории.
+     */
+    private long count = 0;
+
+    /**
+     * Минимальная и максимальная длина строк в символах {@code char}.
+     */
+    private int minLength = Integer.MAX_VALUE;
+    private int maxLength = Integer.MIN_VALUE;
+
+    /**
+     * Обновляет статистику для строки категории.
+     *
+     * @param length Длина строки.
+     */
+    public void update(int length) {
+        count++;
+        if (length < minLength) minLength = length;
+        if (length > maxLength) maxLength = length;
+    }
+
+    /**
+     * Объединяет с этой статистикой другую статистику той же категории.
+     *
+     * @param other Статистика для объединения.
+     */
+    public void merge(CategoryStatistics other) {
+        count += other.count;
+        minLength = Math.min(minLength, other.minLength);
+        maxLength = Math.max(maxLength, other.maxLength);
+    }
+
+    /**
+     * Восстанавливает статистику из сохраненных значений.
+     *
+     * @param count     Количество строк.
+     * @param minLength Минимальная длина.
+     * @param maxLength Максимальная длина.
+     * @return Статистика.
+     */
+    static CategoryStatistics of(long count, int minLength, int maxLength) {
+        CategoryStatistics statistics = new CategoryStatistics();
+        statistics.count = count;
+        statistics.minLength = minLength;
+        statistics.maxLength = maxLength;
+        return statistics;
+    }
+}
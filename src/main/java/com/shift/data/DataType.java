@@ -0,0 +1,35 @@
+package com.shift.data;
+
+import lombok.Getter;
+
+/**
+ * Перечисление категорий, на которые разделяется содержимое входных файлов.
+ * Каждой категории соответствует собственный выходной файл.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+@Getter
+public enum DataType {
+    /**
+     * Целые числа.
+     */
+    INTEGER("integers.txt"),
+    /**
+     * Вещественные числа.
+     */
+    FLOAT("floats.txt"),
+    /**
+     * Строки.
+     */
+    STRING("strings.txt");
+
+    /**
+     * Имя выходного файла категории (без префикса).
+     */
+    private final String fileName;
+
+    DataType(String fileName) {
+        this.fileName = fileName;
+    }
+}
@@ -1,60 +1,172 @@
 package com.shift.data;
 
+import com.shift.data.sketch.CategorySketch;
+import com.shift.data.sketch.Hashing;
 import lombok.Getter;
 
+import java.io.PrintStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
 
 /**
  * Класс для сбора и хранения статистики по данным, разделенным на категории: целые числа, вещественные числа и строки.
  * Предоставляет методы для обновления статистики и вывода краткой и полной информации о собранных данных.
+ * Целые числа накапливаются в примитивах {@code long}; {@link BigInteger} используется только для значений
+ * и сумм, не помещающихся в {@code long}. Средние значения вычисляются при обращении к ним, а не при каждом обновлении.
+ * По запросу статистика дополнительно ведет вероятностные сводки ({@link CategorySketch}) с квантилями
+ * и количеством различных значений каждой категории; по умолчанию они выключены и ничего не стоят.
+ * Для пользовательских категорий ведется отдельная статистика строк ({@link CategoryStatistics}).
  *
  * @author Мельников Никита
  * @version 1.0
  */
-@Getter
 public class Statistics {
+    /**
+     * Наибольшая длина строки целого числа, которое всегда помещается в {@code long}.
+     */
+    private static final int MAX_LONG_LENGTH = 18;
 
     /**
      * Количества целых чисел, вещественных чисел и строк, обработанных утилитой.
      */
-    private int integerCount = 0;
-    private int floatCount = 0;
-    private int stringCount = 0;
+    @Getter
+    private long integerCount = 0;
+    @Getter
+    private long floatCount = 0;
+    @Getter
+    private long stringCount = 0;
+
+    /**
+     * Статистические данные для целых чисел, помещающихся в {@code long}.
+     * Сумма хранится как {@code sumIntegerLong + sumIntegerOverflow}: при переполнении
+     * накопленная часть переносится в {@link BigInteger}.
+     */
+    private long integerLongCount = 0;
+    private long minIntegerLong = Long.MAX_VALUE;
+    private long maxIntegerLong = Long.MIN_VALUE;
+    private long sumIntegerLong = 0;
+    private BigInteger sumIntegerOverflow = null;
 
     /**
-     * Статистические данные для целых чисел.
+     * Минимум и максимум среди целых чисел, не помещающихся в {@code long}.
      */
-    private BigInteger minInteger = null;
-    private BigInteger maxInteger = null;
-    private BigInteger sumInteger = BigInteger.ZERO;
-    private BigDecimal avgInteger = BigDecimal.ZERO;
+    private BigInteger minIntegerWide = null;
+    private BigInteger maxIntegerWide = null;
 
     /**
      * Статистические данные для вещественных чисел.
      */
+    @Getter
     private BigDecimal minFloat = null;
+    @Getter
     private BigDecimal maxFloat = null;
+    @Getter
     private BigDecimal sumFloat = BigDecimal.ZERO;
-    private BigDecimal avgFloat = BigDecimal.ZERO;
 
     /**
      * Статистические данные для строк.
      */
+    @Getter
     private int minStringLength = Integer.MAX_VALUE;
+    @Getter
     private int maxStringLength = Integer.MIN_VALUE;
 
+    /**
+     * Вероятностные сводки категорий. Равны {@code null}, если сводки не включены.
+     */
+    @Getter
+    private CategorySketch integerSketch;
+    @Getter
+    private CategorySketch floatSketch;
+    @Getter
+    private CategorySketch stringSketch;
+
+    /**
+     * Статистика пользовательских категорий по имени в порядке их объявления.
+     */
+    private final Map<String, CategoryStatistics> categories = new LinkedHashMap<>();
+
+    /**
+     * Конструктор класса без вероятностных сводок.
+     */
+    public Statistics() {
+        this(false);
+    }
+
+    /**
+     * Конструктор класса.
+     *
+     * @param sketches Вести ли вероятностные сводки с квантилями и количеством различных значений.
+     */
+    public Statistics(boolean sketches) {
+        if (sketches) {
+            integerSketch = new CategorySketch();
+            floatSketch = new CategorySketch();
+            stringSketch = new CategorySketch();
+        }
+    }
+
+    /**
+     * Проверяет, ведутся ли вероятностные сводки.
+     *
+     * @return {@code true}, если сводки включены.
+     */
+    public boolean isSketchesEnabled() {
+        return integerSketch != null;
+    }
+
+    /**
+     * Обновляет статистику встроенной категории по строке, уже отнесенной к этой категории.
+     *
+     * @param type Категория строки.
+     * @param line Строка входных данных.
+     */
+    public void update(DataType type, String line) {
+        switch (type) {
+            case INTEGER -> {
+                // Числа до 18 цифр гарантированно помещаются в long и разбираются без BigInteger
+                if (line.length() <= MAX_LONG_LENGTH) updateIntegerStatistics(Long.parseLong(line));
+                else updateIntegerStatistics(new BigInteger(line));
+            }
+            case FLOAT -> updateFloatStatistics(new BigDecimal(line));
+            default -> updateStringStatistics(line);
+        }
+    }
+
+    /**
+     * Обновляет статистику для целого числа, помещающегося в {@code long}.
+     *
+     * @param value Новое значение целого числа для добавления в статистику.
+     */
+    public void updateIntegerStatistics(long value) {
+        integerCount++;
+        integerLongCount++;
+        if (value < minIntegerLong) minIntegerLong = value;
+        if (value > maxIntegerLong) maxIntegerLong = value;
+        addToIntegerSum(value);
+        if (integerSketch != null) integerSketch.update(value, Hashing.hash64(value));
+    }
+
     /**
      * Обновляет статистику для целых чисел.
      *
      * @param value Новое значение целого числа для добавления в статистику.
      */
     public void updateIntegerStatistics(BigInteger value) {
+        if (value.bitLength() < Long.SIZE) {
+            updateIntegerStatistics(value.longValue());
+            return;
+        }
         integerCount++;
-        if (minInteger == null || value.compareTo(minInteger) < 0) minInteger = value;
-        if (maxInteger == null || value.compareTo(maxInteger) > 0) maxInteger = value;
-        sumInteger = sumInteger.add(value);
-        avgInteger = new BigDecimal(sumInteger).divide(new BigDecimal(integerCount), BigDecimal.ROUND_HALF_UP);
+        if (minIntegerWide == null || value.compareTo(minIntegerWide) < 0) minIntegerWide = value;
+        if (maxIntegerWide == null || value.compareTo(maxIntegerWide) > 0) maxIntegerWide = value;
+        sumIntegerOverflow = sumIntegerOverflow == null ? value : sumIntegerOverflow.add(value);
+        if (integerSketch != null) integerSketch.update(value.doubleValue(), Hashing.hash64(value.toByteArray()));
     }
 
     /**
@@ -67,7 +179,12 @@ public class Statistics {
         if (minFloat == null || value.compareTo(minFloat) < 0) minFloat = value;
         if (maxFloat == null || value.compareTo(maxFloat) > 0) maxFloat = value;
         sumFloat = sumFloat.add(value);
-        avgFloat = sumFloat.divide(new BigDecimal(floatCount), BigDecimal.ROUND_HALF_UP);
+        if (floatSketch != null) {
+            // Одинаковые числа в разной записи (1.5 и 1.50) считаются одним значением
+            BigDecimal canonical = value.stripTrailingZeros();
+            floatSketch.update(value.doubleValue(),
+                    Hashing.hash64(canonical.unscaledValue().toByteArray()) ^ Hashing.hash64(canonical.scale()));
+        }
     }
 
     /**
@@ -76,39 +193,344 @@ public class Statistics {
      * @param value Новая строка для добавления в статистику.
      */
     public void updateStringStatistics(String value) {
+        updateStringStatistics(value.length());
+        if (stringSketch != null) stringSketch.update(value.length(), Hashing.hash64(value));
+    }
+
+    /**
+     * Обновляет статистику для строки известной длины и хеша.
+     * Используется при обработке строк без декодирования, когда хеш вычислен по байтам строки.
+     *
+     * @param length Длина строки в символах {@code char}.
+     * @param hash   Хеш байтов строки в UTF-8, вычисленный {@link Hashing}.
+     */
+    public void updateStringStatistics(int length, long hash) {
+        updateStringStatistics(length);
+        if (stringSketch != null) stringSketch.update(length, hash);
+    }
+
+    /**
+     * Обновляет статистику для строки известной длины.
+     *
+     * @param length Длина строки в символах {@code char}, как ее возвращает {@link String#length()}.
+     */
+    public void updateStringStatistics(int length) {
         stringCount++;
-        int length = value.length();
         if (length < minStringLength) minStringLength = length;
         if (length > maxStringLength) maxStringLength = length;
     }
 
+    /**
+     * Регистрирует пользовательскую категорию, чтобы она выводилась в статистике даже без строк.
+     *
+     * @param name Имя категории.
+     */
+    public void addCategory(String name) {
+        categories.computeIfAbsent(name, key -> new CategoryStatistics());
+    }
+
+    /**
+     * Обновляет статистику пользовательской категории.
+     *
+     * @param name   Имя категории.
+     * @param length Длина строки в символах {@code char}.
+     */
+    public void updateCategoryStatistics(String name, int length) {
+        categories.computeIfAbsent(name, key -> new CategoryStatistics()).update(length);
+    }
+
+    /**
+     * Возвращает статистику пользовательских категорий.
+     *
+     * @return Неизменяемое отображение имени категории на ее статистику.
+     */
+    public Map<String, CategoryStatistics> getCategories() {
+        return Collections.unmodifiableMap(categories);
+    }
+
+    /**
+     * Прибавляет значение к сумме целых чисел, перенося накопленную часть в {@link BigInteger} при переполнении.
+     *
+     * @param value Прибавляемое значение.
+     */
+    private void addToIntegerSum(long value) {
+        long result = sumIntegerLong + value;
+        // Переполнение возможно, только если знаки слагаемых совпадают, а знак результата отличается
+        if (((sumIntegerLong ^ result) & (value ^ result)) < 0) {
+            BigInteger carried = BigInteger.valueOf(sumIntegerLong);
+            sumIntegerOverflow = sumIntegerOverflow == null ? carried : sumIntegerOverflow.add(carried);
+            sumIntegerLong = value;
+        }
+        else {
+            sumIntegerLong = result;
+        }
+    }
+
+    /**
+     * Возвращает минимальное целое число.
+     *
+     * @return Минимальное целое число или {@code null}, если целых чисел не было.
+     */
+    public BigInteger getMinInteger() {
+        BigInteger min = integerLongCount > 0 ? BigInteger.valueOf(minIntegerLong) : null;
+        if (minIntegerWide != null && (min == null || minIntegerWide.compareTo(min) < 0)) min = minIntegerWide;
+        return min;
+    }
+
+    /**
+     * Возвращает максимальное целое число.
+     *
+     * @return Максимальное целое число или {@code null}, если целых чисел не было.
+     */
+    public BigInteger getMaxInteger() {
+        BigInteger max = integerLongCount > 0 ? BigInteger.valueOf(maxIntegerLong) : null;
+        if (maxIntegerWide != null && (max == null || maxIntegerWide.compareTo(max) > 0)) max = maxIntegerWide;
+        return max;
+    }
+
+    /**
+     * Возвращает сумму целых чисел.
+     *
+     * @return Точная сумма целых чисел.
+     */
+    public BigInteger getSumInteger() {
+        BigInteger sum = BigInteger.valueOf(sumIntegerLong);
+        return sumIntegerOverflow == null ? sum : sumIntegerOverflow.add(sum);
+    }
+
+    /**
+     * Возвращает среднее значение целых чисел, округленное до целого по правилу HALF_UP.
+     *
+     * @return Среднее значение или ноль, если целых чисел не было.
+     */
+    public BigDecimal getAvgInteger() {
+        if (integerCount == 0) return BigDecimal.ZERO;
+        return new BigDecimal(getSumInteger()).divide(BigDecimal.valueOf(integerCount), RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Возвращает среднее значение вещественных чисел с масштабом суммы, округленное по правилу HALF_UP.
+     *
+     * @return Среднее значение или ноль, если вещественных чисел не было.
+     */
+    public BigDecimal getAvgFloat() {
+        if (floatCount == 0) return BigDecimal.ZERO;
+        return sumFloat.divide(BigDecimal.valueOf(floatCount), RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Объединяет с этой статистикой статистику, собранную отдельно (например, другим потоком).
+     * Результат совпадает с тем, как если бы все значения другой статистики были добавлены в эту по одному.
+     *
+     * @param other Статистика для объединения.
+     * @return Эта статистика после объединения.
+     */
+    public Statistics merge(Statistics other) {
+        if (other.integerCount > 0) {
+            integerCount += other.integerCount;
+            if (other.integerLongCount > 0) {
+                integerLongCount += other.integerLongCount;
+                minIntegerLong = Math.min(minIntegerLong, other.minIntegerLong);
+                maxIntegerLong = Math.max(maxIntegerLong, other.maxIntegerLong);
+            }
+            if (other.minIntegerWide != null && (minIntegerWide == null || other.minIntegerWide.compareTo(minIntegerWide) < 0)) {
+                minIntegerWide = other.minIntegerWide;
+            }
+            if (other.maxIntegerWide != null && (maxIntegerWide == null || other.maxIntegerWide.compareTo(maxIntegerWide) > 0)) {
+                maxIntegerWide = other.maxIntegerWide;
+            }
+            addToIntegerSum(other.sumIntegerLong);
+            if (other.sumIntegerOverflow != null) {
+                sumIntegerOverflow = sumIntegerOverflow == null ? other.sumIntegerOverflow : sumIntegerOverflow.add(other.sumIntegerOverflow);
+            }
+        }
+        if (other.floatCount > 0) {
+            floatCount += other.floatCount;
+            if (minFloat == null || other.minFloat.compareTo(minFloat) < 0) minFloat = other.minFloat;
+            if (maxFloat == null || other.maxFloat.compareTo(maxFloat) > 0) maxFloat = other.maxFloat;
+            sumFloat = sumFloat.add(other.sumFloat);
+        }
+        if (other.stringCount > 0) {
+            stringCount += other.stringCount;
+            minStringLength = Math.min(minStringLength, other.minStringLength);
+            maxStringLength = Math.max(maxStringLength, other.maxStringLength);
+        }
+        other.categories.forEach((name, category) ->
+                categories.computeIfAbsent(name, key -> new CategoryStatistics()).merge(category));
+        // Сводки объединяются, только если они ведутся в обеих статистиках
+        if (integerSketch != null && other.integerSketch != null) {
+            integerSketch.merge(other.integerSketch);
+            floatSketch.merge(other.floatSketch);
+            stringSketch.merge(other.stringSketch);
+        }
+        return this;
+    }
+
+    /**
+     * Сохраняет состояние статистики в набор свойств, чтобы продолжить накопление при следующем запуске.
+     *
+     * @param properties Набор свойств.
+     * @param prefix     Префикс ключей.
+     */
+    public void store(Properties properties, String prefix) {
+        properties.setProperty(prefix + "integerCount", Long.toString(integerCount));
+        properties.setProperty(prefix + "integerLongCount", Long.toString(integerLongCount));
+        properties.setProperty(prefix + "minIntegerLong", Long.toString(minIntegerLong));
+        properties.setProperty(prefix + "maxIntegerLong", Long.toString(maxIntegerLong));
+        properties.setProperty(prefix + "sumIntegerLong", Long.toString(sumIntegerLong));
+        if (sumIntegerOverflow != null) properties.setProperty(prefix + "sumIntegerOverflow", sumIntegerOverflow.toString());
+        if (minIntegerWide != null) properties.setProperty(prefix + "minIntegerWide", minIntegerWide.toString());
+        if (maxIntegerWide != null) properties.setProperty(prefix + "maxIntegerWide", maxIntegerWide.toString());
+        properties.setProperty(prefix + "floatCount", Long.toString(floatCount));
+        if (minFloat != null) properties.setProperty(prefix + "minFloat", minFloat.toString());
+        if (maxFloat != null) properties.setProperty(prefix + "maxFloat", maxFloat.toString());
+        properties.setProperty(prefix + "sumFloat", sumFloat.toString());
+        properties.setProperty(prefix + "stringCount", Long.toString(stringCount));
+        properties.setProperty(prefix + "minStringLength", Integer.toString(minStringLength));
+        properties.setProperty(prefix + "maxStringLength", Integer.toString(maxStringLength));
+        properties.setProperty(prefix + "categories", Integer.toString(categories.size()));
+        int i = 0;
+        for (Map.Entry<String, CategoryStatistics> category : categories.entrySet()) {
+            String key = prefix + "category." + i++ + ".";
+            properties.setProperty(key + "name", category.getKey());
+            properties.setProperty(key + "count", Long.toString(category.getValue().getCount()));
+            properties.setProperty(key + "minLength", Integer.toString(category.getValue().getMinLength()));
+            properties.setProperty(key + "maxLength", Integer.toString(category.getValue().getMaxLength()));
+        }
+        if (integerSketch != null) {
+            properties.setProperty(prefix + "integerSketch", integerSketch.encode());
+            properties.setProperty(prefix + "floatSketch", floatSketch.encode());
+            properties.setProperty(prefix + "stringSketch", stringSketch.encode());
+        }
+    }
+
+    /**
+     * Восстанавливает статистику из набора свойств, сохраненного методом {@link #store(Properties, String)}.
+     * Если свойств с указанным префиксом нет, возвращается пустая статистика.
+     * Вероятностные сводки восстанавливаются, только если они были сохранены, поэтому флаг сводок результата
+     * ({@link #isSketchesEnabled()}) соответствует сохранившему запуску; сравнить его с текущим запуском
+     * должен вызывающий код.
+     *
+     * @param properties Набор свойств.
+     * @param prefix     Префикс ключей.
+     * @return Восстановленная статистика.
+     * @throws IllegalArgumentException Если значения свойств повреждены.
+     */
+    public static Statistics load(Properties properties, String prefix) {
+        Statistics statistics = new Statistics();
+        if (properties.getProperty(prefix + "integerCount") == null) return statistics;
+
+        statistics.integerCount = Long.parseLong(properties.getProperty(prefix + "integerCount"));
+        statistics.integerLongCount = Long.parseLong(properties.getProperty(prefix + "integerLongCount"));
+        statistics.minIntegerLong = Long.parseLong(properties.getProperty(prefix + "minIntegerLong"));
+        statistics.maxIntegerLong = Long.parseLong(properties.getProperty(prefix + "maxIntegerLong"));
+        statistics.sumIntegerLong = Long.parseLong(properties.getProperty(prefix + "sumIntegerLong"));
+        statistics.sumIntegerOverflow = bigInteger(properties.getProperty(prefix + "sumIntegerOverflow"));
+        statistics.minIntegerWide = bigInteger(properties.getProperty(prefix + "minIntegerWide"));
+        statistics.maxIntegerWide = bigInteger(properties.getProperty(prefix + "maxIntegerWide"));
+        statistics.floatCount = Long.parseLong(properties.getProperty(prefix + "floatCount"));
+        statistics.minFloat = bigDecimal(properties.getProperty(prefix + "minFloat"));
+        statistics.maxFloat = bigDecimal(properties.getProperty(prefix + "maxFloat"));
+        statistics.sumFloat = new BigDecimal(properties.getProperty(prefix + "sumFloat"));
+        statistics.stringCount = Long.parseLong(properties.getProperty(prefix + "stringCount"));
+        statistics.minStringLength = Integer.parseInt(properties.getProperty(prefix + "minStringLength"));
+        statistics.maxStringLength = Integer.parseInt(properties.getProperty(prefix + "maxStringLength"));
+        int categoryCount = Integer.parseInt(properties.getProperty(prefix + "categories", "0"));
+        for (int i = 0; i < categoryCount; i++) {
+            String key = prefix + "category." + i + ".";
+            statistics.categories.put(properties.getProperty(key + "name"), CategoryStatistics.of(
+                    Long.parseLong(properties.getProperty(key + "count")),
+                    Integer.parseInt(properties.getProperty(key + "minLength")),
+                    Integer.parseInt(properties.getProperty(key + "maxLength"))));
+        }
+        if (properties.getProperty(prefix + "integerSketch") != null) {
+            statistics.integerSketch = CategorySketch.decode(properties.getProperty(prefix + "integerSketch"));
+            statistics.floatSketch = CategorySketch.decode(properties.getProperty(prefix + "floatSketch"));
+            statistics.stringSketch = CategorySketch.decode(properties.getProperty(prefix + "stringSketch"));
+        }
+        return statistics;
+    }
+
+    private static BigInteger bigInteger(String value) {
+        return value == null ? null : new BigInteger(value);
+    }
+
+    private static BigDecimal bigDecimal(String value) {
+        return value == null ? null : new BigDecimal(value);
+    }
+
     /**
      * Выводит краткую статистику по обработанным данным.
      * Вывод включает количество целых чисел, вещественных чисел и строк.
      */
     public void printShortStatistics(){
-        System.out.println("Short statistics:");
-        System.out.println("Integers: " + integerCount);
-        System.out.println("Floats: " + floatCount);
-        System.out.println("Strings: " + stringCount);
+        printShortStatistics(System.out);
+    }
+
+    /**
+     * Выводит краткую статистику по обработанным данным в заданный поток.
+     *
+     * @param out Поток вывода.
+     */
+    public void printShortStatistics(PrintStream out) {
+        out.println("Short statistics:");
+        out.println("Integers: " + integerCount);
+        out.println("Floats: " + floatCount);
+        out.println("Strings: " + stringCount);
+        categories.forEach((name, category) -> out.println(name + ": " + category.getCount()));
     }
 
     /**
      * Выводит полную статистику по обработанным данным.
      * Вывод включает количество, минимальное, максимальное, сумму и среднее значение для целых и вещественных чисел,
      * а также минимальную и максимальную длину строк.
+     * Если ведутся вероятностные сводки, для каждой категории также выводятся приближенные
+     * квантили P50, P90, P99 (для строк - их длин) и количество различных значений.
+     * Для пользовательских категорий выводятся количество строк и их минимальная и максимальная длина.
      */
     public void printFullStatistics() {
-        System.out.println("Full statistics:");
-        System.out.println("Integers: " + integerCount +
-                " (Min: " + minInteger + ", Max: " + maxInteger + ", Sum: " + sumInteger +
-                ", Avg: " + avgInteger + ")");
+        printFullStatistics(System.out);
+    }
+
+    /**
+     * Выводит полную статистику по обработанным данным в заданный поток.
+     *
+     * @param out Поток вывода.
+     */
+    public void printFullStatistics(PrintStream out) {
+        out.println("Full statistics:");
+        out.println("Integers: " + integerCount +
+                " (Min: " + getMinInteger() + ", Max: " + getMaxInteger() + ", Sum: " + getSumInteger() +
+                ", Avg: " + getAvgInteger() + sketchSummary(integerSketch, true) + ")");
 
-        System.out.println("Floats: " + floatCount +
+        out.println("Floats: " + floatCount +
                 " (Min: " + minFloat + ", Max: " + maxFloat + ", Sum: " + sumFloat +
-                ", Avg: " + avgFloat + ")");
+                ", Avg: " + getAvgFloat() + sketchSummary(floatSketch, false) + ")");
+
+        out.println("Strings: " + stringCount +
+                " (Min Length: " + minStringLength + ", Max Length: " + maxStringLength +
+                sketchSummary(stringSketch, true) + ")");
+        categories.forEach((name, category) -> out.println(name + ": " + category.getCount() +
+                " (Min Length: " + category.getMinLength() + ", Max Length: " + category.getMaxLength() + ")"));
+    }
+
+    /**
+     * Формирует описание квантилей и количества различных значений для полной статистики.
+     *
+     * @param sketch   Сводка категории или {@code null}.
+     * @param integral Являются ли значения целыми (целые числа и длины строк).
+     * @return Описание, начинающееся с запятой, или пустая строка, если сводка не ведется или пуста.
+     */
+    private static String sketchSummary(CategorySketch sketch, boolean integral) {
+        if (sketch == null || sketch.distinctCount() == 0) return "";
+        return ", P50: " + quantile(sketch, 0.5, integral) + ", P90: " + quantile(sketch, 0.9, integral) +
+                ", P99: " + quantile(sketch, 0.99, integral) + ", Distinct: ~" + sketch.distinctCount();
+    }
 
-        System.out.println("Strings: " + stringCount +
-                " (Min Length: " + minStringLength + ", Max Length: " + maxStringLength + ")");
+    private static String quantile(CategorySketch sketch, double rank, boolean integral) {
+        double value = sketch.quantile(rank);
+        // Значения за пределами диапазона double хранятся в сводке как бесконечности
+        if (Double.isInfinite(value)) return Double.toString(value);
+        return integral ? BigDecimal.valueOf(value).toBigInteger().toString() : BigDecimal.valueOf(value).toString();
     }
-}
\ No newline at end of file
+}
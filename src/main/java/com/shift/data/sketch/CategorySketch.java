@@ -0,0 +1,109 @@
+package com.shift.data.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Вероятностная сводка одной категории данных: квантили значений ({@link KllSketch})
+ * и приближенное количество различных значений ({@link HyperLogLog}).
+ * Для чисел квантили считаются по самим значениям, для строк - по их длинам,
+ * а различные значения определяются по хешу исходной строки.
+ * Вся сводка занимает порядка 10 КБ независимо от количества значений.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class CategorySketch {
+    /**
+     * Оценка квантилей.
+     */
+    private final KllSketch quantiles;
+
+    /**
+     * Оценка количества различных значений.
+     */
+    private final HyperLogLog distinct;
+
+    /**
+     * Конструктор класса с параметрами точности по умолчанию.
+     */
+    public CategorySketch() {
+        this(new KllSketch(), new HyperLogLog());
+    }
+
+    private CategorySketch(KllSketch quantiles, HyperLogLog distinct) {
+        this.quantiles = quantiles;
+        this.distinct = distinct;
+    }
+
+    /**
+     * Добавляет значение.
+     *
+     * @param value Значение для квантилей (число или длина строки).
+     * @param hash  64-битный хеш значения для подсчета различных значений.
+     */
+    public void update(double value, long hash) {
+        quantiles.update(value);
+        distinct.add(hash);
+    }
+
+    /**
+     * Объединяет с этой сводкой другую сводку.
+     *
+     * @param other Сводка для объединения.
+     * @return Эта сводка после объединения.
+     */
+    public CategorySketch merge(CategorySketch other) {
+        quantiles.merge(other.quantiles);
+        distinct.merge(other.distinct);
+        return this;
+    }
+
+    /**
+     * Возвращает приближенный квантиль.
+     *
+     * @param rank Доля значений от 0 до 1.
+     * @return Значение квантиля или {@code NaN}, если значений не было.
+     */
+    public double quantile(double rank) {
+        return quantiles.quantile(rank);
+    }
+
+    /**
+     * Возвращает приближенное количество различных значений.
+     *
+     * @return Количество различных значений.
+     */
+    public long distinctCount() {
+        return quantiles.getCount() == 0 ? 0 : distinct.estimate();
+    }
+
+    /**
+     * Кодирует сводку в строку Base64 для сохранения в манифесте.
+     *
+     * @return Закодированная сводка.
+     */
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(quantiles.serializedSize() + distinct.serializedSize());
+        quantiles.writeTo(buffer);
+        distinct.writeTo(buffer);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    /**
+     * Восстанавливает сводку, закодированную методом {@link #encode()}.
+     *
+     * @param encoded Закодированная сводка.
+     * @return Восстановленная сводка.
+     * @throws IllegalArgumentException Если строка повреждена.
+     */
+    public static CategorySketch decode(String encoded) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+            return new CategorySketch(KllSketch.readFrom(buffer), HyperLogLog.readFrom(buffer));
+        }
+        catch (RuntimeException e) {
+            throw new IllegalArgumentException("Повреждена сводка статистики", e);
+        }
+    }
+}
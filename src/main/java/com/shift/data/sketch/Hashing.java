@@ -0,0 +1,174 @@
+package com.shift.data.sketch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Быстрые некриптографические хеш-функции для вероятностных структур данных.
+ * Строка хешируется по байтам ее представления в UTF-8, причем для {@link CharSequence} байты
+ * вычисляются на лету без кодирования в массив. Поэтому строка, прочитанная как текст и как байты,
+ * получает один и тот же хеш. Байты обрабатываются словами по 8 байт со смешиванием по схеме MurmurHash3,
+ * а итоговое значение проходит финальное перемешивание {@code fmix64}.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public final class Hashing {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private Hashing() {
+    }
+
+    /**
+     * Вычисляет 64-битный хеш целого числа.
+     *
+     * @param value Число.
+     * @return Хеш.
+     */
+    public static long hash64(long value) {
+        return fmix64(value * C1 + C2);
+    }
+
+    /**
+     * Вычисляет 64-битный хеш байтов.
+     *
+     * @param bytes Массив байтов.
+     * @return Хеш.
+     */
+    public static long hash64(byte[] bytes) {
+        Hasher hasher = new Hasher(0);
+        for (byte b : bytes) hasher.put(b);
+        return hasher.finish();
+    }
+
+    /**
+     * Вычисляет 64-битный хеш диапазона байтов буфера.
+     *
+     * @param buffer Буфер.
+     * @param from   Начало диапазона (включительно).
+     * @param to     Конец диапазона (не включительно).
+     * @return Хеш.
+     */
+    public static long hash64(ByteBuffer buffer, int from, int to) {
+        return hash(buffer, from, to, 0);
+    }
+
+    /**
+     * Вычисляет 64-битный хеш строки по байтам ее представления в UTF-8.
+     *
+     * @param text Строка.
+     * @return Хеш.
+     */
+    public static long hash64(CharSequence text) {
+        return hash(text, 0);
+    }
+
+    /**
+     * Вычисляет хеш диапазона байтов с заданным начальным значением.
+     * Разные начальные значения дают независимые хеш-функции.
+     *
+     * @param buffer Буфер.
+     * @param from   Начало диапазона (включительно).
+     * @param to     Конец диапазона (не включительно).
+     * @param seed   Начальное значение.
+     * @return Хеш.
+     */
+    public static long hash(ByteBuffer buffer, int from, int to, long seed) {
+        Hasher hasher = new Hasher(seed);
+        for (int i = from; i < to; i++) hasher.put(buffer.get(i));
+        return hasher.finish();
+    }
+
+    /**
+     * Вычисляет хеш строки по байтам UTF-8 с заданным начальным значением.
+     * Некорректные суррогаты кодируются как {@code '?'}, так же как при кодировании строки в UTF-8.
+     *
+     * @param text Строка.
+     * @param seed Начальное значение.
+     * @return Хеш.
+     */
+    public static long hash(CharSequence text, long seed) {
+        Hasher hasher = new Hasher(seed);
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                hasher.put(c);
+            }
+            else if (c < 0x800) {
+                hasher.put(0xc0 | c >> 6);
+                hasher.put(0x80 | c & 0x3f);
+            }
+            else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    hasher.put(0xf0 | codePoint >> 18);
+                    hasher.put(0x80 | codePoint >> 12 & 0x3f);
+                    hasher.put(0x80 | codePoint >> 6 & 0x3f);
+                    hasher.put(0x80 | codePoint & 0x3f);
+                }
+                else {
+                    hasher.put('?');
+                }
+            }
+            else {
+                hasher.put(0xe0 | c >> 12);
+                hasher.put(0x80 | c >> 6 & 0x3f);
+                hasher.put(0x80 | c & 0x3f);
+            }
+        }
+        return hasher.finish();
+    }
+
+    /**
+     * Финальное перемешивание MurmurHash3: каждый бит входа влияет на все биты результата.
+     *
+     * @param h Значение.
+     * @return Перемешанное значение.
+     */
+    public static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Состояние хеширования последовательности байтов.
+     * Объект живет только внутри одного вызова, поэтому JIT-компилятор размещает его поля в регистрах.
+     */
+    private static final class Hasher {
+        private long h;
+        private long word;
+        private int filled;
+        private long length;
+
+        Hasher(long seed) {
+            this.h = seed;
+        }
+
+        void put(int b) {
+            word |= (b & 0xffL) << (filled << 3);
+            length++;
+            if (++filled == Long.BYTES) {
+                mix();
+            }
+        }
+
+        private void mix() {
+            long k = word * C1;
+            k = Long.rotateLeft(k, 31) * C2;
+            h ^= k;
+            h = Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+            word = 0;
+            filled = 0;
+        }
+
+        long finish() {
+            if (filled > 0) mix();
+            return fmix64(h ^ length);
+        }
+    }
+}
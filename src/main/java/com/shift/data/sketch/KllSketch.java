@@ -0,0 +1,270 @@
+package com.shift.data.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Потоковая оценка квантилей алгоритмом KLL (Karnin, Lang, Liberty).
+ * Значения хранятся в нескольких уровнях-буферах: значение уровня {@code h} представляет {@code 2^h} исходных значений.
+ * Когда буферы переполняются, нижний переполненный уровень сортируется, и каждое второе значение
+ * (начиная со случайной позиции) переносится на уровень выше, а остальные отбрасываются.
+ * Вместимость уровней убывает геометрически сверху вниз, поэтому при параметре {@code k = 200} структура
+ * хранит не более нескольких сотен чисел (единицы килобайт), а ошибка ранга квантиля составляет около 1%
+ * независимо от количества значений. Структуры объединяются, поэтому частичные результаты потоков можно сливать.
+ * Случайные позиции берутся из генератора с фиксированным начальным значением, поэтому результат воспроизводим.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class KllSketch {
+    /**
+     * Параметр точности по умолчанию.
+     */
+    public static final int DEFAULT_K = 200;
+
+    /**
+     * Наименьшая вместимость уровня.
+     */
+    private static final int MIN_CAPACITY = 8;
+
+    /**
+     * Коэффициент убывания вместимости уровней.
+     */
+    private static final double DECAY = 2.0 / 3.0;
+
+    /**
+     * Параметр точности: вместимость верхнего уровня.
+     */
+    private final int k;
+
+    /**
+     * Значения уровней и количество заполненных значений в каждом уровне.
+     */
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+
+    /**
+     * Количество добавленных значений.
+     */
+    private long count;
+
+    /**
+     * Состояние генератора случайных позиций (xorshift).
+     */
+    private long random = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Конструктор класса с параметром точности по умолчанию.
+     */
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Конструктор класса.
+     *
+     * @param k Параметр точности: чем больше, тем точнее и тем больше памяти.
+     */
+    public KllSketch(int k) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException("Параметр KLL должен быть не меньше " + MIN_CAPACITY + ": " + k);
+        }
+        this.k = k;
+        this.levels[0] = new double[capacity(0)];
+    }
+
+    /**
+     * Возвращает количество добавленных значений.
+     *
+     * @return Количество значений.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Добавляет значение.
+     *
+     * @param value Значение. Значения {@code NaN} пропускаются.
+     */
+    public void update(double value) {
+        if (Double.isNaN(value)) return;
+        append(0, value);
+        count++;
+        if (sizes[0] >= capacity(0)) compress();
+    }
+
+    /**
+     * Объединяет с этой структурой другую структуру.
+     *
+     * @param other Структура для объединения.
+     * @return Эта структура после объединения.
+     */
+    public KllSketch merge(KllSketch other) {
+        if (other.count == 0) return this;
+        for (int level = 0; level < other.levels.length; level++) {
+            for (int i = 0; i < other.sizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        count += other.count;
+        compress();
+        return this;
+    }
+
+    /**
+     * Возвращает приближенный квантиль.
+     *
+     * @param rank Доля значений, не превосходящих квантиль, от 0 до 1 (например, 0.5 для медианы).
+     * @return Значение квантиля или {@code NaN}, если значений не было.
+     */
+    public double quantile(double rank) {
+        if (count == 0) return Double.NaN;
+        int retained = 0;
+        for (int size : sizes) retained += size;
+
+        // Упорядочиваем сохраненные значения вместе с их весами
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        int n = 0;
+        for (int level = 0; level < levels.length; level++) {
+            for (int i = 0; i < sizes[level]; i++) {
+                values[n] = levels[level][i];
+                weights[n++] = 1L << level;
+            }
+        }
+        Integer[] order = new Integer[retained];
+        for (int i = 0; i < retained; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+        long total = 0;
+        for (long weight : weights) total += weight;
+        double target = Math.max(0, Math.min(1, rank)) * total;
+        long cumulative = 0;
+        for (int index : order) {
+            cumulative += weights[index];
+            if (cumulative >= target) return values[index];
+        }
+        return values[order[retained - 1]];
+    }
+
+    /**
+     * Вычисляет вместимость уровня при текущем количестве уровней.
+     *
+     * @param level Номер уровня.
+     * @return Вместимость уровня.
+     */
+    private int capacity(int level) {
+        int depth = levels.length - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(DECAY, depth)));
+    }
+
+    /**
+     * Добавляет значение в уровень, при необходимости создавая уровень и расширяя его массив.
+     *
+     * @param level Номер уровня.
+     * @param value Значение.
+     */
+    private void append(int level, double value) {
+        if (level >= levels.length) {
+            levels = Arrays.copyOf(levels, level + 1);
+            sizes = Arrays.copyOf(sizes, level + 1);
+            levels[level] = new double[MIN_CAPACITY];
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    /**
+     * Сжимает уровни, пока каждый уровень не поместится в свою вместимость.
+     */
+    private void compress() {
+        for (int level = 0; level < levels.length; level++) {
+            if (sizes[level] < capacity(level)) continue;
+
+            double[] items = levels[level];
+            int size = sizes[level];
+            Arrays.sort(items, 0, size);
+            // При нечетном размере одно значение остается на уровне, чтобы сохранить общий вес
+            int kept = size % 2;
+            int offset = nextBit();
+            for (int i = kept + offset; i < size; i += 2) {
+                append(level + 1, items[i]);
+            }
+            sizes[level] = kept;
+            // Уровень мог только что появиться: вместимость нижних уровней изменилась, проверяем их на следующих итерациях
+        }
+        // Массивы уровней могли вырасти при объединении: возвращаем их к вместимости
+        for (int level = 0; level < levels.length; level++) {
+            int capacity = capacity(level);
+            if (levels[level].length > capacity * 2 && sizes[level] <= capacity) {
+                levels[level] = Arrays.copyOf(levels[level], capacity);
+            }
+        }
+    }
+
+    /**
+     * Возвращает случайный бит.
+     *
+     * @return 0 или 1.
+     */
+    private int nextBit() {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) (random >>> 63);
+    }
+
+    /**
+     * Возвращает размер сериализованного представления в байтах.
+     *
+     * @return Размер в байтах.
+     */
+    public int serializedSize() {
+        int size = Integer.BYTES * 2 + Long.BYTES * 2;
+        for (int level = 0; level < levels.length; level++) {
+            size += Integer.BYTES + sizes[level] * Double.BYTES;
+        }
+        return size;
+    }
+
+    /**
+     * Записывает структуру в буфер.
+     *
+     * @param buffer Буфер с достаточным свободным местом.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(k);
+        buffer.putLong(count);
+        buffer.putLong(random);
+        buffer.putInt(levels.length);
+        for (int level = 0; level < levels.length; level++) {
+            buffer.putInt(sizes[level]);
+            for (int i = 0; i < sizes[level]; i++) buffer.putDouble(levels[level][i]);
+        }
+    }
+
+    /**
+     * Читает структуру, записанную методом {@link #writeTo(ByteBuffer)}.
+     *
+     * @param buffer Буфер.
+     * @return Прочитанная структура.
+     */
+    public static KllSketch readFrom(ByteBuffer buffer) {
+        KllSketch sketch = new KllSketch(buffer.getInt());
+        sketch.count = buffer.getLong();
+        sketch.random = buffer.getLong();
+        int levelCount = buffer.getInt();
+        sketch.levels = new double[levelCount][];
+        sketch.sizes = new int[levelCount];
+        for (int level = 0; level < levelCount; level++) {
+            int size = buffer.getInt();
+            sketch.levels[level] = new double[Math.max(size, MIN_CAPACITY)];
+            sketch.sizes[level] = size;
+            for (int i = 0; i < size; i++) sketch.levels[level][i] = buffer.getDouble();
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,228 @@
+package com.shift.output;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Асинхронная запись строк в отдельном потоке.
+ * Строки собираются в пакеты заданного размера и передаются потоку записи через ограниченную очередь.
+ * Когда очередь заполнена, вызывающий поток блокируется, пока поток записи не освободит место,
+ * поэтому объем памяти под ожидающие записи строки ограничен размером пакета, умноженным на глубину очереди.
+ * Ошибка записи в фоновом потоке пробрасывается при следующем вызове {@link #write(String)},
+ * {@link #flush()} или {@link #close()}.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class AsyncLineWriter implements LineWriter {
+    /**
+     * Команда потоку записи.
+     */
+    private sealed interface Command permits Batch, Flush, Close {
+    }
+
+    /**
+     * Записать пакет строк.
+     */
+    private record Batch(List<String> lines) implements Command {
+    }
+
+    /**
+     * Сбросить буферы на диск и сообщить о завершении.
+     */
+    private record Flush(CountDownLatch done) implements Command {
+    }
+
+    /**
+     * Закрыть файл и завершить поток.
+     */
+    private record Close() implements Command {
+    }
+
+    /**
+     * Приемник, в который строки записываются в фоновом потоке.
+     */
+    private final LineWriter target;
+    /**
+     * Количество строк в одном пакете.
+     */
+    private final int batchSize;
+    /**
+     * Очередь команд, ожидающих выполнения: пакетов строк, сбросов и закрытия.
+     */
+    private final BlockingQueue<Command> queue;
+    /**
+     * Поток записи.
+     */
+    private final Thread thread;
+
+    /**
+     * Текущий собираемый пакет.
+     */
+    private List<String> batch;
+    /**
+     * Ошибка, возникшая в потоке записи.
+     */
+    private volatile IOException failure;
+    /**
+     * Признак закрытия.
+     */
+    private boolean closed;
+
+    /**
+     * Конструктор класса. Запускает поток записи.
+     *
+     * @param target     Приемник, в который строки записываются в фоновом потоке.
+     * @param name       Имя потока записи.
+     * @param batchSize  Количество строк в одном пакете.
+     * @param queueDepth Наибольшее количество пакетов, ожидающих записи.
+     */
+    public AsyncLineWriter(LineWriter target, String name, int batchSize, int queueDepth) {
+        this.target = target;
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueDepth));
+        this.batch = new ArrayList<>(this.batchSize);
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void write(String line) throws IOException {
+        checkFailure();
+        batch.add(line);
+        if (batch.size() >= batchSize) {
+            put(new Batch(batch));
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * Передает текущий пакет потоку записи и дожидается, пока все переданные строки будут записаны
+     * и буферы сброшены на диск.
+     *
+     * @throws IOException Если при записи произошла ошибка.
+     */
+    @Override
+    public void flush() throws IOException {
+        checkFailure();
+        if (!batch.isEmpty()) {
+            put(new Batch(batch));
+            batch = new ArrayList<>(batchSize);
+        }
+        Flush barrier = new Flush(new CountDownLatch(1));
+        put(barrier);
+        try {
+            barrier.done().await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Ожидание записи прервано");
+        }
+        checkFailure();
+    }
+
+    /**
+     * Дописывает все накопленные строки, закрывает файл и дожидается завершения потока записи.
+     * Если ожидание места в очереди прервано, поток записи прерывается и сам закрывает файл,
+     * не дописывая оставшиеся пакеты, чтобы ни поток, ни файл не остались открытыми.
+     *
+     * @throws IOException Если при записи или закрытии произошла ошибка.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        boolean enqueued = false;
+        try {
+            if (!batch.isEmpty() && failure == null) put(new Batch(batch));
+            put(new Close());
+            enqueued = true;
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Ожидание записи прервано");
+        }
+        finally {
+            // Без команды закрытия поток записи ждал бы ее вечно
+            if (!enqueued) thread.interrupt();
+        }
+        checkFailure();
+    }
+
+    /**
+     * Основной цикл потока записи.
+     */
+    private void run() {
+        try {
+            boolean running = true;
+            while (running) {
+                switch (queue.take()) {
+                    case Batch next -> {
+                        if (failure != null) continue;
+                        try {
+                            for (String line : next.lines()) target.write(line);
+                        }
+                        catch (IOException e) {
+                            // Продолжаем забирать пакеты, чтобы вызывающий поток не заблокировался на полной очереди
+                            failure = e;
+                        }
+                    }
+                    case Flush barrier -> {
+                        try {
+                            if (failure == null) target.flush();
+                        }
+                        catch (IOException e) {
+                            failure = e;
+                        }
+                        barrier.done().countDown();
+                    }
+                    case Close close -> running = false;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            try {
+                target.close();
+            }
+            catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+    }
+
+    /**
+     * Помещает команду в очередь, блокируясь, пока в ней нет места.
+     *
+     * @param next Команда потоку записи.
+     * @throws IOException Если ожидание было прервано.
+     */
+    private void put(Command next) throws IOException {
+        try {
+            queue.put(next);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Ожидание записи прервано");
+        }
+    }
+
+    /**
+     * Пробрасывает ошибку, возникшую в потоке записи.
+     *
+     * @throws IOException Ошибка потока записи, если она была.
+     */
+    private void checkFailure() throws IOException {
+        IOException error = failure;
+        if (error != null) throw new IOException("Ошибка записи в фоновом потоке: " + error.getMessage(), error);
+    }
+}
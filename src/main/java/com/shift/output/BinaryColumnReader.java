@@ -0,0 +1,368 @@
+package com.shift.output;
+
+import com.shift.data.DataType;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Чтение файла в двоичном поколоночном формате (см. {@link BinaryColumnWriter}) через отображение в память.
+ * Файл читается поблочно: {@link #next()} переходит к следующему блоку и читает только его заголовок
+ * со статистикой, а значения разбираются при первом обращении к ним. Поэтому блоки, которые не подходят
+ * по минимуму и максимуму, пропускаются без чтения значений. Файл отображается окнами, так что его размер
+ * не ограничен размером одного отображения.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class BinaryColumnReader implements Closeable {
+    /**
+     * Размер окна отображения файла.
+     */
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Длина неизменяемой части заголовка блока.
+     */
+    private static final int BLOCK_HEADER_SIZE = 13;
+
+    /**
+     * Заголовок блока: количество значений и их статистика.
+     * Для целых чисел минимум, максимум и сумма - точные целые значения (с нулевым масштабом).
+     *
+     * @param count Количество значений.
+     * @param min   Минимальное значение.
+     * @param max   Максимальное значение.
+     * @param sum   Сумма значений.
+     */
+    public record Block(int count, BigDecimal min, BigDecimal max, BigDecimal sum) {
+    }
+
+    private final FileChannel channel;
+    private final long size;
+    private final DataType type;
+
+    /**
+     * Текущее окно отображения и его смещение в файле.
+     */
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /**
+     * Смещение следующего непрочитанного байта заголовков.
+     */
+    private long cursor;
+
+    private Block block;
+    private int encoding;
+    private int escapeCount;
+    private long payloadStart;
+    private int payloadLength;
+
+    /**
+     * Разобранные значения текущего блока и его исключения: номера значений, виды и исходные строки.
+     */
+    private boolean decoded;
+    private long[] values = new long[0];
+    private int[] escapeIndexes = new int[0];
+    private byte[] escapeKinds = new byte[0];
+    private String[] escapeTexts = new String[0];
+
+    /**
+     * Открывает файл и проверяет его заголовок.
+     *
+     * @param path Путь к файлу.
+     * @throws IOException Если файл не удалось открыть или он не в двоичном формате.
+     */
+    public BinaryColumnReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            size = channel.size();
+            ByteBuffer header = at(0, BinaryColumnWriter.HEADER_SIZE);
+            int offset = offset(0);
+            if (header.getInt(offset) != BinaryColumnWriter.MAGIC || header.get(offset + 4) != BinaryColumnWriter.VERSION) {
+                throw new IOException("Файл " + path + " не в двоичном формате");
+            }
+            int ordinal = header.get(offset + 5);
+            if (ordinal != DataType.INTEGER.ordinal() && ordinal != DataType.FLOAT.ordinal()) {
+                throw new IOException("Неизвестная категория в файле " + path + ": " + ordinal);
+            }
+            type = DataType.values()[ordinal];
+            cursor = BinaryColumnWriter.HEADER_SIZE;
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает категорию чисел файла.
+     *
+     * @return {@link DataType#INTEGER} или {@link DataType#FLOAT}.
+     */
+    public DataType getType() {
+        return type;
+    }
+
+    /**
+     * Переходит к следующему блоку и читает его заголовок. Значения предыдущего блока пропускаются.
+     *
+     * @return {@code true}, если блок есть, или {@code false} в конце файла.
+     * @throws IOException Если файл поврежден или обрезан.
+     */
+    public boolean next() throws IOException {
+        if (block != null) cursor = payloadStart + payloadLength;
+        if (cursor >= size) {
+            block = null;
+            return false;
+        }
+        ByteBuffer header = at(cursor, BLOCK_HEADER_SIZE);
+        int offset = offset(cursor);
+        int count = header.getInt(offset);
+        encoding = header.get(offset + 4);
+        escapeCount = header.getInt(offset + 5);
+        payloadLength = header.getInt(offset + 9);
+        if (count <= 0 || count > BinaryColumnWriter.BLOCK_SIZE || escapeCount < 0 || escapeCount > count || payloadLength < 0
+                || encoding < BinaryColumnWriter.VARINT || encoding > BinaryColumnWriter.DOUBLE) {
+            throw new IOException("Поврежден заголовок блока по смещению " + cursor);
+        }
+        long start = cursor;
+        cursor += BLOCK_HEADER_SIZE;
+        BigDecimal min;
+        BigDecimal max;
+        BigDecimal sum;
+        try {
+            min = new BigDecimal(readText());
+            max = new BigDecimal(readText());
+            sum = new BigDecimal(readText());
+        }
+        catch (RuntimeException e) {
+            throw new IOException("Поврежден заголовок блока по смещению " + start, e);
+        }
+        payloadStart = cursor;
+        if (payloadStart + payloadLength > size) throw new EOFException("Файл обрезан в блоке по смещению " + payloadStart);
+        block = new Block(count, min, max, sum);
+        decoded = false;
+        return true;
+    }
+
+    /**
+     * Возвращает заголовок текущего блока.
+     *
+     * @return Заголовок блока или {@code null}, если {@link #next()} еще не вызывался или файл закончился.
+     */
+    public Block getBlock() {
+        return block;
+    }
+
+    /**
+     * Возвращает целое число текущего блока.
+     *
+     * @param index Номер значения в блоке.
+     * @return Значение.
+     * @throws ArithmeticException Если значение не помещается в {@code long}.
+     * @throws IOException         Если блок поврежден.
+     */
+    public long getLong(int index) throws IOException {
+        requireType(DataType.INTEGER);
+        decode();
+        int escape = escape(index);
+        if (escape >= 0 && escapeKinds[escape] == BinaryColumnWriter.ESCAPE_WIDE) {
+            throw new ArithmeticException("Значение не помещается в long: " + escapeTexts[escape]);
+        }
+        return values[index];
+    }
+
+    /**
+     * Возвращает целое число текущего блока любой величины.
+     *
+     * @param index Номер значения в блоке.
+     * @return Значение.
+     * @throws IOException Если блок поврежден.
+     */
+    public BigInteger getBigInteger(int index) throws IOException {
+        requireType(DataType.INTEGER);
+        decode();
+        int escape = escape(index);
+        if (escape >= 0 && escapeKinds[escape] == BinaryColumnWriter.ESCAPE_WIDE) return new BigInteger(escapeTexts[escape]);
+        return BigInteger.valueOf(values[index]);
+    }
+
+    /**
+     * Возвращает вещественное число текущего блока, округленное до {@code double}.
+     *
+     * @param index Номер значения в блоке.
+     * @return Значение.
+     * @throws IOException Если блок поврежден.
+     */
+    public double getDouble(int index) throws IOException {
+        requireType(DataType.FLOAT);
+        decode();
+        return Double.longBitsToDouble(values[index]);
+    }
+
+    /**
+     * Возвращает точное значение числа текущего блока.
+     *
+     * @param index Номер значения в блоке.
+     * @return Значение.
+     * @throws IOException Если блок поврежден.
+     */
+    public BigDecimal getDecimal(int index) throws IOException {
+        return new BigDecimal(getText(index));
+    }
+
+    /**
+     * Возвращает исходную строку числа текущего блока.
+     *
+     * @param index Номер значения в блоке.
+     * @return Строка в том виде, в каком она была во входном файле.
+     * @throws IOException Если блок поврежден.
+     */
+    public String getText(int index) throws IOException {
+        decode();
+        int escape = escape(index);
+        if (escape >= 0) return escapeTexts[escape];
+        return type == DataType.INTEGER ? Long.toString(values[index]) : Double.toString(Double.longBitsToDouble(values[index]));
+    }
+
+    /**
+     * Преобразует файл в двоичном формате обратно в текстовый, по одному числу в строке.
+     *
+     * @param source Файл в двоичном формате.
+     * @param target Текстовый файл; перезаписывается.
+     * @return Количество записанных строк.
+     * @throws IOException Если произошла ошибка при чтении или записи.
+     */
+    public static long decode(Path source, Path target) throws IOException {
+        long lines = 0;
+        try (BinaryColumnReader reader = new BinaryColumnReader(source);
+             BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            while (reader.next()) {
+                for (int i = 0; i < reader.getBlock().count(); i++) {
+                    writer.write(reader.getText(i));
+                    writer.newLine();
+                }
+                lines += reader.getBlock().count();
+            }
+        }
+        return lines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private void requireType(DataType expected) {
+        if (type != expected) throw new IllegalStateException("Файл содержит категорию " + type);
+    }
+
+    /**
+     * Возвращает номер исключения для значения или -1.
+     */
+    private int escape(int index) {
+        if (block == null || index < 0 || index >= block.count()) {
+            throw new IndexOutOfBoundsException("Нет значения " + index + " в текущем блоке");
+        }
+        return escapeCount == 0 ? -1 : Math.max(-1, Arrays.binarySearch(escapeIndexes, 0, escapeCount, index));
+    }
+
+    /**
+     * Разбирает значения и исключения текущего блока.
+     */
+    private void decode() throws IOException {
+        if (block == null) throw new IllegalStateException("Нет текущего блока");
+        if (decoded) return;
+        int count = block.count();
+        if (values.length < count) values = new long[BinaryColumnWriter.BLOCK_SIZE];
+        if (escapeIndexes.length < escapeCount) {
+            escapeIndexes = new int[escapeCount];
+            escapeKinds = new byte[escapeCount];
+            escapeTexts = new String[escapeCount];
+        }
+        ByteBuffer payload = at(payloadStart, payloadLength).slice(offset(payloadStart), payloadLength);
+        try {
+            for (int i = 0; i < count; i++) {
+                if (encoding == BinaryColumnWriter.VARINT) {
+                    long zigZag = readVarLong(payload);
+                    values[i] = zigZag >>> 1 ^ -(zigZag & 1);
+                }
+                else {
+                    values[i] = payload.getLong();
+                }
+            }
+            int index = 0;
+            for (int i = 0; i < escapeCount; i++) {
+                index += (int) readVarLong(payload);
+                escapeIndexes[i] = index;
+                escapeKinds[i] = payload.get();
+                byte[] text = new byte[(int) readVarLong(payload)];
+                payload.get(text);
+                escapeTexts[i] = new String(text, StandardCharsets.US_ASCII);
+            }
+        }
+        catch (RuntimeException e) {
+            throw new IOException("Поврежден блок по смещению " + payloadStart, e);
+        }
+        decoded = true;
+    }
+
+    /**
+     * Читает строку заголовка блока: длину varint и байты ASCII.
+     */
+    private String readText() throws IOException {
+        ByteBuffer buffer = at(cursor, Math.min(10, size - cursor));
+        ByteBuffer view = buffer.slice(offset(cursor), (int) Math.min(10, size - cursor));
+        int length = (int) readVarLong(view);
+        cursor += view.position();
+        byte[] text = new byte[length];
+        at(cursor, length).get(offset(cursor), text);
+        cursor += length;
+        return new String(text, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Возвращает окно отображения, содержащее байты файла с заданного смещения, при необходимости отображая новое.
+     */
+    private ByteBuffer at(long position, long length) throws IOException {
+        if (position + length > size) throw new EOFException("Файл обрезан по смещению " + position);
+        if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+            long mapped = Math.min(size - position, Math.max(length, WINDOW_SIZE));
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, mapped);
+            windowStart = position;
+        }
+        return window;
+    }
+
+    /**
+     * Переводит смещение в файле в смещение внутри текущего окна.
+     */
+    private int offset(long position) {
+        return (int) (position - windowStart);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Слишком длинное число varint");
+    }
+}
@@ -0,0 +1,251 @@
+package com.shift.output;
+
+import com.shift.data.DataType;
+import com.shift.data.Statistics;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Запись целых или вещественных чисел в двоичном поколоночном формате ({@code --format binary}).
+ * Числа записываются блоками до {@link #BLOCK_SIZE} значений, и разбирать десятичный текст при чтении не нужно.
+ * <p>
+ * Файл начинается с заголовка: сигнатура {@link #MAGIC}, версия {@link #VERSION} и номер категории
+ * ({@link DataType#ordinal()}). Далее идут блоки, каждый из которых можно прочитать или пропустить независимо:
+ * <pre>
+ * int    count          количество значений
+ * byte   encoding       VARINT, FIXED64 или DOUBLE
+ * int    escapeCount    количество исключений
+ * int    payloadLength  длина значений и исключений в байтах
+ * text   min, max, sum  статистика блока ({@link Statistics}) в виде точных десятичных чисел
+ * ...    значения       count чисел zig-zag varint, count чисел long или count чисел double
+ * ...    исключения     escapeCount записей: varint разность номеров, byte вид, text исходная строка
+ * </pre>
+ * Здесь {@code text} - длина varint и байты ASCII. Целые числа записываются как zig-zag varint или,
+ * если так выходит короче, как 64-битные значения; вещественные - как IEEE 754 double.
+ * Строка, которая не восстанавливается из значения дословно ({@code 007}, {@code 1.50}, {@code 1e3},
+ * число больше 64 бит), дополнительно записывается в исключения, поэтому обратное преобразование в текст
+ * дает исходные строки, а точное значение любого числа доступно через исключение.
+ * Блок записывается и при сбросе буферов, поэтому в режиме добавления к файлу дописываются новые блоки.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class BinaryColumnWriter implements LineWriter {
+    /**
+     * Сигнатура файла: байты {@code FFBC}.
+     */
+    public static final int MAGIC = 0x46464243;
+
+    /**
+     * Версия формата.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Длина заголовка файла в байтах.
+     */
+    public static final int HEADER_SIZE = 6;
+
+    /**
+     * Расширение выходных файлов в двоичном формате.
+     */
+    public static final String EXTENSION = ".bin";
+
+    /**
+     * Наибольшее количество значений в блоке.
+     */
+    public static final int BLOCK_SIZE = 8192;
+
+    /**
+     * Кодировки значений блока.
+     */
+    public static final int VARINT = 0;
+    public static final int FIXED64 = 1;
+    public static final int DOUBLE = 2;
+
+    /**
+     * Виды исключений: значение в блоке верно, но запись строки отличается; значение не помещается в 64 бита.
+     */
+    public static final int ESCAPE_TEXT = 0;
+    public static final int ESCAPE_WIDE = 1;
+
+    private final DataOutputStream out;
+    private final DataType type;
+
+    /**
+     * Строки текущего блока и их значения в виде битов {@code long}.
+     */
+    private final String[] lines = new String[BLOCK_SIZE];
+    private final long[] values = new long[BLOCK_SIZE];
+    private int count = 0;
+
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream escapes = new ByteArrayOutputStream();
+
+    /**
+     * Конструктор класса.
+     *
+     * @param out    Поток записи в файл.
+     * @param type   Категория чисел: {@link DataType#INTEGER} или {@link DataType#FLOAT}.
+     * @param header Записывать ли заголовок файла; не нужен при добавлении к непустому файлу.
+     * @throws IOException Если произошла ошибка при записи заголовка.
+     */
+    public BinaryColumnWriter(OutputStream out, DataType type, boolean header) throws IOException {
+        if (type == DataType.STRING) {
+            throw new IllegalArgumentException("Двоичный формат поддерживается только для чисел");
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.type = type;
+        if (header) {
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+            this.out.writeByte(type.ordinal());
+        }
+    }
+
+    @Override
+    public void write(String line) throws IOException {
+        lines[count++] = line;
+        if (count == BLOCK_SIZE) writeBlock();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBlock();
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Записывает накопленные строки одним блоком.
+     *
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void writeBlock() throws IOException {
+        if (count == 0) return;
+        Statistics statistics = new Statistics();
+        escapes.reset();
+        int escapeCount = 0;
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            String line = lines[i];
+            statistics.update(type, line);
+            int escape = type == DataType.INTEGER ? encodeInteger(line, i) : encodeFloat(line, i);
+            if (escape >= 0) {
+                writeVarLong(escapes, i - previous);
+                escapes.write(escape);
+                writeText(escapes, line);
+                previous = i;
+                escapeCount++;
+            }
+        }
+
+        payload.reset();
+        int encoding = type == DataType.FLOAT ? DOUBLE : chooseEncoding();
+        DataOutputStream lane = new DataOutputStream(payload);
+        for (int i = 0; i < count; i++) {
+            if (encoding == VARINT) writeVarLong(payload, zigZag(values[i]));
+            else lane.writeLong(values[i]);
+        }
+        escapes.writeTo(payload);
+
+        out.writeInt(count);
+        out.writeByte(encoding);
+        out.writeInt(escapeCount);
+        out.writeInt(payload.size());
+        if (type == DataType.INTEGER) {
+            writeText(out, statistics.getMinInteger().toString());
+            writeText(out, statistics.getMaxInteger().toString());
+            writeText(out, statistics.getSumInteger().toString());
+        }
+        else {
+            writeText(out, statistics.getMinFloat().toString());
+            writeText(out, statistics.getMaxFloat().toString());
+            writeText(out, statistics.getSumFloat().toString());
+        }
+        payload.writeTo(out);
+
+        Arrays.fill(lines, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * Сохраняет значение целого числа и определяет, нужно ли исключение.
+     *
+     * @return Вид исключения или -1, если строка восстанавливается из значения.
+     */
+    private int encodeInteger(String line, int index) {
+        int start = line.charAt(0) == '-' ? 1 : 0;
+        // Каноническая запись - без ведущих нулей и без "-0"
+        boolean canonical = line.charAt(start) != '0' || line.length() == 1;
+        if (line.length() - start <= 18) {
+            values[index] = Long.parseLong(line);
+            return canonical ? -1 : ESCAPE_TEXT;
+        }
+        BigInteger value = new BigInteger(line);
+        if (value.bitLength() >= Long.SIZE) {
+            values[index] = 0;
+            return ESCAPE_WIDE;
+        }
+        values[index] = value.longValue();
+        return canonical ? -1 : ESCAPE_TEXT;
+    }
+
+    /**
+     * Сохраняет значение вещественного числа и определяет, нужно ли исключение.
+     *
+     * @return Вид исключения или -1, если строка совпадает с {@link Double#toString(double)} значения.
+     */
+    private int encodeFloat(String line, int index) {
+        double value = Double.parseDouble(line);
+        values[index] = Double.doubleToRawLongBits(value);
+        return Double.toString(value).equals(line) ? -1 : ESCAPE_TEXT;
+    }
+
+    /**
+     * Выбирает более короткую кодировку целых чисел блока.
+     */
+    private int chooseEncoding() {
+        long varintBytes = 0;
+        for (int i = 0; i < count; i++) varintBytes += varLongSize(zigZag(values[i]));
+        return varintBytes < 8L * count ? VARINT : FIXED64;
+    }
+
+    private static long zigZag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static int varLongSize(long value) {
+        return Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(value) + 6) / 7);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeText(OutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,334 @@
+package com.shift.output;
+
+import com.shift.cli.CommandLineOptions;
+import com.shift.data.DataType;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Набор открытых выходных файлов, по одному на каждую категорию данных.
+ * Используется в потоковом режиме: строки записываются в файл сразу после классификации,
+ * не накапливаясь в памяти. Файл категории создается только при записи в него первой строки,
+ * поэтому пустые выходные файлы не появляются. Кроме встроенных категорий поддерживаются
+ * пользовательские категории, файлы которых определяются по имени.
+ * Если включена асинхронная запись, каждый файл пишется в собственном потоке через {@link AsyncLineWriter}.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class CategoryWriters implements Closeable {
+    /**
+     * Настройки командной строки, определяющие путь, префикс и режим записи.
+     */
+    private final CommandLineOptions options;
+
+    /**
+     * Уже открытые файлы категорий.
+     */
+    private final Map<DataType, LineWriter> writers = new EnumMap<>(DataType.class);
+
+    /**
+     * Уже открытые файлы пользовательских категорий по имени файла.
+     */
+    private final Map<String, LineWriter> customWriters = new HashMap<>();
+
+    /**
+     * Конструктор класса.
+     *
+     * @param options Настройки командной строки, переданные приложению.
+     */
+    public CategoryWriters(CommandLineOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Записывает строку в файл категории, открывая его при первом обращении.
+     *
+     * @param type Категория строки.
+     * @param line Строка для записи.
+     * @throws IOException Если произошла ошибка при открытии или записи файла.
+     */
+    public void write(DataType type, String line) throws IOException {
+        LineWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = openLineWriter(type.getFileName());
+            writers.put(type, writer);
+        }
+        writer.write(line);
+    }
+
+    /**
+     * Записывает строку в файл пользовательской категории, открывая его при первом обращении.
+     *
+     * @param fileName Имя файла категории без префикса.
+     * @param line     Строка для записи.
+     * @throws IOException Если произошла ошибка при открытии или записи файла.
+     */
+    public void write(String fileName, String line) throws IOException {
+        LineWriter writer = customWriters.get(fileName);
+        if (writer == null) {
+            writer = openLineWriter(fileName);
+            customWriters.put(fileName, writer);
+        }
+        writer.write(line);
+    }
+
+    /**
+     * Открывает приемник строк для файла категории с учетом режима записи из настроек.
+     *
+     * @param fileName Имя файла без префикса.
+     * @return Приемник строк.
+     * @throws IOException Если произошла ошибка при открытии файла.
+     */
+    private LineWriter openLineWriter(String fileName) throws IOException {
+        LineWriter writer = newLineWriter(options, fileName);
+        if (options.isAsyncWrite()) {
+            writer = new AsyncLineWriter(writer, "writer-" + fileName, options.getBatchSize(), options.getQueueDepth());
+        }
+        return writer;
+    }
+
+    /**
+     * Сбрасывает буферы всех открытых файлов на диск.
+     *
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    public void flush() throws IOException {
+        for (LineWriter writer : writers.values()) {
+            writer.flush();
+        }
+        for (LineWriter writer : customWriters.values()) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Закрывает все открытые файлы. Повторный вызов ничего не делает.
+     *
+     * @throws IOException Если произошла ошибка при закрытии хотя бы одного файла.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        List<LineWriter> open = new ArrayList<>(writers.values());
+        open.addAll(customWriters.values());
+        for (LineWriter writer : open) {
+            try {
+                writer.close();
+            }
+            catch (IOException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        writers.clear();
+        customWriters.clear();
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Открывает приемник строк для выходного файла в формате из настроек: файлы целых и вещественных чисел
+     * при {@code --format binary} записываются {@link BinaryColumnWriter}, остальные - как текст.
+     * Если выходные файлы делятся на части, возвращается {@link ShardedLineWriter}.
+     * Если директория для файла не существует, она будет создана.
+     *
+     * @param options  Настройки командной строки.
+     * @param fileName Имя файла без префикса.
+     * @return Приемник строк.
+     * @throws IOException Если произошла ошибка при создании директории или открытии файла.
+     */
+    public static LineWriter newLineWriter(CommandLineOptions options, String fileName) throws IOException {
+        if (options.isSharded()) return new ShardedLineWriter(options, fileName);
+        return newLineWriter(options, fileName, prepare(outputPath(options, fileName)),
+                options.getOutputMode() == CommandLineOptions.OutputMode.APPEND);
+    }
+
+    /**
+     * Открывает приемник строк для заданного файла категории в формате из настроек.
+     *
+     * @param options  Настройки командной строки.
+     * @param fileName Имя файла категории без префикса, определяющее формат.
+     * @param path     Путь к файлу; директория должна существовать.
+     * @param append   Дописывать ли строки в конец файла вместо перезаписи.
+     * @return Приемник строк.
+     * @throws IOException Если произошла ошибка при открытии файла.
+     */
+    static LineWriter newLineWriter(CommandLineOptions options, String fileName, Path path, boolean append)
+            throws IOException {
+        StandardOpenOption mode = append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        DataType binary = binaryType(options, fileName);
+        if (binary == null) return new TextLineWriter(open(options, path, mode));
+        // Заголовок файла пишется только в начало файла; при добавлении дописываются только блоки
+        boolean header = !append || !Files.exists(path) || Files.size(path) == 0;
+        return new BinaryColumnWriter(Files.newOutputStream(path, StandardOpenOption.CREATE, mode), binary, header);
+    }
+
+    /**
+     * Определяет, записывается ли файл в двоичном формате.
+     *
+     * @param options  Настройки командной строки.
+     * @param fileName Имя файла без префикса.
+     * @return Категория чисел файла или {@code null}, если файл записывается как текст.
+     */
+    public static DataType binaryType(CommandLineOptions options, String fileName) {
+        if (options.getFormat() != CommandLineOptions.OutputFormat.BINARY) return null;
+        if (fileName.equals(DataType.INTEGER.getFileName())) return DataType.INTEGER;
+        if (fileName.equals(DataType.FLOAT.getFileName())) return DataType.FLOAT;
+        return null;
+    }
+
+    /**
+     * Открывает текстовый файл по готовому пути с учетом сжатия из настроек.
+     * При сжатии строки проходят через {@link ParallelGzipOutputStream}, а в режиме добавления
+     * к существующему файлу дописывается новый член gzip, который распаковывается вместе с предыдущими.
+     * Директория файла должна существовать.
+     *
+     * @param options    Настройки командной строки, определяющие сжатие.
+     * @param outputPath Путь к выходному файлу или к его части.
+     * @param mode       Режим записи: {@link StandardOpenOption#APPEND} или {@link StandardOpenOption#TRUNCATE_EXISTING}.
+     * @return Буферизованный поток записи в файл в кодировке UTF-8.
+     * @throws IOException Если произошла ошибка при открытии файла или записи заголовка gzip.
+     */
+    private static BufferedWriter open(CommandLineOptions options, Path outputPath, StandardOpenOption mode) throws IOException {
+        if (options.isGzipOutput()) {
+            OutputStream out = Files.newOutputStream(outputPath, StandardOpenOption.CREATE, mode);
+            return new BufferedWriter(new OutputStreamWriter(new ParallelGzipOutputStream(out), StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedWriter(outputPath, StandardOpenOption.CREATE, mode);
+    }
+
+    /**
+     * Открывает канал выходного файла с учетом пути, префикса и режима записи из настроек.
+     * Если директория для файла не существует, она будет создана.
+     * Для несжатого вывода возвращается {@link FileChannel}, поддерживающий собирающую запись.
+     *
+     * @param options  Настройки командной строки.
+     * @param fileName Имя файла без префикса.
+     * @return Канал для записи в файл.
+     * @throws IOException Если произошла ошибка при создании директории или открытии файла.
+     */
+    public static WritableByteChannel openChannel(CommandLineOptions options, String fileName) throws IOException {
+        Path outputPath = prepare(outputPath(options, fileName));
+        if (options.isGzipOutput()) {
+            OutputStream out = Files.newOutputStream(outputPath, StandardOpenOption.CREATE, writeMode(options));
+            return Channels.newChannel(new ParallelGzipOutputStream(out));
+        }
+        return FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, writeMode(options));
+    }
+
+    /**
+     * Вычисляет путь к выходному файлу с учетом директории, префикса, сжатия и формата из настроек.
+     * Файлы в двоичном формате получают расширение {@code .bin} вместо {@code .txt}.
+     *
+     * @param options  Настройки командной строки.
+     * @param fileName Имя файла без префикса.
+     * @return Путь к выходному файлу.
+     */
+    public static Path outputPath(CommandLineOptions options, String fileName) {
+        String name = binaryType(options, fileName) == null ? fileName
+                : fileName.substring(0, fileName.lastIndexOf('.')) + BinaryColumnWriter.EXTENSION;
+        return Path.of(options.getOutputPath(), options.getPrefix() + name + (options.isGzipOutput() ? ".gz" : ""));
+    }
+
+    /**
+     * Вычисляет путь к части выходного файла с заданным номером: к имени файла категории добавляется номер
+     * из пяти цифр, например {@code integers-00001.txt}.
+     *
+     * @param options  Настройки командной строки.
+     * @param fileName Имя файла без префикса.
+     * @param number   Номер части, начиная с 1.
+     * @return Путь к части.
+     */
+    public static Path shardPath(CommandLineOptions options, String fileName, int number) {
+        String extension = binaryType(options, fileName) == null ? fileName.substring(fileName.lastIndexOf('.'))
+                : BinaryColumnWriter.EXTENSION;
+        return Path.of(options.getOutputPath(), options.getPrefix() + stem(fileName) + String.format("-%05d", number)
+                + extension + (options.isGzipOutput() ? ".gz" : ""));
+    }
+
+    /**
+     * Вычисляет путь к манифесту частей выходного файла, например {@code integers.shards.properties}.
+     *
+     * @param options  Настройки командной строки.
+     * @param fileName Имя файла без префикса.
+     * @return Путь к манифесту.
+     */
+    public static Path manifestPath(CommandLineOptions options, String fileName) {
+        return Path.of(options.getOutputPath(), options.getPrefix() + stem(fileName) + ShardedLineWriter.MANIFEST_SUFFIX);
+    }
+
+    /**
+     * Вычисляет общий размер выходного файла категории на диске, а если файлы делятся на части, - всех его частей.
+     *
+     * @param options  Настройки командной строки.
+     * @param fileName Имя файла без префикса.
+     * @return Размер в байтах или 0, если файла нет.
+     * @throws IOException Если не удалось определить размер файла.
+     */
+    public static long outputSize(CommandLineOptions options, String fileName) throws IOException {
+        if (!options.isSharded()) {
+            Path path = outputPath(options, fileName);
+            return Files.exists(path) ? Files.size(path) : 0;
+        }
+        long size = 0;
+        for (int number = 1; ; number++) {
+            Path path = shardPath(options, fileName, number);
+            if (!Files.exists(path)) return size;
+            size += Files.size(path);
+        }
+    }
+
+    /**
+     * Возвращает имя файла категории без расширения, например {@code integers} для {@code integers.txt}.
+     * Используется для имен частей и манифеста, к которым добавляются свои суффиксы и расширения.
+     *
+     * @param fileName Имя файла без префикса, содержащее расширение.
+     * @return Имя файла без последнего расширения.
+     */
+    private static String stem(String fileName) {
+        return fileName.substring(0, fileName.lastIndexOf('.'));
+    }
+
+    /**
+     * Создает директорию выходного файла, если она не существует.
+     *
+     * @param outputPath Путь к выходному файлу.
+     * @return Тот же путь.
+     * @throws IOException Если произошла ошибка при создании директории.
+     */
+    static Path prepare(Path outputPath) throws IOException {
+        Path outputDir = outputPath.getParent();
+
+        // Создаем директорию, если она не существует
+        if (outputDir != null && !Files.exists(outputDir)) {
+            Files.createDirectories(outputDir);
+        }
+        return outputPath;
+    }
+
+    /**
+     * Возвращает опцию открытия файла для режима записи из настроек.
+     *
+     * @param options Настройки командной строки.
+     * @return {@link StandardOpenOption#APPEND} или {@link StandardOpenOption#TRUNCATE_EXISTING}.
+     */
+    private static StandardOpenOption writeMode(CommandLineOptions options) {
+        return options.getOutputMode() == CommandLineOptions.OutputMode.APPEND ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+    }
+}
@@ -0,0 +1,259 @@
+package com.shift.output;
+
+import com.shift.data.DataType;
+
+import java.util.Comparator;
+
+/**
+ * Порядок строк в отсортированных выходных файлах.
+ * Числа сравниваются точно, как {@link java.math.BigInteger} и {@link java.math.BigDecimal}, но прямо по цифрам строки,
+ * без разбора в объекты: сравниваются знак, порядок первой значащей цифры и значащие цифры.
+ * Численно равные записи ({@code 1.5} и {@code 15e-1}) упорядочиваются между собой как строки,
+ * поэтому результат не зависит от того, как строки распределились по сериям сортировки.
+ * Строки сравниваются по кодовым точкам Unicode, что совпадает с побайтовым порядком UTF-8 ({@code LC_ALL=C sort}).
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public enum LineOrder implements Comparator<String> {
+    /**
+     * Числовой порядок для целых и вещественных чисел.
+     */
+    NUMERIC {
+        @Override
+        public int compare(String a, String b) {
+            int result = hasExponent(a) || hasExponent(b) ? Decimal.compare(new Decimal(a), new Decimal(b)) : comparePlain(a, b);
+            return result != 0 ? result : a.compareTo(b);
+        }
+
+        @Override
+        public long key(String line) {
+            // Округление к ближайшему double не убывает, поэтому разные ключи однозначно задают порядок;
+            // -0.0 идет раньше 0.0, что совпадает со сравнением записей "-0..." и "0..." как строк
+            long bits = Double.doubleToLongBits(Double.parseDouble(line));
+            return bits ^ (bits >> 63 & Long.MAX_VALUE) ^ Long.MIN_VALUE;
+        }
+    },
+
+    /**
+     * Лексикографический порядок по кодовым точкам для строк и пользовательских категорий.
+     */
+    TEXT {
+        @Override
+        public int compare(String a, String b) {
+            int length = Math.min(a.length(), b.length());
+            for (int i = 0; i < length; i++) {
+                char ca = a.charAt(i);
+                char cb = b.charAt(i);
+                if (ca != cb) {
+                    // Суррогаты (символы за пределами BMP) должны идти после символов U+E000-U+FFFF
+                    if (ca >= Character.MIN_SURROGATE && cb >= Character.MIN_SURROGATE) {
+                        return fixup(ca) - fixup(cb);
+                    }
+                    return ca - cb;
+                }
+            }
+            return a.length() - b.length();
+        }
+
+        @Override
+        public long key(String line) {
+            // Первые четыре символа по 16 бит; недостающие символы дают нули, и более короткая строка не получает больший ключ
+            long key = 0;
+            for (int i = 0; i < 4; i++) key = key << 16 | (i < line.length() ? order(line.charAt(i)) : 0);
+            return key;
+        }
+
+        private static int fixup(char c) {
+            return c >= 0xE000 ? c - 0x800 : c + 0x2000;
+        }
+
+        private static int order(char c) {
+            return c >= Character.MIN_SURROGATE ? fixup(c) : c;
+        }
+    };
+
+    /**
+     * Вычисляет ключ строки: 64-битное значение, беззнаковое сравнение которого согласовано с порядком.
+     * Если ключ одной строки меньше ключа другой, то и строка меньше; при равных ключах строки сравниваются полностью.
+     * Ключ вычисляется один раз на строку, а сортировка и слияние большую часть сравнений выполняют по ключам.
+     *
+     * @param line Строка категории.
+     * @return Ключ строки.
+     */
+    public abstract long key(String line);
+
+    /**
+     * Сравнивает строки с заранее вычисленными ключами.
+     *
+     * @param keyA Ключ первой строки.
+     * @param a    Первая строка.
+     * @param keyB Ключ второй строки.
+     * @param b    Вторая строка.
+     * @return Отрицательное число, ноль или положительное число, как у {@link #compare(Object, Object)}.
+     */
+    public int compare(long keyA, String a, long keyB, String b) {
+        int result = Long.compareUnsigned(keyA, keyB);
+        return result != 0 ? result : compare(a, b);
+    }
+
+    /**
+     * Возвращает порядок строк встроенной категории.
+     *
+     * @param type Категория.
+     * @return Порядок строк.
+     */
+    public static LineOrder of(DataType type) {
+        return type == DataType.STRING ? TEXT : NUMERIC;
+    }
+
+    private static boolean hasExponent(String number) {
+        for (int i = number.length() - 1; i > 0; i--) {
+            char c = number.charAt(i);
+            if (c == 'e' || c == 'E') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Сравнивает числа без экспоненты ({@code -?\d+(\.\d+)?}) без создания объектов: это основной случай,
+     * в том числе для всех целых чисел.
+     */
+    private static int comparePlain(String a, String b) {
+        boolean negativeA = a.charAt(0) == '-';
+        boolean negativeB = b.charAt(0) == '-';
+        int startA = skipZeros(a, negativeA ? 1 : 0);
+        int startB = skipZeros(b, negativeB ? 1 : 0);
+        int pointA = point(a, startA);
+        int pointB = point(b, startB);
+        boolean zeroA = startA == pointA && isZeroFraction(a, pointA);
+        boolean zeroB = startB == pointB && isZeroFraction(b, pointB);
+        int signumA = zeroA ? 0 : negativeA ? -1 : 1;
+        int signumB = zeroB ? 0 : negativeB ? -1 : 1;
+        if (signumA != signumB) return Integer.compare(signumA, signumB);
+        if (signumA == 0) return 0;
+
+        // Целые части без ведущих нулей: более длинная больше, при равной длине сравниваются цифры
+        int result = Integer.compare(pointA - startA, pointB - startB);
+        for (int i = 0; result == 0 && i < pointA - startA; i++) result = a.charAt(startA + i) - b.charAt(startB + i);
+        if (result == 0) {
+            // Дробные части сравниваются поразрядно, недостающие разряды считаются нулями
+            int i = pointA + 1;
+            int j = pointB + 1;
+            while (result == 0 && (i < a.length() || j < b.length())) {
+                char ca = i < a.length() ? a.charAt(i++) : '0';
+                char cb = j < b.length() ? b.charAt(j++) : '0';
+                result = ca - cb;
+            }
+        }
+        return signumA * Integer.signum(result);
+    }
+
+    private static int skipZeros(String number, int from) {
+        while (from < number.length() && number.charAt(from) == '0') from++;
+        return from;
+    }
+
+    private static int point(String number, int from) {
+        while (from < number.length() && number.charAt(from) != '.') from++;
+        return from;
+    }
+
+    private static boolean isZeroFraction(String number, int point) {
+        for (int i = point + 1; i < number.length(); i++) {
+            if (number.charAt(i) != '0') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Десятичное число, разобранное без копирования: положение цифр в строке и порядок.
+     * Значение равно {@code 0.d1d2...dn * 10^magnitude}, где {@code d1} - первая значащая цифра.
+     */
+    private static final class Decimal {
+        /**
+         * Ограничение порядка при разборе: больше допустимого {@link java.math.BigDecimal}, но без переполнения {@code long}.
+         */
+        private static final long MAX_EXPONENT = 1L << 40;
+
+        private final String text;
+        private final boolean negative;
+        private final int intStart;
+        private final int intLength;
+        private final int fracStart;
+
+        /**
+         * Значащие цифры: номера первой и следующей за последней ненулевой цифры среди цифр целой и дробной частей.
+         */
+        private int first;
+        private int end;
+
+        private long magnitude;
+
+        private Decimal(String text) {
+            this.text = text;
+            int i = 0;
+            int length = text.length();
+            negative = length > 0 && text.charAt(0) == '-';
+            if (negative) i++;
+            intStart = i;
+            while (i < length && isDigit(text.charAt(i))) i++;
+            intLength = i - intStart;
+            int fracLength = 0;
+            if (i < length && text.charAt(i) == '.') {
+                i++;
+                fracStart = i;
+                while (i < length && isDigit(text.charAt(i))) i++;
+                fracLength = i - fracStart;
+            }
+            else {
+                fracStart = i;
+            }
+            long exponent = 0;
+            if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+                i++;
+                boolean negativeExponent = i < length && text.charAt(i) == '-';
+                if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) i++;
+                while (i < length && isDigit(text.charAt(i))) {
+                    exponent = Math.min(MAX_EXPONENT, exponent * 10 + text.charAt(i++) - '0');
+                }
+                if (negativeExponent) exponent = -exponent;
+            }
+
+            int digits = intLength + fracLength;
+            first = 0;
+            while (first < digits && digit(first) == '0') first++;
+            end = digits;
+            while (end > first && digit(end - 1) == '0') end--;
+            magnitude = intLength - first + exponent;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private char digit(int index) {
+            return index < intLength ? text.charAt(intStart + index) : text.charAt(fracStart + index - intLength);
+        }
+
+        private int signum() {
+            return first == end ? 0 : negative ? -1 : 1;
+        }
+
+        private static int compare(Decimal a, Decimal b) {
+            int signum = a.signum();
+            if (signum != b.signum()) return Integer.compare(signum, b.signum());
+            if (signum == 0) return 0;
+
+            int result = Long.compare(a.magnitude, b.magnitude);
+            if (result == 0) {
+                int i = a.first;
+                int j = b.first;
+                while (result == 0 && i < a.end && j < b.end) result = a.digit(i++) - b.digit(j++);
+                // Значащие цифры без конечных нулей: у более длинной записи остаются ненулевые цифры
+                if (result == 0) result = Integer.compare(a.end - i, b.end - j);
+            }
+            return signum * Integer.signum(result);
+        }
+    }
+}
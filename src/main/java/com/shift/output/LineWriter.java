@@ -0,0 +1,22 @@
+package com.shift.output;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Приемник строк одного выходного файла.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public interface LineWriter extends Closeable, Flushable {
+
+    /**
+     * Записывает строку и перевод строки.
+     *
+     * @param line Строка для записи.
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    void write(String line) throws IOException;
+}
@@ -0,0 +1,262 @@
+package com.shift.output;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Поток записи в формате gzip со сжатием блоков в нескольких потоках (по принципу pigz).
+ * Данные делятся на блоки фиксированного размера, каждый блок сжимается независимо в пуле потоков.
+ * Для сохранения степени сжатия блок использует последние 32 КБ предшествующих данных как словарь,
+ * а все блоки, кроме последнего, завершаются сбросом {@link Deflater#SYNC_FLUSH}, поэтому сжатые блоки
+ * можно просто записать друг за другом и получить один корректный поток deflate.
+ * Явный {@link #flush()} сжимает и неполный блок, поэтому записанные до него данные сразу можно распаковать.
+ * Контрольная сумма CRC32 считается последовательно в вызывающем потоке.
+ * Используется только {@code java.util.zip}, без нативных библиотек.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class ParallelGzipOutputStream extends FilterOutputStream {
+    /**
+     * Размер блока по умолчанию.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * Размер словаря deflate.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * Заголовок gzip: сигнатура, метод deflate, без флагов и времени изменения, ОС не указана.
+     */
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    /**
+     * Общий пул потоков сжатия для всех выходных файлов.
+     */
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "gzip-compressor");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Наибольшее количество блоков, ожидающих записи.
+     */
+    private final int maxPending = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * Сжатые блоки в порядке записи.
+     */
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    /**
+     * Контрольная сумма несжатых данных.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Текущий заполняемый блок.
+     */
+    private byte[] block;
+    private int blockLength;
+
+    /**
+     * Словарь для следующего блока (последние 32 КБ данных предыдущих блоков).
+     */
+    private byte[] dictionary;
+
+    /**
+     * Общий размер несжатых данных.
+     */
+    private long totalLength;
+
+    private boolean closed;
+
+    /**
+     * Конструктор класса с размером блока по умолчанию.
+     *
+     * @param out Поток, в который записываются сжатые данные.
+     * @throws IOException Если произошла ошибка при записи заголовка.
+     */
+    public ParallelGzipOutputStream(OutputStream out) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Конструктор класса.
+     *
+     * @param out       Поток, в который записываются сжатые данные.
+     * @param blockSize Размер блока несжатых данных.
+     * @throws IOException Если произошла ошибка при записи заголовка.
+     */
+    public ParallelGzipOutputStream(OutputStream out, int blockSize) throws IOException {
+        super(out);
+        this.block = new byte[Math.max(DICTIONARY_SIZE, blockSize)];
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            int copied = Math.min(length, block.length - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, copied);
+            blockLength += copied;
+            offset += copied;
+            length -= copied;
+            if (blockLength == block.length) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Сжимает текущий незаполненный блок со сбросом {@link Deflater#SYNC_FLUSH} и записывает в выходной поток
+     * все сжатые блоки, чтобы записанные данные можно было распаковать, не дожидаясь закрытия потока
+     * (например, при слежении за файлами или периодическом сбросе).
+     * Частые вызовы ухудшают степень сжатия, поскольку каждый блок завершается отдельным сбросом.
+     *
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (blockLength > 0) {
+            submitBlock(false);
+        }
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+        out.flush();
+    }
+
+    /**
+     * Сжимает оставшиеся данные, записывает все блоки и окончание gzip, затем закрывает выходной поток.
+     *
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            submitBlock(true);
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            writeIntLE((int) crc.getValue());
+            writeIntLE((int) totalLength);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Отправляет текущий блок на сжатие и начинает новый.
+     *
+     * @param last Является ли блок последним в потоке.
+     * @throws IOException Если произошла ошибка при записи ранее сжатых блоков.
+     */
+    private void submitBlock(boolean last) throws IOException {
+        byte[] data = block;
+        int length = blockLength;
+        byte[] previous = dictionary;
+        crc.update(data, 0, length);
+        totalLength += length;
+
+        // Неполный блок после сброса дополняет словарь хвостом предыдущего словаря
+        int own = Math.min(length, DICTIONARY_SIZE);
+        int kept = previous == null ? 0 : Math.min(previous.length, DICTIONARY_SIZE - own);
+        if (own + kept > 0) {
+            dictionary = new byte[kept + own];
+            if (kept > 0) System.arraycopy(previous, previous.length - kept, dictionary, 0, kept);
+            System.arraycopy(data, length - own, dictionary, kept, own);
+        }
+        block = new byte[data.length];
+        blockLength = 0;
+
+        while (pending.size() >= maxPending) {
+            writeNext();
+        }
+        pending.add(POOL.submit(() -> compress(data, length, previous, last)));
+    }
+
+    /**
+     * Сжимает блок.
+     *
+     * @param data       Данные блока.
+     * @param length     Длина данных.
+     * @param dictionary Словарь или {@code null}.
+     * @param last       Является ли блок последним.
+     * @return Сжатые данные.
+     */
+    private static byte[] compress(byte[] data, int length, byte[] dictionary, boolean last) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) deflater.setDictionary(dictionary);
+            deflater.setInput(data, 0, length);
+            if (last) deflater.finish();
+
+            byte[] buffer = new byte[Math.max(64, length / 2 + 64)];
+            int size = 0;
+            while (true) {
+                if (size == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                int written = deflater.deflate(buffer, size, buffer.length - size, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                size += written;
+                // Сжатие завершено, когда весь вход обработан и в буфере осталось свободное место
+                if (last ? deflater.finished() : deflater.needsInput() && size < buffer.length) break;
+            }
+            return Arrays.copyOf(buffer, size);
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Дожидается сжатия самого старого блока и записывает его.
+     *
+     * @throws IOException Если сжатие завершилось ошибкой или произошла ошибка при записи.
+     */
+    private void writeNext() throws IOException {
+        Future<byte[]> next = pending.poll();
+        try {
+            out.write(next.get());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Сжатие прервано");
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Ошибка сжатия блока", e.getCause());
+        }
+    }
+
+    /**
+     * Записывает 32-битное число в порядке little-endian.
+     *
+     * @param value Число для записи.
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void writeIntLE(int value) throws IOException {
+        out.write(new byte[]{(byte) value, (byte) (value >>> 8), (byte) (value >>> 16), (byte) (value >>> 24)});
+    }
+}
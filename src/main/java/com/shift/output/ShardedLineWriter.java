@@ -0,0 +1,393 @@
+package com.shift.output;
+
+import com.shift.cli.CommandLineOptions;
+import com.shift.data.DataType;
+import com.shift.data.Statistics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Запись выходного файла категории по частям ({@code --shard-lines}, {@code --shard-size}).
+ * Строки делятся на пронумерованные части, например {@code integers-00001.txt}, {@code integers-00002.txt};
+ * новая часть начинается, когда в текущей набралось заданное количество строк или следующая строка превысила бы
+ * заданный объем. Формат и сжатие частей такие же, как у выходного файла без деления.
+ * <p>
+ * Строки передаются пакетами в общий пул потоков записи. Пакеты одной части записываются по порядку,
+ * а разные части (в том числе разных категорий) - параллельно: пока дописывается и закрывается одна часть,
+ * уже пишется следующая. Количество пакетов в очереди ограничено, поэтому при медленном диске
+ * вызывающий поток ожидает, а не накапливает строки в памяти.
+ * <p>
+ * При закрытии и сбросе буферов рядом с частями записывается манифест {@code integers.shards.properties}:
+ * для каждой части имя файла, номера первой и последней строки в выходном файле категории, объем строк
+ * и статистика ({@link Statistics#store}). В режиме добавления запись продолжается в последнюю часть из манифеста,
+ * пока она не заполнится, а при перезаписи удаляются части предыдущего запуска, не вошедшие в новый.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class ShardedLineWriter implements LineWriter {
+    /**
+     * Окончание имени файла манифеста.
+     */
+    public static final String MANIFEST_SUFFIX = ".shards.properties";
+
+    /**
+     * Количество строк в пакете записи.
+     */
+    private static final int BATCH_SIZE = 4096;
+
+    /**
+     * Общий пул потоков записи частей для всех выходных файлов.
+     */
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "shard-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Действие над частью, выполняемое в пуле потоков.
+     */
+    @FunctionalInterface
+    private interface ShardAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Одна часть выходного файла. Поля записи и статистики изменяются только задачами этой части,
+     * которые выполняются строго друг за другом.
+     */
+    private final class Shard {
+        private final int number;
+        private final Path path;
+        private final long firstLine;
+        private final boolean resumed;
+        private final Statistics statistics;
+
+        /**
+         * Количество строк и их объем; изменяются вызывающим потоком при распределении строк по частям.
+         */
+        private long lines;
+        private long bytes;
+
+        private LineWriter writer;
+
+        /**
+         * Последняя задача части; следующая задача выполняется после нее.
+         */
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        private Shard(int number, long firstLine, boolean resumed, Statistics statistics) {
+            this.number = number;
+            this.path = CategoryWriters.shardPath(options, fileName, number);
+            this.firstLine = firstLine;
+            this.resumed = resumed;
+            this.statistics = statistics;
+        }
+
+        private void append(List<String> batch) throws IOException {
+            if (writer == null) {
+                writer = CategoryWriters.newLineWriter(options, fileName, CategoryWriters.prepare(path), resumed);
+            }
+            for (String line : batch) {
+                writer.write(line);
+                if (type != null) statistics.update(type, line);
+                else statistics.updateCategoryStatistics(category, line.length());
+            }
+        }
+
+        private void flush() throws IOException {
+            if (writer != null) writer.flush();
+        }
+
+        private void close() throws IOException {
+            if (writer != null) writer.close();
+        }
+    }
+
+    private final CommandLineOptions options;
+    private final String fileName;
+
+    /**
+     * Встроенная категория файла или {@code null} для пользовательской категории с именем {@code category}.
+     */
+    private final DataType type;
+    private final String category;
+
+    private final Path manifest;
+
+    /**
+     * Все части файла по порядку номеров, включая части предыдущих запусков из манифеста.
+     */
+    private final List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Количество частей в манифесте предыдущего запуска, чтобы удалить лишние при перезаписи.
+     */
+    private int previousShards = 0;
+
+    private Shard current;
+    private List<String> batch = new ArrayList<>(BATCH_SIZE);
+    private long lines = 0;
+    private boolean changed = false;
+
+    /**
+     * Ограничение количества пакетов, ожидающих записи.
+     */
+    private final Semaphore pending = new Semaphore(Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * Первая ошибка записи в пуле потоков.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Конструктор класса. В режиме добавления загружает манифест предыдущего запуска.
+     *
+     * @param options  Настройки командной строки: ограничения частей, путь, префикс, формат и режим записи.
+     * @param fileName Имя выходного файла категории без префикса.
+     * @throws IOException Если манифест не удалось прочитать или он поврежден.
+     */
+    public ShardedLineWriter(CommandLineOptions options, String fileName) throws IOException {
+        this.options = options;
+        this.fileName = fileName;
+        this.type = builtIn(fileName);
+        this.category = type == null ? fileName.substring(0, fileName.lastIndexOf('.')) : null;
+        this.manifest = CategoryWriters.manifestPath(options, fileName);
+        loadManifest();
+    }
+
+    @Override
+    public void write(String line) throws IOException {
+        if (failure != null) throw failure;
+        long size = utf8Length(line) + 1;
+        if (current == null || isFull(current, size)) rotate();
+        batch.add(line);
+        current.lines++;
+        current.bytes += size;
+        lines++;
+        changed = true;
+        if (batch.size() == BATCH_SIZE) submitBatch();
+    }
+
+    /**
+     * Дожидается записи переданных строк, сбрасывает буферы текущей части и обновляет манифест.
+     *
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (current == null) return;
+        submitBatch();
+        Shard shard = current;
+        enqueue(shard, shard::flush, false);
+        awaitAll();
+        writeManifest();
+    }
+
+    /**
+     * Дожидается записи и закрытия всех частей и записывает манифест.
+     *
+     * @throws IOException Если произошла ошибка при записи хотя бы одной части.
+     */
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            submitBatch();
+            Shard shard = current;
+            enqueue(shard, shard::close, true);
+            current = null;
+        }
+        awaitAll();
+        if (changed) {
+            writeManifest();
+            removeStaleShards();
+            changed = false;
+        }
+    }
+
+    /**
+     * Проверяет, нужно ли начать новую часть перед строкой заданного объема.
+     */
+    private boolean isFull(Shard shard, long size) {
+        if (options.getShardLines() > 0 && shard.lines >= options.getShardLines()) return true;
+        return options.getShardSize() > 0 && shard.lines > 0 && shard.bytes + size > options.getShardSize();
+    }
+
+    /**
+     * Передает накопленный пакет текущей части, закрывает ее и начинает следующую.
+     */
+    private void rotate() throws IOException {
+        if (current != null) {
+            submitBatch();
+            Shard full = current;
+            enqueue(full, full::close, true);
+        }
+        Statistics statistics = new Statistics();
+        if (category != null) statistics.addCategory(category);
+        current = new Shard(shards.size() + 1, lines + 1, false, statistics);
+        shards.add(current);
+    }
+
+    private void submitBatch() throws IOException {
+        if (batch.isEmpty()) return;
+        List<String> items = batch;
+        batch = new ArrayList<>(BATCH_SIZE);
+        Shard shard = current;
+        enqueue(shard, () -> shard.append(items), false);
+    }
+
+    /**
+     * Ставит действие в очередь части. После ошибки записи выполняется только закрытие частей,
+     * а сама ошибка выбрасывается из следующего вызова {@link #write}, {@link #flush} или {@link #close}.
+     *
+     * @param shard  Часть.
+     * @param action Действие.
+     * @param always Выполнять ли действие и после ошибки.
+     */
+    private void enqueue(Shard shard, ShardAction action, boolean always) throws IOException {
+        try {
+            pending.acquire();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Запись частей прервана");
+        }
+        shard.tail = shard.tail.thenRunAsync(() -> {
+            try {
+                if (failure == null || always) action.run();
+            }
+            catch (IOException e) {
+                fail(e);
+            }
+            catch (UncheckedIOException e) {
+                fail(e.getCause());
+            }
+            catch (RuntimeException e) {
+                fail(new IOException(e));
+            }
+            finally {
+                pending.release();
+            }
+        }, POOL);
+    }
+
+    private synchronized void fail(IOException e) {
+        if (failure == null) failure = e;
+        else if (failure != e) failure.addSuppressed(e);
+    }
+
+    /**
+     * Дожидается выполнения всех задач частей.
+     *
+     * @throws IOException Если при записи произошла ошибка.
+     */
+    private void awaitAll() throws IOException {
+        CompletableFuture.allOf(shards.stream().map(shard -> shard.tail).toArray(CompletableFuture[]::new)).join();
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Загружает части предыдущего запуска из манифеста. В режиме добавления последняя часть становится текущей.
+     */
+    private void loadManifest() throws IOException {
+        if (!Files.exists(manifest)) return;
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(manifest)) {
+            properties.load(in);
+        }
+        boolean append = options.getOutputMode() == CommandLineOptions.OutputMode.APPEND;
+        try {
+            previousShards = Integer.parseInt(properties.getProperty("shards"));
+            if (!append) return;
+            for (int number = 1; number <= previousShards; number++) {
+                String prefix = "shard." + number + ".";
+                Shard shard = new Shard(number, Long.parseLong(properties.getProperty(prefix + "firstLine")),
+                        true, Statistics.load(properties, prefix + "stats."));
+                shard.lines = Long.parseLong(properties.getProperty(prefix + "lines"));
+                shard.bytes = Long.parseLong(properties.getProperty(prefix + "bytes"));
+                shards.add(shard);
+            }
+            lines = Long.parseLong(properties.getProperty("lines"));
+        }
+        catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("Поврежден манифест частей: " + manifest, e);
+        }
+        if (!shards.isEmpty()) current = shards.get(shards.size() - 1);
+    }
+
+    /**
+     * Записывает манифест частей. Манифест сначала пишется во временный файл, который затем атомарно заменяет прежний.
+     */
+    private void writeManifest() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("file", fileName);
+        properties.setProperty("shards", Integer.toString(shards.size()));
+        properties.setProperty("lines", Long.toString(lines));
+        for (Shard shard : shards) {
+            String prefix = "shard." + shard.number + ".";
+            properties.setProperty(prefix + "file", shard.path.getFileName().toString());
+            properties.setProperty(prefix + "firstLine", Long.toString(shard.firstLine));
+            properties.setProperty(prefix + "lastLine", Long.toString(shard.firstLine + shard.lines - 1));
+            properties.setProperty(prefix + "lines", Long.toString(shard.lines));
+            properties.setProperty(prefix + "bytes", Long.toString(shard.bytes));
+            shard.statistics.store(properties, prefix + "stats.");
+        }
+
+        CategoryWriters.prepare(manifest);
+        Path temp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "file-filter-util shards");
+        }
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Удаляет части предыдущего запуска с номерами больше последней записанной части.
+     */
+    private void removeStaleShards() throws IOException {
+        for (int number = shards.size() + 1; number <= previousShards; number++) {
+            Files.deleteIfExists(CategoryWriters.shardPath(options, fileName, number));
+        }
+    }
+
+    private static DataType builtIn(String fileName) {
+        for (DataType type : DataType.values()) {
+            if (type.getFileName().equals(fileName)) return type;
+        }
+        return null;
+    }
+
+    /**
+     * Вычисляет длину строки в кодировке UTF-8 без кодирования.
+     */
+    static int utf8Length(String line) {
+        int length = line.length();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c >= 0x800) {
+                // Суррогатная пара занимает 4 байта, то есть по 2 на каждый символ char
+                length += Character.isSurrogate(c) ? 1 : 2;
+            }
+            else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+}
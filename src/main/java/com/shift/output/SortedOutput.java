@@ -0,0 +1,419 @@
+package com.shift.output;
+
+import com.shift.cli.CommandLineOptions;
+import com.shift.data.DataType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Запись отсортированных выходных файлов внешней сортировкой слиянием.
+ * Строки каждой категории накапливаются в памяти; когда общий объем накопленных строк всех категорий
+ * превышает заданный бюджет, строки самой большой категории сортируются и сбрасываются в файл-серию
+ * во временный файл в директории результатов. При закрытии серии каждой категории сливаются в выходной файл
+ * k-путевым слиянием. Если серий больше {@value #FAN_IN}, они сначала сливаются группами в промежуточные серии,
+ * а независимые группы и категории сливаются параллельно на всех ядрах процессора.
+ * Порядок строк задается {@link LineOrder}: числовой для чисел и лексикографический для строк и пользовательских категорий.
+ * <p>
+ * В режиме добавления строки существующего выходного файла сортируются вместе с новыми,
+ * и файл целиком заменяется отсортированным. Выходной файл сначала пишется во временный,
+ * который затем атомарно заменяет прежний.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class SortedOutput implements Closeable {
+    /**
+     * Наибольшее количество серий в одном слиянии.
+     */
+    private static final int FAN_IN = 16;
+
+    /**
+     * Оценка занимаемой строкой памяти сверх ее символов: заголовки объектов, ключ и ссылка в буфере.
+     */
+    private static final int LINE_OVERHEAD = 72;
+
+    /**
+     * Настройки командной строки, определяющие путь, префикс, сжатие, режим записи и бюджет памяти.
+     */
+    private final CommandLineOptions options;
+
+    /**
+     * Сортировщики встроенных категорий.
+     */
+    private final Map<DataType, Sorter> sorters = new EnumMap<>(DataType.class);
+
+    /**
+     * Сортировщики пользовательских категорий по имени файла.
+     */
+    private final Map<String, Sorter> customSorters = new LinkedHashMap<>();
+
+    /**
+     * Оценка памяти, занятой накопленными строками всех категорий, в байтах.
+     */
+    private long bytes = 0;
+
+    /**
+     * Конструктор класса.
+     *
+     * @param options Настройки командной строки, переданные приложению.
+     */
+    public SortedOutput(CommandLineOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Добавляет строку встроенной категории.
+     *
+     * @param type Категория строки.
+     * @param line Строка.
+     * @throws IOException Если произошла ошибка при сбросе серии на диск.
+     */
+    public void add(DataType type, String line) throws IOException {
+        Sorter sorter = sorters.get(type);
+        if (sorter == null) {
+            sorter = new Sorter(type.getFileName(), LineOrder.of(type));
+            sorters.put(type, sorter);
+        }
+        add(sorter, line);
+    }
+
+    /**
+     * Добавляет строку пользовательской категории. Такие строки сортируются лексикографически.
+     *
+     * @param fileName Имя файла категории без префикса.
+     * @param line     Строка.
+     * @throws IOException Если произошла ошибка при сбросе серии на диск.
+     */
+    public void add(String fileName, String line) throws IOException {
+        Sorter sorter = customSorters.get(fileName);
+        if (sorter == null) {
+            sorter = new Sorter(fileName, LineOrder.TEXT);
+            customSorters.put(fileName, sorter);
+        }
+        add(sorter, line);
+    }
+
+    private void add(Sorter sorter, String line) throws IOException {
+        bytes += sorter.add(line);
+        if (bytes > options.getSortMemory()) {
+            Sorter largest = sorter;
+            for (Sorter candidate : all()) {
+                if (candidate.bytes > largest.bytes) largest = candidate;
+            }
+            bytes -= largest.spill();
+        }
+    }
+
+    private List<Sorter> all() {
+        List<Sorter> all = new ArrayList<>(sorters.values());
+        all.addAll(customSorters.values());
+        return all;
+    }
+
+    /**
+     * Сливает серии и записывает отсортированные выходные файлы, после чего удаляет временные файлы.
+     *
+     * @throws IOException Если произошла ошибка при чтении серий или записи файлов.
+     */
+    @Override
+    public void close() throws IOException {
+        List<Sorter> all = all();
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            if (options.getOutputMode() == CommandLineOptions.OutputMode.APPEND) {
+                for (Sorter sorter : all) readExisting(sorter);
+            }
+
+            // Сокращаем количество серий, пока каждую категорию нельзя слить за один проход
+            while (true) {
+                List<Sorter> owners = new ArrayList<>();
+                List<Future<Path>> merges = new ArrayList<>();
+                for (Sorter sorter : all) {
+                    if (sorter.runs.size() + 1 <= FAN_IN) continue;
+                    List<Path> runs = new ArrayList<>(sorter.runs);
+                    sorter.runs.clear();
+                    for (int from = 0; from < runs.size(); from += FAN_IN) {
+                        List<Path> group = runs.subList(from, Math.min(runs.size(), from + FAN_IN));
+                        if (group.size() == 1) {
+                            sorter.runs.add(group.get(0));
+                            continue;
+                        }
+                        owners.add(sorter);
+                        merges.add(pool.submit(() -> sorter.mergeToRun(group)));
+                    }
+                }
+                if (merges.isEmpty()) break;
+                for (int i = 0; i < merges.size(); i++) owners.get(i).runs.add(await(merges.get(i)));
+            }
+
+            List<Future<Path>> writes = new ArrayList<>();
+            for (Sorter sorter : all) writes.add(pool.submit(sorter::writeOutput));
+            for (Future<Path> write : writes) await(write);
+        }
+        finally {
+            pool.shutdownNow();
+            for (Sorter sorter : all) sorter.deleteRuns();
+            sorters.clear();
+            customSorters.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Удаляет временные файлы и накопленные строки без записи выходных файлов.
+     * Используется при ошибке обработки; после {@link #close()} ничего не делает.
+     *
+     * @throws IOException Если не удалось удалить хотя бы одну серию.
+     */
+    public void abort() throws IOException {
+        try {
+            for (Sorter sorter : all()) sorter.deleteRuns();
+        }
+        finally {
+            sorters.clear();
+            customSorters.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Добавляет к строкам категории строки существующего выходного файла.
+     */
+    private void readExisting(Sorter sorter) throws IOException {
+        Path path = CategoryWriters.outputPath(options, sorter.fileName);
+        if (!Files.exists(path)) return;
+        if (CategoryWriters.binaryType(options, sorter.fileName) != null) {
+            try (BinaryColumnReader reader = new BinaryColumnReader(path)) {
+                while (reader.next()) {
+                    for (int i = 0; i < reader.getBlock().count(); i++) add(sorter, reader.getText(i));
+                }
+            }
+            return;
+        }
+        InputStream in = Files.newInputStream(path);
+        if (options.isGzipOutput()) in = new GZIPInputStream(in, 64 * 1024);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024)) {
+            String line;
+            while ((line = reader.readLine()) != null) add(sorter, line);
+        }
+    }
+
+    /**
+     * Ожидает завершения слияния.
+     */
+    private static Path await(Future<Path> future) throws IOException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Сортировка прервана");
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            if (e.getCause() instanceof UncheckedIOException uncheckedException) throw uncheckedException.getCause();
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Сортировщик одной категории: буфер строк в памяти и файлы-серии на диске.
+     */
+    private final class Sorter {
+        private final String fileName;
+        private final LineOrder order;
+        private Keyed[] buffer = new Keyed[1024];
+        private int count = 0;
+        private long bytes = 0;
+        private final List<Path> runs = new ArrayList<>();
+
+        /**
+         * Все созданные серии, включая уже слитые, для удаления при закрытии. Серии создаются и параллельными слияниями.
+         */
+        private final List<Path> created = Collections.synchronizedList(new ArrayList<>());
+
+        private Sorter(String fileName, LineOrder order) {
+            this.fileName = fileName;
+            this.order = order;
+        }
+
+        /**
+         * Добавляет строку в буфер.
+         *
+         * @return Оценка памяти, занятой строкой.
+         */
+        private long add(String line) {
+            if (count == buffer.length) buffer = Arrays.copyOf(buffer, count * 2);
+            buffer[count++] = new Keyed(order.key(line), line);
+            long size = LINE_OVERHEAD + 2L * line.length();
+            bytes += size;
+            return size;
+        }
+
+        /**
+         * Сортирует буфер и записывает его в новую серию.
+         *
+         * @return Оценка освобожденной памяти.
+         */
+        private long spill() throws IOException {
+            sortBuffer();
+            Path run = newRun();
+            try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < count; i++) {
+                    writer.write(buffer[i].line());
+                    writer.newLine();
+                }
+            }
+            runs.add(run);
+            Arrays.fill(buffer, 0, count, null);
+            count = 0;
+            long freed = bytes;
+            bytes = 0;
+            return freed;
+        }
+
+        private void sortBuffer() {
+            Arrays.parallelSort(buffer, 0, count, (a, b) -> order.compare(a.key(), a.line(), b.key(), b.line()));
+        }
+
+        private Path newRun() throws IOException {
+            Path directory = Path.of(options.getOutputPath());
+            Files.createDirectories(directory);
+            Path run = Files.createTempFile(directory, "sort-", ".tmp");
+            created.add(run);
+            return run;
+        }
+
+        /**
+         * Сливает группу серий в новую серию и удаляет исходные.
+         */
+        private Path mergeToRun(List<Path> group) throws IOException {
+            Path run = newRun();
+            try (LineWriter writer = new TextLineWriter(Files.newBufferedWriter(run, StandardCharsets.UTF_8))) {
+                merge(group, null, writer);
+            }
+            for (Path path : group) Files.deleteIfExists(path);
+            return run;
+        }
+
+        /**
+         * Сливает серии и буфер в памяти в выходной файл категории.
+         */
+        private Path writeOutput() throws IOException {
+            sortBuffer();
+            Path target = CategoryWriters.outputPath(options, fileName);
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            DataType binary = CategoryWriters.binaryType(options, fileName);
+            LineWriter writer = binary != null ? new BinaryColumnWriter(Files.newOutputStream(temp), binary, true)
+                    : new TextLineWriter(options.isGzipOutput()
+                    ? new BufferedWriter(new OutputStreamWriter(new ParallelGzipOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))
+                    : Files.newBufferedWriter(temp, StandardCharsets.UTF_8));
+            try (writer) {
+                merge(runs, Arrays.asList(buffer).subList(0, count), writer);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return target;
+        }
+
+        /**
+         * K-путевое слияние отсортированных серий и, если задан, отсортированного списка строк.
+         */
+        private void merge(List<Path> group, List<Keyed> memory, LineWriter writer) throws IOException {
+            PriorityQueue<Cursor> queue = new PriorityQueue<>((a, b) -> order.compare(a.key, a.line, b.key, b.line));
+            List<BufferedReader> readers = new ArrayList<>();
+            try {
+                for (Path path : group) {
+                    BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+                    readers.add(reader);
+                    Cursor cursor = new Cursor(order, reader, null);
+                    if (cursor.advance()) queue.add(cursor);
+                }
+                if (memory != null) {
+                    Cursor cursor = new Cursor(order, null, memory.iterator());
+                    if (cursor.advance()) queue.add(cursor);
+                }
+                while (!queue.isEmpty()) {
+                    Cursor cursor = queue.poll();
+                    writer.write(cursor.line);
+                    if (cursor.advance()) queue.add(cursor);
+                }
+            }
+            finally {
+                for (BufferedReader reader : readers) reader.close();
+            }
+        }
+
+        private void deleteRuns() throws IOException {
+            for (Path run : created) Files.deleteIfExists(run);
+            created.clear();
+            runs.clear();
+        }
+    }
+
+    /**
+     * Строка с ключом сортировки.
+     */
+    private record Keyed(long key, String line) {
+    }
+
+    /**
+     * Текущая строка серии при слиянии: из файла или из списка в памяти.
+     */
+    private static final class Cursor {
+        private final LineOrder order;
+        private final BufferedReader reader;
+        private final Iterator<Keyed> iterator;
+        private long key;
+        private String line;
+
+        private Cursor(LineOrder order, BufferedReader reader, Iterator<Keyed> iterator) {
+            this.order = order;
+            this.reader = reader;
+            this.iterator = iterator;
+        }
+
+        private boolean advance() throws IOException {
+            if (reader != null) {
+                line = reader.readLine();
+                if (line != null) key = order.key(line);
+            }
+            else if (iterator.hasNext()) {
+                Keyed next = iterator.next();
+                key = next.key();
+                line = next.line();
+            }
+            else {
+                line = null;
+            }
+            return line != null;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.shift.output;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+/**
+ * Запись строк в текстовый файл через {@link BufferedWriter}.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class TextLineWriter implements LineWriter {
+    /**
+     * Буферизованный поток записи в файл.
+     */
+    private final BufferedWriter writer;
+
+    /**
+     * Конструктор класса.
+     *
+     * @param writer Буферизованный поток записи в файл.
+     */
+    public TextLineWriter(BufferedWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(String line) throws IOException {
+        writer.write(line);
+        writer.newLine();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,426 @@
+package com.shift.processor;
+
+import com.shift.cli.CommandLineOptions;
+import com.shift.data.DataType;
+import com.shift.data.Statistics;
+import com.shift.data.sketch.Hashing;
+import com.shift.output.CategoryWriters;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Побайтовая обработка файлов без декодирования строк в {@link String}.
+ * Входной файл отображается в память окнами (сжатый файл gzip читается потоком в буфер), строки находятся поиском байтов перевода строки
+ * и классифицируются прямо по байтам. Участки строк копируются в выходные каналы собирающей записью
+ * ({@link FileChannel#write(ByteBuffer[])}) без перекодирования. Подряд идущие строки одной категории,
+ * разделенные системным переводом строки, передаются одним участком.
+ * <p>
+ * Байты строк не проверяются на корректность UTF-8 и копируются как есть. Длина строк для статистики
+ * считается в символах {@code char}, как у {@link String#length()} для корректного UTF-8.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class ByteLineRouter implements Closeable {
+    /**
+     * Начальный размер окна отображения файла в память.
+     */
+    private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Начальный размер буфера для чтения сжатых файлов.
+     */
+    private static final int STREAM_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Наибольшее количество участков в одной собирающей записи.
+     */
+    private static final int MAX_GATHER = 1024;
+
+    /**
+     * Наибольшая длина строки целого числа, которое всегда помещается в {@code long}.
+     */
+    private static final int MAX_LONG_LENGTH = 18;
+
+    /**
+     * Системный перевод строки в байтах, как его пишет {@link java.io.BufferedWriter#newLine()}.
+     */
+    private static final byte[] SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Настройки командной строки, переданные приложению.
+     */
+    private final CommandLineOptions options;
+
+    /**
+     * Статистика, которая обновляется при обработке строк.
+     */
+    private final Statistics statistics;
+
+    /**
+     * Состояние вывода для каждой категории.
+     */
+    private final Map<DataType, Output> outputs = new EnumMap<>(DataType.class);
+
+    /**
+     * Отпечатки уже встреченных строк или {@code null}, если повторы не удаляются.
+     */
+    private final UniqueLines unique;
+
+    /**
+     * Количество отброшенных повторяющихся строк.
+     */
+    @Getter
+    private long duplicates = 0;
+
+    /**
+     * Конструктор класса.
+     *
+     * @param options    Настройки командной строки, переданные приложению.
+     * @param statistics Статистика, которая обновляется при обработке строк.
+     * @param unique     Отпечатки встреченных строк или {@code null}, если повторы не удаляются.
+     */
+    public ByteLineRouter(CommandLineOptions options, Statistics statistics, UniqueLines unique) {
+        this.options = options;
+        this.statistics = statistics;
+        this.unique = unique;
+    }
+
+    /**
+     * Обрабатывает файл: классифицирует его строки, обновляет статистику и копирует строки в выходные файлы.
+     * Разбиение на строки совпадает с {@link java.io.BufferedReader#readLine()}.
+     *
+     * @param filePath Путь к файлу.
+     * @throws IOException Если произошла ошибка при чтении или записи.
+     */
+    public void processFile(Path filePath) throws IOException {
+        if (InputFiles.isGzip(filePath)) {
+            // Сжатый файл нельзя отобразить в память, поэтому разбираем распакованный поток
+            try (InputStream in = InputFiles.newInputStream(filePath)) {
+                processStream(in);
+            }
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            int windowSize = WINDOW_SIZE;
+            while (position < size) {
+                int length = (int) Math.min(windowSize, size - position);
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length == size;
+                int end = last ? length : lastLineEnd(window, length);
+                if (end == 0) {
+                    // Строка длиннее окна: увеличиваем окно и повторяем
+                    if (windowSize == Integer.MAX_VALUE) throw new IOException("Слишком длинная строка в файле " + filePath);
+                    windowSize = (int) Math.min(Integer.MAX_VALUE, windowSize * 2L);
+                    continue;
+                }
+                processWindow(window, end);
+                // Участки окна должны быть записаны до того, как окно станет недоступно
+                writePending();
+                position += end;
+            }
+        }
+    }
+
+    /**
+     * Обрабатывает поток байтов, читая его в буфер в куче. Используется для сжатых файлов.
+     *
+     * @param in Поток байтов.
+     * @throws IOException Если произошла ошибка при чтении или записи.
+     */
+    private void processStream(InputStream in) throws IOException {
+        byte[] data = new byte[STREAM_BUFFER_SIZE];
+        int length = 0;
+        while (true) {
+            int read = in.read(data, length, data.length - length);
+            if (read < 0) {
+                if (length > 0) {
+                    processWindow(ByteBuffer.wrap(data), length);
+                    writePending();
+                }
+                return;
+            }
+            length += read;
+            if (length < data.length) continue;
+
+            ByteBuffer window = ByteBuffer.wrap(data);
+            int end = lastLineEnd(window, length);
+            if (end == 0) {
+                // Строка длиннее буфера: увеличиваем буфер
+                if (data.length >= Integer.MAX_VALUE / 2) throw new IOException("Слишком длинная строка во входном потоке");
+                data = Arrays.copyOf(data, data.length * 2);
+                continue;
+            }
+            processWindow(window, end);
+            // Участки буфера должны быть записаны до того, как буфер будет перезаписан
+            writePending();
+            System.arraycopy(data, end, data, 0, length - end);
+            length -= end;
+        }
+    }
+
+    /**
+     * Находит конец последней целой строки окна, которое не заканчивается концом файла.
+     * Символ {@code \r} в самом конце окна не считается концом строки: за ним может следовать {@code \n}.
+     *
+     * @param window Окно файла.
+     * @param length Длина окна.
+     * @return Позиция сразу после последнего перевода строки или 0, если в окне нет целой строки.
+     */
+    private static int lastLineEnd(ByteBuffer window, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            byte b = window.get(i);
+            if (b == '\n') return i + 1;
+            if (b == '\r' && i < length - 1) return i + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Разбирает строки окна до позиции {@code end}.
+     *
+     * @param window Окно файла.
+     * @param end    Позиция после последней целой строки окна.
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void processWindow(ByteBuffer window, int end) throws IOException {
+        int lineStart = 0;
+        int i = 0;
+        while (i < end) {
+            byte b = window.get(i);
+            if (b == '\n' || b == '\r') {
+                int terminatorEnd = b == '\r' && i + 1 < end && window.get(i + 1) == '\n' ? i + 2 : i + 1;
+                routeLine(window, lineStart, i, terminatorEnd);
+                lineStart = terminatorEnd;
+                i = terminatorEnd;
+            }
+            else {
+                i++;
+            }
+        }
+        if (lineStart < end) {
+            routeLine(window, lineStart, end, end);
+        }
+    }
+
+    /**
+     * Классифицирует строку, обновляет статистику и добавляет строку к выводу категории.
+     * Повторяющаяся строка в режиме удаления повторов пропускается: текущий участок вывода на ней прерывается.
+     *
+     * @param window        Окно файла.
+     * @param start         Начало строки.
+     * @param end           Конец строки без перевода строки.
+     * @param terminatorEnd Позиция после перевода строки (равна {@code end}, если перевода нет).
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void routeLine(ByteBuffer window, int start, int end, int terminatorEnd) throws IOException {
+        if (unique != null && !unique.add(window, start, end)) {
+            duplicates++;
+            return;
+        }
+        DataType type = LineClassifier.classify(window, start, end);
+        switch (type) {
+            case INTEGER -> {
+                if (end - start <= MAX_LONG_LENGTH) statistics.updateIntegerStatistics(parseLong(window, start, end));
+                else statistics.updateIntegerStatistics(new BigInteger(ascii(window, start, end)));
+            }
+            case FLOAT -> statistics.updateFloatStatistics(new BigDecimal(asciiChars(window, start, end)));
+            default -> {
+                int length = utf16Length(window, start, end);
+                if (statistics.isSketchesEnabled()) statistics.updateStringStatistics(length, Hashing.hash64(window, start, end));
+                else statistics.updateStringStatistics(length);
+            }
+        }
+
+        Output output = outputs.get(type);
+        if (output == null) {
+            output = new Output(CategoryWriters.openChannel(options, type.getFileName()));
+            outputs.put(type, output);
+        }
+        output.add(window, start, end, terminatorEnd);
+    }
+
+    /**
+     * Записывает накопленные участки всех категорий в выходные каналы.
+     *
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void writePending() throws IOException {
+        for (Output output : outputs.values()) {
+            output.write();
+        }
+    }
+
+    /**
+     * Закрывает выходные каналы.
+     *
+     * @throws IOException Если произошла ошибка при закрытии хотя бы одного канала.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Output output : outputs.values()) {
+            try {
+                output.channel.close();
+            }
+            catch (IOException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        outputs.clear();
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Разбирает целое число из ASCII-байтов. Число должно помещаться в {@code long}.
+     */
+    private static long parseLong(ByteBuffer bytes, int start, int end) {
+        boolean negative = bytes.get(start) == '-';
+        long value = 0;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            value = value * 10 + (bytes.get(i) - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Копирует ASCII-байты в массив символов.
+     */
+    private static char[] asciiChars(ByteBuffer bytes, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) chars[i - start] = (char) bytes.get(i);
+        return chars;
+    }
+
+    /**
+     * Создает строку из ASCII-байтов.
+     */
+    private static String ascii(ByteBuffer bytes, int start, int end) {
+        return new String(asciiChars(bytes, start, end));
+    }
+
+    /**
+     * Вычисляет длину строки UTF-8 в символах {@code char}: каждый байт, не являющийся продолжением
+     * многобайтового символа, дает один символ, а четырехбайтовые символы дают суррогатную пару.
+     */
+    private static int utf16Length(ByteBuffer bytes, int start, int end) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            int b = bytes.get(i) & 0xFF;
+            if ((b & 0xC0) != 0x80) length++;
+            if (b >= 0xF0) length++;
+        }
+        return length;
+    }
+
+    /**
+     * Вывод одной категории: канал файла и участки окна, ожидающие записи.
+     */
+    private static final class Output {
+        private final WritableByteChannel channel;
+        private final ByteBuffer[] pending = new ByteBuffer[MAX_GATHER];
+        private int count = 0;
+
+        /**
+         * Окно и границы текущего непрерывного участка, который еще можно расширить.
+         */
+        private ByteBuffer runWindow;
+        private int runStart;
+        private int runEnd;
+
+        private Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Добавляет строку к выводу. Если строка продолжает текущий участок и заканчивается системным
+         * переводом строки, участок расширяется; иначе строка и перевод строки добавляются отдельно.
+         */
+        private void add(ByteBuffer window, int start, int end, int terminatorEnd) throws IOException {
+            boolean nativeTerminator = terminatorEnd - end == SEPARATOR.length && matchesSeparator(window, end);
+            if (runWindow == window && runEnd == start) {
+                if (nativeTerminator) {
+                    runEnd = terminatorEnd;
+                    return;
+                }
+            }
+            else {
+                closeRun();
+                if (nativeTerminator) {
+                    runWindow = window;
+                    runStart = start;
+                    runEnd = terminatorEnd;
+                    return;
+                }
+            }
+            // Перевод строки отличается от системного: копируем строку без него и добавляем системный
+            closeRun();
+            if (end > start) append(window.slice(start, end - start));
+            append(ByteBuffer.wrap(SEPARATOR));
+        }
+
+        private static boolean matchesSeparator(ByteBuffer window, int position) {
+            for (int i = 0; i < SEPARATOR.length; i++) {
+                if (window.get(position + i) != SEPARATOR[i]) return false;
+            }
+            return true;
+        }
+
+        private void closeRun() throws IOException {
+            if (runWindow != null) {
+                ByteBuffer run = runWindow.slice(runStart, runEnd - runStart);
+                runWindow = null;
+                append(run);
+            }
+        }
+
+        private void append(ByteBuffer buffer) throws IOException {
+            if (count == pending.length) flushPending();
+            pending[count++] = buffer;
+        }
+
+        /**
+         * Записывает все участки, включая текущий непрерывный.
+         */
+        private void write() throws IOException {
+            closeRun();
+            flushPending();
+        }
+
+        private void flushPending() throws IOException {
+            if (channel instanceof GatheringByteChannel gathering) {
+                int offset = 0;
+                while (offset < count) {
+                    gathering.write(pending, offset, count - offset);
+                    while (offset < count && !pending[offset].hasRemaining()) offset++;
+                }
+            }
+            else {
+                for (int i = 0; i < count; i++) {
+                    while (pending[i].hasRemaining()) channel.write(pending[i]);
+                }
+            }
+            Arrays.fill(pending, 0, count, null);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.shift.processor;
+
+import com.shift.cli.CommandLineOptions;
+import com.shift.data.Statistics;
+import com.shift.data.sketch.Hashing;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Манифест контрольной точки для инкрементальной обработки.
+ * Хранится в директории результатов в файле {@code <префикс>checkpoint.properties} и содержит
+ * для каждого входного файла его идентификатор в файловой системе (inode), размер, время изменения,
+ * отпечаток начала файла и смещение, до которого файл уже обработан, а также накопленную статистику всех запусков.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class Checkpoint {
+    /**
+     * Имя файла манифеста (без префикса).
+     */
+    public static final String FILE_NAME = "checkpoint.properties";
+
+    /**
+     * Наибольшее количество первых байтов файла, по которым вычисляется отпечаток.
+     */
+    static final int HEAD_SIZE = 4096;
+
+    /**
+     * Путь к файлу манифеста или {@code null} для состояния, которое хранится только в памяти.
+     */
+    private final Path path;
+
+    /**
+     * Состояние входных файлов по абсолютному пути.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Накопленная статистика предыдущих запусков.
+     */
+    @Getter
+    private final Statistics statistics;
+
+    /**
+     * Состояние одного входного файла.
+     *
+     * @param key    Идентификатор файла в файловой системе (например, устройство и inode).
+     * @param size   Размер файла при последней обработке.
+     * @param mtime  Время изменения файла при последней обработке, в миллисекундах.
+     * @param offset Смещение в байтах, до которого файл обработан.
+     * @param head   Отпечаток начала файла (см. {@link #fingerprint(Path, long)}) или {@code null}
+     *               для манифестов, сохраненных без отпечатков.
+     */
+    public record Entry(String key, long size, long mtime, long offset, String head) {
+
+        /**
+         * Проверяет формат отпечатка, чтобы поврежденный манифест отклонялся при загрузке.
+         *
+         * @throws IllegalArgumentException Если отпечаток не имеет вид {@code <количество>:<хеш>}.
+         */
+        public Entry {
+            if (head != null && !head.matches("\\d{1,4}:[0-9a-f]{1,16}")) {
+                throw new IllegalArgumentException("Некорректный отпечаток файла: " + head);
+            }
+        }
+
+        /**
+         * Создает состояние по текущим атрибутам файла и запоминает отпечаток первых
+         * {@code min(offset, HEAD_SIZE)} байтов.
+         *
+         * @param filePath   Путь к файлу.
+         * @param attributes Атрибуты файла.
+         * @param offset     Смещение, до которого файл обработан.
+         * @return Состояние файла.
+         * @throws IOException Если не удалось прочитать начало файла.
+         */
+        public static Entry of(Path filePath, BasicFileAttributes attributes, long offset) throws IOException {
+            return new Entry(String.valueOf(attributes.fileKey()), attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), offset, fingerprint(filePath, Math.min(offset, HEAD_SIZE)));
+        }
+
+        /**
+         * Проверяет, можно ли продолжить чтение файла с сохраненного смещения.
+         * Нельзя, если файл был заменен (изменился идентификатор), усечен (размер стал меньше)
+         * или переписан на месте: при ротации copytruncate файл может вырасти больше прежнего размера,
+         * а копирование поверх сохраняет inode, поэтому дополнительно сравнивается отпечаток начала файла.
+         *
+         * @param filePath   Путь к файлу.
+         * @param attributes Текущие атрибуты файла.
+         * @return {@code true}, если файл только дописывался.
+         * @throws IOException Если не удалось прочитать начало файла.
+         */
+        public boolean canResume(Path filePath, BasicFileAttributes attributes) throws IOException {
+            if (!key.equals(String.valueOf(attributes.fileKey())) || attributes.size() < size) return false;
+            return head == null || head.equals(fingerprint(filePath, Long.parseLong(head.substring(0, head.indexOf(':')))));
+        }
+
+        /**
+         * Проверяет, что файл не изменился с последней обработки.
+         *
+         * @param attributes Текущие атрибуты файла.
+         * @return {@code true}, если идентификатор, размер и время изменения совпадают.
+         */
+        public boolean isUnchanged(BasicFileAttributes attributes) {
+            return key.equals(String.valueOf(attributes.fileKey())) && attributes.size() == size
+                    && attributes.lastModifiedTime().toMillis() == mtime;
+        }
+    }
+
+    /**
+     * Вычисляет отпечаток первых байтов файла: количество прочитанных байтов и их 64-битный хеш
+     * в виде {@code <количество>:<хеш>}. Если файл короче, читается сколько есть,
+     * и отпечаток отличается от отпечатка прежнего, более длинного начала.
+     *
+     * @param filePath Путь к файлу.
+     * @param length   Количество байтов.
+     * @return Отпечаток.
+     * @throws IOException Если не удалось прочитать файл.
+     */
+    static String fingerprint(Path filePath, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, HEAD_SIZE));
+        try (FileChannel channel = FileChannel.open(filePath)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) break;
+            }
+        }
+        return buffer.position() + ":" + Long.toHexString(Hashing.hash64(buffer, 0, buffer.position()));
+    }
+
+    private Checkpoint(Path path, Statistics statistics) {
+        this.path = path;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Создает состояние, которое хранится только в памяти и не сохраняется на диск.
+     * Используется в режиме слежения за файлами без инкрементального режима.
+     *
+     * @return Пустое состояние.
+     */
+    public static Checkpoint inMemory() {
+        return new Checkpoint(null, new Statistics());
+    }
+
+    /**
+     * Загружает манифест из директории результатов. Если манифеста нет, создается пустой.
+     * Вероятностные сводки нельзя дополнить данными предыдущих запусков или отбросить без потери,
+     * поэтому манифест, сохраненный с другим значением флага {@code --sketches}, отклоняется.
+     *
+     * @param options Настройки командной строки, определяющие директорию, префикс и флаг сводок.
+     * @return Манифест контрольной точки.
+     * @throws IOException Если манифест не удалось прочитать, он поврежден или сохранен с другим флагом сводок.
+     */
+    public static Checkpoint load(CommandLineOptions options) throws IOException {
+        Path path = Path.of(options.getOutputPath(), options.getPrefix() + FILE_NAME);
+        if (!Files.exists(path)) {
+            return new Checkpoint(path, new Statistics());
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+        try {
+            Checkpoint checkpoint = new Checkpoint(path, Statistics.load(properties, "stats."));
+            if (checkpoint.statistics.isSketchesEnabled() != options.isSketches()) {
+                throw new IOException("Манифест контрольной точки " + path + " сохранен "
+                        + (options.isSketches() ? "без" : "с") + " опции --sketches: запустите обработку "
+                        + (options.isSketches() ? "без" : "с") + " ней или удалите манифест, чтобы начать заново");
+            }
+            int count = Integer.parseInt(properties.getProperty("files", "0"));
+            for (int i = 0; i < count; i++) {
+                String prefix = "file." + i + ".";
+                checkpoint.entries.put(properties.getProperty(prefix + "path"), new Entry(
+                        properties.getProperty(prefix + "key"),
+                        Long.parseLong(properties.getProperty(prefix + "size")),
+                        Long.parseLong(properties.getProperty(prefix + "mtime")),
+                        Long.parseLong(properties.getProperty(prefix + "offset")),
+                        properties.getProperty(prefix + "head")));
+            }
+            return checkpoint;
+        }
+        catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("Поврежден манифест контрольной точки: " + path, e);
+        }
+    }
+
+    /**
+     * Возвращает сохраненное состояние входного файла.
+     *
+     * @param filePath Путь к входному файлу.
+     * @return Состояние файла или {@code null}, если файл еще не обрабатывался.
+     */
+    public Entry get(Path filePath) {
+        return entries.get(key(filePath));
+    }
+
+    /**
+     * Запоминает новое состояние входного файла.
+     *
+     * @param filePath Путь к входному файлу.
+     * @param entry    Новое состояние.
+     */
+    public void put(Path filePath, Entry entry) {
+        entries.put(key(filePath), entry);
+    }
+
+    /**
+     * Сохраняет манифест вместе с накопленной статистикой.
+     * Манифест сначала пишется во временный файл, который затем атомарно заменяет прежний,
+     * поэтому при сбое во время записи остается предыдущая версия. Состояние в памяти не сохраняется.
+     *
+     * @param total Накопленная статистика всех запусков, включая текущий.
+     * @throws IOException Если произошла ошибка при записи манифеста.
+     */
+    public void save(Statistics total) throws IOException {
+        if (path == null) return;
+
+        Properties properties = new Properties();
+        total.store(properties, "stats.");
+        properties.setProperty("files", Integer.toString(entries.size()));
+        int i = 0;
+        for (Map.Entry<String, Entry> file : entries.entrySet()) {
+            String prefix = "file." + i++ + ".";
+            properties.setProperty(prefix + "path", file.getKey());
+            properties.setProperty(prefix + "key", file.getValue().key());
+            properties.setProperty(prefix + "size", Long.toString(file.getValue().size()));
+            properties.setProperty(prefix + "mtime", Long.toString(file.getValue().mtime()));
+            properties.setProperty(prefix + "offset", Long.toString(file.getValue().offset()));
+            if (file.getValue().head() != null) properties.setProperty(prefix + "head", file.getValue().head());
+        }
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "file-filter-util checkpoint");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String key(Path filePath) {
+        return filePath.toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,205 @@
+package com.shift.processor;
+
+import com.shift.cli.CommandLineOptions;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Слежение за входными файлами, которые продолжают дописываться (например, журналами приложений).
+ * Сначала файлы обрабатываются целиком, затем при каждом изменении обрабатываются только новые завершенные строки.
+ * Об изменениях сообщает {@link WatchService}, а периодический опрос с интервалом {@code --poll-interval}
+ * подстраховывает файловые системы, на которых уведомления не работают или теряются.
+ * Замененные (после ротации) или усеченные файлы читаются заново с начала, а еще не созданные
+ * файлы пропускаются, пока не появятся.
+ * Выходные файлы периодически сбрасываются на диск, а статистика выводится с интервалом {@code --stats-interval}.
+ * Слежение продолжается до вызова {@link #stop()}.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class FileFollower {
+    /**
+     * Обработчик, которому передаются новые строки.
+     */
+    private final FileProcessor processor;
+
+    /**
+     * Файлы, за которыми ведется слежение.
+     */
+    private final List<Path> filePaths;
+
+    /**
+     * Поток для периодического вывода статистики.
+     */
+    private final PrintStream out;
+
+    /**
+     * Интервалы опроса, сброса и вывода статистики в наносекундах.
+     */
+    private final long pollInterval;
+    private final long flushInterval;
+    private final long statsInterval;
+
+    /**
+     * Сигнал остановки слежения.
+     */
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * Служба уведомлений об изменениях или {@code null}, если она недоступна.
+     */
+    private volatile WatchService watcher;
+
+    /**
+     * Конструктор класса.
+     *
+     * @param processor Обработчик, которому передаются новые строки.
+     * @param filePaths Файлы, за которыми ведется слежение.
+     * @param out       Поток для периодического вывода статистики (тот же, что и для итоговой статистики).
+     */
+    public FileFollower(FileProcessor processor, List<Path> filePaths, PrintStream out) {
+        CommandLineOptions options = processor.getOptions();
+        this.processor = processor;
+        this.filePaths = filePaths;
+        this.out = out;
+        this.pollInterval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, options.getPollInterval()));
+        this.flushInterval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, options.getFlushInterval()));
+        this.statsInterval = TimeUnit.MILLISECONDS.toNanos(options.getStatsInterval());
+    }
+
+    /**
+     * Обрабатывает файлы и следит за ними до вызова {@link #stop()}.
+     * После возврата выходные файлы остаются открытыми: их нужно закрыть через {@link FileProcessor#writeResults()}.
+     *
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    public void follow() throws IOException {
+        processor.startFollowing();
+        processor.processFiles(filePaths);
+        processor.flush();
+
+        watcher = openWatcher();
+        try {
+            long now = System.nanoTime();
+            long nextFlush = now + flushInterval;
+            long nextStats = now + statsInterval;
+            // Ожидание не дольше, чем до ближайшего сброса или вывода статистики, чтобы их интервалы соблюдались
+            // и при интервале опроса больше них
+            while (awaitChange(Math.min(pollInterval, Math.min(nextFlush - now,
+                    statsInterval > 0 ? nextStats - now : Long.MAX_VALUE)))) {
+                for (Path filePath : filePaths) {
+                    // Файл мог быть удален при ротации: ждем, пока он появится снова
+                    if (Files.exists(filePath)) {
+                        processor.processFile(filePath);
+                    }
+                }
+
+                now = System.nanoTime();
+                if (now - nextFlush >= 0) {
+                    processor.flush();
+                    nextFlush = now + flushInterval;
+                }
+                if (statsInterval > 0 && now - nextStats >= 0) {
+                    processor.printStatistics(out);
+                    nextStats = now + statsInterval;
+                }
+            }
+        }
+        finally {
+            WatchService service = watcher;
+            if (service != null) service.close();
+        }
+    }
+
+    /**
+     * Останавливает слежение. Метод можно вызывать из любого потока, в том числе из обработчика завершения JVM.
+     */
+    public void stop() {
+        stopped.countDown();
+        WatchService service = watcher;
+        if (service != null) {
+            try {
+                service.close();
+            }
+            catch (IOException ignored) {
+                // Слежение все равно завершится по сигналу остановки
+            }
+        }
+    }
+
+    /**
+     * Ожидает уведомления об изменении файлов или истечения времени ожидания.
+     *
+     * @param timeout Наибольшее время ожидания в наносекундах; ноль или меньше - без ожидания.
+     * @return {@code false}, если слежение остановлено.
+     */
+    private boolean awaitChange(long timeout) {
+        try {
+            WatchService service = watcher;
+            if (service != null && stopped.getCount() > 0) {
+                WatchKey key = service.poll(Math.max(0, timeout), TimeUnit.NANOSECONDS);
+                // События только будят цикл: какие файлы изменились, проверяется по их атрибутам
+                while (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                    key = service.poll();
+                }
+                return stopped.getCount() > 0;
+            }
+            return !stopped.await(Math.max(0, timeout), TimeUnit.NANOSECONDS);
+        }
+        catch (ClosedWatchServiceException e) {
+            return false;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Регистрирует директории входных файлов в службе уведомлений.
+     *
+     * @return Служба уведомлений или {@code null}, если уведомления недоступны и остается только опрос.
+     */
+    private WatchService openWatcher() {
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Path filePath : filePaths) {
+            Path directory = filePath.toAbsolutePath().getParent();
+            if (directory != null && Files.isDirectory(directory)) directories.add(directory);
+        }
+
+        WatchService service = null;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+            for (Path directory : directories) {
+                directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            return service;
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            if (service != null) {
+                try {
+                    service.close();
+                }
+                catch (IOException ignored) {
+                    // Служба уведомлений не используется
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -1,18 +1,41 @@
 package com.shift.processor;
 
+import com.shift.category.Categories;
+import com.shift.category.Category;
+import com.shift.category.CategoryDispatcher;
+import com.shift.data.CategoryStatistics;
+import com.shift.data.DataType;
 import com.shift.data.Statistics;
 import com.shift.cli.CommandLineOptions;
+import com.shift.output.CategoryWriters;
+import com.shift.output.LineWriter;
+import com.shift.output.SortedOutput;
+import com.shift.report.FileProcessedEvent;
+import com.shift.report.RunMetrics;
 import lombok.Getter;
+import lombok.Setter;
 
-import java.io.BufferedWriter;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.BigInteger;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
 import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Класс, отвечающий за обработку файлов и разделение их содержимого на категории: целые числа, вещественные числа и строки.
@@ -22,7 +45,12 @@ import java.util.List;
  * @version 1.0
  */
 @Getter
-public class FileProcessor {
+public class FileProcessor implements Closeable {
+    /**
+     * Встроенные категории по номеру.
+     */
+    private static final DataType[] DATA_TYPES = DataType.values();
+
     /**
      * Настройки командной строки, переданные приложению.
      */
@@ -35,60 +63,686 @@ public class FileProcessor {
     private final List<String> floats = new ArrayList<>();
     private final List<String> strings = new ArrayList<>();
 
+    /**
+     * Списки строк пользовательских категорий в порядке их номеров.
+     */
+    private final List<List<String>> customLines = new ArrayList<>();
+
+    /**
+     * Классификатор с пользовательскими категориями.
+     * Равен {@code null}, если пользовательских категорий нет и используется {@link LineClassifier}.
+     */
+    private final CategoryDispatcher dispatcher;
+
     /**
      * Объект для сбора статистики по обработанным данным.
      */
-    private final Statistics statistics = new Statistics();
+    private final Statistics statistics;
+
+    /**
+     * Открытые выходные файлы для потокового режима.
+     * Равен {@code null}, если потоковый режим не включен.
+     */
+    private final CategoryWriters writers;
+
+    /**
+     * Сортировка выходных файлов.
+     * Равна {@code null}, если сортировка не включена.
+     */
+    private final SortedOutput sorted;
+
+    /**
+     * Побайтовая обработка файлов без декодирования строк.
+     * Равна {@code null}, если побайтовый режим не включен.
+     */
+    private final ByteLineRouter byteRouter;
+
+    /**
+     * Манифест контрольной точки для инкрементальной обработки.
+     * Равен {@code null}, если инкрементальный режим не включен.
+     */
+    private Checkpoint checkpoint;
+
+    /**
+     * Замеры запуска: объем и время обработки файлов и время этапов.
+     */
+    private final RunMetrics metrics;
+
+    /**
+     * Отпечатки уже встреченных строк для режима удаления повторов.
+     * Равно {@code null}, если режим не включен.
+     */
+    private final UniqueLines unique;
+
+    /**
+     * Количество отброшенных повторяющихся строк.
+     */
+    private long duplicates = 0;
+
+    /**
+     * Поток для сообщений о пропущенных файлах. В режиме демона сообщения передаются клиенту.
+     */
+    @Setter
+    private PrintStream errors = System.err;
 
     /**
      * Конструктор класса.
+     * Загружает пользовательские категории из поставщиков {@link com.shift.category.CategoryProvider}
+     * и из файла описания категорий, если он указан.
      *
      * @param options Настройки командной строки, переданные приложению.
+     * @throws IllegalArgumentException Если описание пользовательских категорий содержит ошибку.
+     * @throws java.io.UncheckedIOException Если файл описания категорий не удалось прочитать.
      */
     public FileProcessor(CommandLineOptions options) {
+        this(options, options.isStreaming() || options.isAsyncWrite() || options.isByteMode() || options.isFollow(),
+                Categories.load(options),
+                options.isUnique() ? new UniqueLines(Path.of(options.getOutputPath()), options.getUniqueMemory()) : null,
+                options.isSort() ? new SortedOutput(options) : null);
+        metrics.begin(options);
+    }
+
+    /**
+     * Включает инкрементальный режим: загружает манифест контрольной точки из директории результатов
+     * и добавляет к статистике накопленную статистику предыдущих запусков.
+     * После этого {@link #processFile(Path)} обрабатывает только байты, дописанные с прошлого запуска,
+     * а {@link #writeResults()} сохраняет обновленный манифест.
+     *
+     * @throws IOException Если манифест не удалось прочитать или он поврежден.
+     */
+    public void loadCheckpoint() throws IOException {
+        checkpoint = Checkpoint.load(options);
+        statistics.merge(checkpoint.getStatistics());
+        if (unique != null) {
+            unique.load(uniquePath());
+        }
+    }
+
+    /**
+     * Возвращает путь к файлу отпечатков строк, который в инкрементальном режиме хранится рядом с манифестом.
+     *
+     * @return Путь к файлу отпечатков.
+     */
+    private Path uniquePath() {
+        return Path.of(options.getOutputPath(), options.getPrefix() + UniqueLines.FILE_NAME);
+    }
+
+    /**
+     * Сохраняет манифест контрольной точки и, в инкрементальном режиме с удалением повторов, отпечатки строк.
+     * Манифест сохраняется первым: если запуск прервется между двумя записями, повторы строк
+     * могут попасть в выходные файлы еще раз, но ни одна строка не будет потеряна.
+     *
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void saveCheckpoint() throws IOException {
+        checkpoint.save(statistics);
+        if (unique != null && options.isIncremental()) {
+            unique.save(uniquePath());
+        }
+    }
+
+    /**
+     * Подготавливает обработчик к слежению за файлами: если манифест контрольной точки не загружен,
+     * смещения обработанных данных запоминаются только в памяти.
+     * Повторный вызов {@link #processFile(Path)} после этого обрабатывает только новые завершенные строки.
+     */
+    public void startFollowing() {
+        if (checkpoint == null) {
+            checkpoint = Checkpoint.inMemory();
+        }
+    }
+
+    /**
+     * Сбрасывает записанные строки на диск и сохраняет манифест контрольной точки, если он ведется.
+     * Используется для периодического сброса в режиме слежения за файлами.
+     *
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    public void flush() throws IOException {
+        if (writers != null) {
+            writers.flush();
+        }
+        if (checkpoint != null) {
+            saveCheckpoint();
+        }
+    }
+
+    /**
+     * Конструктор класса с явным выбором режима хранения строк.
+     * Используется для частичных результатов, которые всегда накапливаются в памяти.
+     *
+     * @param options    Настройки командной строки, переданные приложению.
+     * @param streaming  Записывать ли строки сразу в выходные файлы.
+     * @param dispatcher Классификатор с пользовательскими категориями или {@code null}.
+     * @param unique     Отпечатки встреченных строк или {@code null}, если повторы не удаляются.
+     * @param sorted     Сортировка выходных файлов или {@code null}, если сортировка не включена.
+     * @throws IllegalArgumentException Если сортировка сочетается с режимом слежения или делением на части,
+     *                                  или двоичный формат - со сжатием.
+     */
+    private FileProcessor(CommandLineOptions options, boolean streaming, CategoryDispatcher dispatcher, UniqueLines unique,
+                          SortedOutput sorted) {
+        if (sorted != null && options.isFollow()) {
+            throw new IllegalArgumentException("сортировка выходных файлов несовместима с режимом слежения");
+        }
+        if (options.getFormat() == CommandLineOptions.OutputFormat.BINARY && options.isGzipOutput()) {
+            throw new IllegalArgumentException("двоичный формат несовместим со сжатием gzip");
+        }
+        if (sorted != null && options.isSharded()) {
+            throw new IllegalArgumentException("сортировка выходных файлов несовместима с делением на части");
+        }
         this.options = options;
+        this.dispatcher = dispatcher;
+        this.unique = unique;
+        this.sorted = sorted;
+        this.statistics = new Statistics(options.isSketches());
+        this.metrics = new RunMetrics(RunMetrics.isSamplingRequested(options),
+                dispatcher != null ? dispatcher.getCategories() : List.of());
+        if (dispatcher != null) {
+            for (Category category : dispatcher.getCategories()) {
+                statistics.addCategory(category.name());
+                customLines.add(new ArrayList<>());
+            }
+        }
+        // Инкрементальная обработка и слежение за файлами читают строки с заданного смещения,
+        // пользовательские категории классифицируются по символам, а сортировке, двоичному формату и делению на части
+        // нужны строки, поэтому в этих случаях побайтовый режим не используется
+        this.byteRouter = streaming && options.isByteMode() && !options.isIncremental() && !options.isFollow()
+                && dispatcher == null && sorted == null && options.getFormat() == CommandLineOptions.OutputFormat.TEXT
+                && !options.isSharded()
+                ? new ByteLineRouter(options, statistics, unique) : null;
+        this.writers = streaming && byteRouter == null && sorted == null ? new CategoryWriters(options) : null;
+    }
+
+    /**
+     * Обрабатывает список файлов.
+     * Если в настройках указано больше одного потока, файлы обрабатываются параллельно:
+     * каждый файл разбирается в отдельный частичный результат со своей статистикой,
+     * а частичные результаты объединяются строго в порядке входных файлов.
+     * Поэтому содержимое выходных файлов не зависит от количества потоков.
+     * Если задано одновременное чтение нескольких файлов ({@code --concurrency}), частичные результаты
+     * строятся в виртуальных потоках: ожидание открытия и чтения одних файлов перекрывается разбором других.
+     * В режиме удаления повторов файлы всегда обрабатываются последовательно: первое вхождение строки
+     * определяется порядком строк, и частичные результаты не могут отбросить повторы независимо друг от друга.
+     *
+     * @param filePaths Пути к файлам в порядке обработки.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    public void processFiles(List<Path> filePaths) throws IOException {
+        int threads = options.getThreads();
+        int concurrency = options.getConcurrency();
+        // При отображении в память параллельно разбираются части одного файла, а не разные файлы,
+        // а побайтовый режим пишет строки напрямую и обрабатывает файлы по очереди
+        if (threads <= 1 && concurrency <= 1 || filePaths.size() <= 1 || options.isMemoryMapped() || byteRouter != null
+                || checkpoint != null || unique != null) {
+            for (Path filePath : filePaths) {
+                processFile(filePath);
+            }
+            return;
+        }
+
+        boolean virtual = concurrency > 1;
+        ExecutorService executor = virtual ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(Math.min(threads, filePaths.size()));
+        try {
+            // Ограничиваем количество файлов, ожидающих объединения, чтобы не держать в памяти все результаты;
+            // для виртуальных потоков это же окно ограничивает количество одновременно открытых файлов
+            int window = virtual ? concurrency : threads * 2;
+            Deque<Future<FileProcessor>> pending = new ArrayDeque<>();
+            int next = 0;
+            while (next < filePaths.size() || !pending.isEmpty()) {
+                while (next < filePaths.size() && pending.size() < window) {
+                    Path filePath = filePaths.get(next++);
+                    pending.add(executor.submit(() -> {
+                        FileProcessor partial = new FileProcessor(options, false, dispatcher, null, null);
+                        partial.errors = errors;
+                        partial.processFile(filePath);
+                        return partial;
+                    }));
+                }
+                merge(await(pending.poll()));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Ожидает частичный результат обработки файла.
+     *
+     * @param future Задача обработки файла.
+     * @return Частичный результат.
+     * @throws IOException Если при обработке файла произошла ошибка ввода-вывода.
+     */
+    private static FileProcessor await(Future<FileProcessor> future) throws IOException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Обработка файлов прервана");
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Добавляет частичный результат к общему: объединяет статистику и сохраняет строки в исходном порядке.
+     *
+     * @param partial Частичный результат обработки.
+     * @throws IOException Если произошла ошибка при записи в потоковом режиме.
+     */
+    private void merge(FileProcessor partial) throws IOException {
+        statistics.merge(partial.statistics);
+        metrics.merge(partial.metrics);
+        for (String line : partial.integers) store(DataType.INTEGER, line);
+        for (String line : partial.floats) store(DataType.FLOAT, line);
+        for (String line : partial.strings) store(DataType.STRING, line);
+        for (int i = 0; i < partial.customLines.size(); i++) {
+            for (String line : partial.customLines.get(i)) storeCustom(CategoryDispatcher.FIRST_CUSTOM + i, line);
+        }
     }
 
     /**
      * Обрабатывает файл, разделяя его содержимое на целые числа, вещественные числа и строки.
      * Обновляет статистику для каждой категории.
+     * Файл читается построчно (сжатые файлы gzip распознаются по сигнатуре и распаковываются на лету), а в режиме отображения в память разбирается параллельно по частям.
+     * В потоковом режиме строки сразу записываются в выходные файлы,
+     * иначе накапливаются в списках до вызова {@link #writeResults()}.
      *
      * @param filePath Путь к файлу, который нужно обработать.
      * @throws IOException Если произошла ошибка при чтении файла.
      */
     public void processFile(Path filePath) throws IOException {
         if (!Files.exists(filePath)) {
-            System.err.println("Файл не найден: " + filePath);
+            errors.println("Файл не найден: " + filePath);
             return;
         }
 
-        List<String> lines = Files.readAllLines(filePath);
-        for (String line : lines) {
-            if (line.matches("-?\\d+")) {
-                integers.add(line);
-                statistics.updateIntegerStatistics(new BigInteger(line));
+        FileProcessedEvent event = new FileProcessedEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long linesBefore = lineCount();
+        long bytes = readFile(filePath);
+        metrics.recordFile(event, filePath, bytes, lineCount() - linesBefore, System.nanoTime() - start);
+    }
+
+    /**
+     * Выбирает способ чтения файла и обрабатывает его.
+     *
+     * @param filePath Путь к файлу, который нужно обработать.
+     * @return Количество прочитанных байтов.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    private long readFile(Path filePath) throws IOException {
+        if (checkpoint != null) {
+            return processIncrementally(filePath);
+        }
+
+        if (byteRouter != null) {
+            byteRouter.processFile(filePath);
+            return Files.size(filePath);
+        }
+
+        // Сжатый файл нельзя отобразить в память, поэтому он всегда читается потоком,
+        // а при удалении повторов части файла нельзя разбирать независимо
+        if (options.isMemoryMapped() && unique == null && !InputFiles.isGzip(filePath)) {
+            processFileMapped(filePath);
+            return Files.size(filePath);
+        }
+
+        try (BufferedReader reader = InputFiles.newBufferedReader(filePath)) {
+            processLines(reader);
+        }
+        return Files.size(filePath);
+    }
+
+    /**
+     * Возвращает общее количество обработанных строк, включая отброшенные повторы.
+     *
+     * @return Количество строк всех категорий.
+     */
+    private long lineCount() {
+        long count = statistics.getIntegerCount() + statistics.getFloatCount() + statistics.getStringCount() + duplicates
+                + (byteRouter != null ? byteRouter.getDuplicates() : 0);
+        for (CategoryStatistics category : statistics.getCategories().values()) count += category.getCount();
+        return count;
+    }
+
+    /**
+     * Обрабатывает только ту часть файла, которая появилась с прошлого запуска, и запоминает новое смещение.
+     * Если файл был заменен (изменился inode), усечен или переписан (изменилось начало файла),
+     * он читается заново с начала.
+     * Для несжатых файлов обрабатываются только завершенные строки: незавершенная последняя строка
+     * остается до следующего запуска. Для сжатых файлов смещение считается в распакованных байтах.
+     *
+     * @param filePath Путь к файлу, который нужно обработать.
+     * @return Количество обработанных байтов (для сжатых файлов - распакованных).
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    private long processIncrementally(Path filePath) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        Checkpoint.Entry previous = checkpoint.get(filePath);
+        if (previous != null && previous.isUnchanged(attributes)) return 0;
+        long offset = previous != null && previous.canResume(filePath, attributes) ? previous.offset() : 0;
+
+        long end;
+        if (InputFiles.isGzip(filePath)) {
+            end = processGzipFrom(filePath, offset);
+            if (end < 0) {
+                // Распакованных данных меньше, чем было обработано: файл заменен, читаем сначала
+                offset = 0;
+                end = processGzipFrom(filePath, 0);
             }
-            else if (line.matches("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?")) {
-                floats.add(line);
-                statistics.updateFloatStatistics(new BigDecimal(line));
+        }
+        else {
+            end = InputFiles.completeLinesEnd(filePath, attributes.size());
+            if (end > offset) {
+                try (BufferedReader reader = InputFiles.newBufferedReader(filePath, offset, end)) {
+                    processLines(reader);
+                }
             }
             else {
-                strings.add(line);
-                statistics.updateStringStatistics(line);
+                end = offset;
+            }
+        }
+        checkpoint.put(filePath, Checkpoint.Entry.of(filePath, attributes, end));
+        return end - offset;
+    }
+
+    /**
+     * Обрабатывает сжатый файл, пропуская первые {@code offset} распакованных байтов.
+     *
+     * @param filePath Путь к сжатому файлу.
+     * @param offset   Количество уже обработанных распакованных байтов.
+     * @return Общее количество распакованных байтов или -1, если их меньше {@code offset}.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    private long processGzipFrom(Path filePath, long offset) throws IOException {
+        try (InputStream in = InputFiles.newInputStream(filePath)) {
+            long skipped = 0;
+            while (skipped < offset) {
+                long step = in.skip(offset - skipped);
+                if (step <= 0) {
+                    if (in.read() < 0) return -1;
+                    step = 1;
+                }
+                skipped += step;
+            }
+            return offset + processLines(in);
+        }
+    }
+
+    /**
+     * Обрабатывает все строки потока байтов.
+     *
+     * @param in Поток байтов в кодировке UTF-8.
+     * @return Количество прочитанных байтов.
+     * @throws IOException Если произошла ошибка при чтении.
+     */
+    private long processLines(InputStream in) throws IOException {
+        long[] count = new long[1];
+        InputStream counting = new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) count[0]++;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                int read = super.read(bytes, offset, length);
+                if (read > 0) count[0] += read;
+                return read;
+            }
+        };
+        processLines(InputFiles.newBufferedReader(counting));
+        return count[0];
+    }
+
+    /**
+     * Обрабатывает все строки потока чтения.
+     *
+     * @param reader Поток чтения.
+     * @throws IOException Если произошла ошибка при чтении.
+     */
+    private void processLines(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            processLine(line);
+        }
+    }
+
+    /**
+     * Обрабатывает файл, отображая его в память по частям.
+     * Файл делится на чанки по границам строк, чанки разбираются в пуле fork-join потоков,
+     * каждый в свой частичный результат со своей статистикой. Частичные результаты объединяются
+     * в исходном порядке чанков, поэтому порядок строк совпадает с последовательным чтением.
+     *
+     * @param filePath Путь к файлу, который нужно обработать.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    private void processFileMapped(Path filePath) throws IOException {
+        int parallelism = Math.max(1, options.getThreads());
+        int chunkSize = Math.max(1, options.getChunkSize());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // Ограничиваем количество чанков, ожидающих объединения, чтобы память не зависела от размера файла
+            int window = parallelism * 2;
+            Deque<Future<FileProcessor>> pending = new ArrayDeque<>();
+            long start = 0;
+            while (start < size || !pending.isEmpty()) {
+                while (start < size && pending.size() < window) {
+                    long chunkStart = start;
+                    long chunkEnd = MappedChunks.chunkEnd(channel, chunkStart, chunkSize, size);
+                    pending.add(pool.submit(() -> {
+                        FileProcessor partial = new FileProcessor(options, false, dispatcher, null, null);
+                        MappedChunks.forEachLine(channel, chunkStart, chunkEnd, partial::processLine);
+                        return partial;
+                    }));
+                    start = chunkEnd;
+                }
+                merge(await(pending.poll()));
             }
         }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Определяет категорию строки, обновляет статистику и передает строку на запись.
+     * В режиме удаления повторов уже встречавшаяся строка пропускается.
+     *
+     * @param line Строка входного файла.
+     * @throws IOException Если произошла ошибка при записи в потоковом режиме.
+     */
+    private void processLine(String line) throws IOException {
+        if (unique != null && !unique.add(line)) {
+            duplicates++;
+            return;
+        }
+        if (metrics.sample()) {
+            processLineTimed(line);
+            return;
+        }
+        if (dispatcher != null) {
+            dispatchLine(line);
+            return;
+        }
+        DataType type = LineClassifier.classify(line);
+        statistics.update(type, line);
+        store(type, line);
+    }
+
+    /**
+     * Обрабатывает строку с учетом пользовательских категорий.
+     *
+     * @param line Строка входного файла.
+     * @throws IOException Если произошла ошибка при записи в потоковом режиме.
+     */
+    private void dispatchLine(String line) throws IOException {
+        int category = dispatcher.classify(line);
+        if (category >= CategoryDispatcher.FIRST_CUSTOM) {
+            statistics.updateCategoryStatistics(dispatcher.category(category).name(), line.length());
+            storeCustom(category, line);
+        }
+        else {
+            DataType type = DATA_TYPES[category];
+            statistics.update(type, line);
+            store(type, line);
+        }
+    }
+
+    /**
+     * Обрабатывает строку, попавшую в выборку, с замером времени каждого этапа.
+     *
+     * @param line Строка входного файла.
+     * @throws IOException Если произошла ошибка при записи в потоковом режиме.
+     */
+    private void processLineTimed(String line) throws IOException {
+        long start = System.nanoTime();
+        int category = dispatcher != null ? dispatcher.classify(line) : LineClassifier.classify(line).ordinal();
+        long classified = System.nanoTime();
+        DataType type = category < CategoryDispatcher.FIRST_CUSTOM ? DATA_TYPES[category] : null;
+        if (type != null) statistics.update(type, line);
+        else statistics.updateCategoryStatistics(dispatcher.category(category).name(), line.length());
+        long updated = System.nanoTime();
+        if (type != null) store(type, line);
+        else storeCustom(category, line);
+        metrics.recordSample(category, classified - start, updated - classified, System.nanoTime() - updated);
+    }
+
+    /**
+     * Сохраняет строку: при сортировке передает ее сортировке, в потоковом режиме записывает ее в файл категории,
+     * иначе добавляет в список категории.
+     *
+     * @param type Категория строки.
+     * @param line Строка для сохранения.
+     * @throws IOException Если произошла ошибка при записи в файл.
+     */
+    private void store(DataType type, String line) throws IOException {
+        if (sorted != null) {
+            sorted.add(type, line);
+        }
+        else if (writers != null) {
+            writers.write(type, line);
+        }
+        else {
+            list(type).add(line);
+        }
+    }
+
+    /**
+     * Сохраняет строку пользовательской категории: при сортировке передает ее сортировке,
+     * в потоковом режиме записывает ее в файл категории, иначе добавляет в список категории.
+     *
+     * @param category Номер пользовательской категории.
+     * @param line     Строка для сохранения.
+     * @throws IOException Если произошла ошибка при записи в файл.
+     */
+    private void storeCustom(int category, String line) throws IOException {
+        if (sorted != null) {
+            sorted.add(dispatcher.category(category).fileName(), line);
+        }
+        else if (writers != null) {
+            writers.write(dispatcher.category(category).fileName(), line);
+        }
+        else {
+            customLines.get(category - CategoryDispatcher.FIRST_CUSTOM).add(line);
+        }
+    }
+
+    /**
+     * Возвращает список строк категории для обычного режима.
+     *
+     * @param type Категория.
+     * @return Список категории.
+     */
+    private List<String> list(DataType type) {
+        return switch (type) {
+            case INTEGER -> integers;
+            case FLOAT -> floats;
+            case STRING -> strings;
+        };
     }
 
     /**
      * Записывает результаты обработки в файлы.
-     * Каждая категория данных записывается в отдельный файл: целые числа, вещественные числа и строки.
+     * Каждая категория данных записывается в отдельный файл: целые числа, вещественные числа, строки
+     * и каждая пользовательская категория.
+     * В потоковом режиме данные уже записаны, поэтому выходные файлы только закрываются.
+     * При сортировке накопленные серии сливаются в отсортированные выходные файлы.
+     * В инкрементальном режиме после записи сохраняется манифест контрольной точки.
      *
      * @throws IOException Если произошла ошибка при записи в файл.
      */
     public void writeResults() throws IOException {
-        writeListToFile(integers, "integers.txt");
-        writeListToFile(floats, "floats.txt");
-        writeListToFile(strings, "strings.txt");
+        long start = System.nanoTime();
+        if (sorted != null) {
+            sorted.close();
+            metrics.recordClose(System.nanoTime() - start);
+        }
+        else if (byteRouter != null) {
+            byteRouter.close();
+            metrics.recordClose(System.nanoTime() - start);
+        }
+        else if (writers != null) {
+            writers.close();
+            metrics.recordClose(System.nanoTime() - start);
+        }
+        else {
+            for (DataType type : DataType.values()) {
+                long typeStart = System.nanoTime();
+                writeListToFile(list(type), type.getFileName());
+                metrics.recordWrite(type.ordinal(), System.nanoTime() - typeStart);
+            }
+            for (int i = 0; i < customLines.size(); i++) {
+                long categoryStart = System.nanoTime();
+                writeListToFile(customLines.get(i), dispatcher.category(CategoryDispatcher.FIRST_CUSTOM + i).fileName());
+                metrics.recordWrite(CategoryDispatcher.FIRST_CUSTOM + i, System.nanoTime() - categoryStart);
+            }
+        }
+        // Манифест сохраняется только после записи результатов, чтобы при сбое строки были обработаны повторно
+        if (checkpoint != null) {
+            saveCheckpoint();
+        }
+        if (unique != null) {
+            unique.close();
+        }
+    }
+
+    /**
+     * Освобождает ресурсы обработки: закрывает открытые выходные файлы и потоки асинхронной записи,
+     * удаляет временные файлы сортировки и удаления повторов. Вызывается после {@link #writeResults()}
+     * или вместо него при ошибке, чтобы в режиме демона неудачная задача не оставляла открытых файлов.
+     * Повторный вызов ничего не делает.
+     *
+     * @throws IOException Если произошла ошибка при закрытии файлов.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        List<Closeable> resources = new ArrayList<>();
+        if (writers != null) resources.add(writers);
+        if (byteRouter != null) resources.add(byteRouter);
+        if (sorted != null) resources.add(sorted::abort);
+        if (unique != null) resources.add(unique);
+        for (Closeable resource : resources) {
+            try {
+                resource.close();
+            }
+            catch (IOException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
     }
 
     /**
@@ -102,34 +756,44 @@ public class FileProcessor {
     private void writeListToFile(List<String> list, String fileName) throws IOException {
         if (list.isEmpty()) return;
 
-        Path outputPath = Path.of(options.getOutputPath(), options.getPrefix() + fileName);
-        Path outputDir = outputPath.getParent();
-
-        // Создаем директорию, если она не существует
-        if (!Files.exists(outputDir)) {
-            Files.createDirectories(outputDir);
-        }
-
-        try (BufferedWriter writer = Files.newBufferedWriter(outputPath, StandardOpenOption.CREATE,
-                options.getOutputMode() == CommandLineOptions.OutputMode.APPEND ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+        try (LineWriter writer = CategoryWriters.newLineWriter(options, fileName)) {
             for (String item : list) {
                 writer.write(item);
-                writer.newLine();
             }
         }
     }
 
+    /**
+     * Завершает замеры запуска: публикует итоговое событие Java Flight Recorder
+     * и записывает отчет JSON, если он запрошен опцией {@code --report}.
+     * Вызывается после {@link #writeResults()}, чтобы учесть размеры выходных файлов.
+     *
+     * @throws IOException Если не удалось записать отчет.
+     */
+    public void finishRun() throws IOException {
+        metrics.finish(options, statistics);
+    }
+
     /**
      * Выводит статистику по обработанным данным.
      * Если указан флаг краткой статистики, выводится краткая информация.
      * Если указан флаг полной статистики, выводится подробная информация.
      */
     public void printStatistics() {
+        printStatistics(System.out);
+    }
+
+    /**
+     * Выводит статистику в заданный поток в зависимости от настроек.
+     *
+     * @param out Поток вывода.
+     */
+    public void printStatistics(PrintStream out) {
         if (options.isShortStats()){
-            statistics.printShortStatistics();
+            statistics.printShortStatistics(out);
         }
         if (options.isFullStats()) {
-            statistics.printFullStatistics();
+            statistics.printFullStatistics(out);
         }
     }
-}
\ No newline at end of file
+}
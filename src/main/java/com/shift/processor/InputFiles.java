@@ -0,0 +1,256 @@
+package com.shift.processor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Вспомогательные методы для открытия входных файлов.
+ * Файлы в формате gzip распознаются по сигнатуре в первых байтах (а не по расширению)
+ * и распаковываются на лету, без промежуточной записи на диск.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public final class InputFiles {
+
+    /**
+     * Первые два байта файла gzip.
+     */
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+
+    /**
+     * Символы, по которым аргумент распознается как шаблон glob.
+     */
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private InputFiles() {
+    }
+
+    /**
+     * Раскрывает аргументы командной строки в список входных файлов.
+     * Директория заменяется содержащимися в ней обычными файлами (с {@code recursive} - и файлами поддиректорий),
+     * шаблон glob ({@code logs/*.txt}, {@code data/**.csv}) - подходящими под него файлами.
+     * Файлы каждой директории и шаблона упорядочиваются по пути, поэтому результат обработки не зависит
+     * от порядка, в котором их возвращает файловая система. Остальные аргументы остаются путями как есть,
+     * в том числе несуществующие: о них сообщается при обработке.
+     * Раскрытие выполняется самой утилитой, поэтому количество файлов не ограничено длиной командной строки.
+     *
+     * @param arguments Аргументы командной строки.
+     * @param recursive Обходить ли поддиректории указанных директорий.
+     * @return Пути к файлам в порядке обработки.
+     * @throws IOException Если произошла ошибка при чтении директории.
+     */
+    public static List<Path> expand(List<String> arguments, boolean recursive) throws IOException {
+        return expand(arguments, recursive, System.err);
+    }
+
+    /**
+     * Раскрывает аргументы командной строки в список входных файлов, сообщая о шаблонах без файлов в заданный поток.
+     *
+     * @param arguments Аргументы командной строки.
+     * @param recursive Обходить ли поддиректории указанных директорий.
+     * @param errors    Поток для сообщений.
+     * @return Пути к файлам в порядке обработки.
+     * @throws IOException Если произошла ошибка при чтении директории.
+     */
+    public static List<Path> expand(List<String> arguments, boolean recursive, PrintStream errors) throws IOException {
+        List<Path> filePaths = new ArrayList<>();
+        for (String argument : arguments) {
+            Path path = Path.of(argument);
+            if (Files.isDirectory(path)) {
+                filePaths.addAll(list(path, recursive ? Integer.MAX_VALUE : 1, null));
+            }
+            else if (!Files.exists(path) && isGlob(argument)) {
+                List<Path> matches = glob(argument);
+                if (matches.isEmpty()) errors.println("Нет файлов по шаблону: " + argument);
+                filePaths.addAll(matches);
+            }
+            else {
+                filePaths.add(path);
+            }
+        }
+        return filePaths;
+    }
+
+    private static boolean isGlob(String argument) {
+        for (int i = 0; i < argument.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(argument.charAt(i)) >= 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Находит файлы по шаблону glob. Обход начинается с директории из начальных элементов пути без символов шаблона,
+     * а его глубина ограничена количеством оставшихся элементов, если в шаблоне нет {@code **}.
+     */
+    private static List<Path> glob(String pattern) throws IOException {
+        String[] parts = pattern.split("[/\\\\]", -1);
+        int first = 0;
+        while (first < parts.length - 1 && !isGlob(parts[first])) first++;
+        String prefix = String.join("/", List.of(parts).subList(0, first));
+        Path base = Path.of(first == 0 ? "." : prefix.isEmpty() ? "/" : prefix);
+        if (!Files.isDirectory(base)) return List.of();
+        String rest = String.join("/", List.of(parts).subList(first, parts.length));
+        int depth = rest.contains("**") ? Integer.MAX_VALUE : parts.length - first;
+        return list(base, depth, base.getFileSystem().getPathMatcher("glob:" + rest));
+    }
+
+    /**
+     * Перечисляет обычные файлы директории в порядке путей. Шаблон применяется к пути относительно директории.
+     */
+    private static List<Path> list(Path directory, int depth, PathMatcher matcher) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory, depth, FileVisitOption.FOLLOW_LINKS)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher == null || matcher.matches(directory.relativize(path)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Проверяет, сжат ли файл в формате gzip.
+     *
+     * @param filePath Путь к файлу.
+     * @return {@code true}, если файл начинается с сигнатуры gzip.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    public static boolean isGzip(Path filePath) throws IOException {
+        try (InputStream in = Files.newInputStream(filePath)) {
+            return in.read() == GZIP_MAGIC_1 && in.read() == GZIP_MAGIC_2;
+        }
+    }
+
+    /**
+     * Открывает файл как поток байтов, распаковывая его, если он сжат в формате gzip.
+     *
+     * @param filePath Путь к файлу.
+     * @return Поток несжатых байтов файла.
+     * @throws IOException Если произошла ошибка при открытии файла.
+     */
+    public static InputStream newInputStream(Path filePath) throws IOException {
+        return newInputStream(Files.newInputStream(filePath));
+    }
+
+    /**
+     * Буферизует поток байтов, распаковывая его, если он сжат в формате gzip.
+     *
+     * @param source Исходный поток байтов.
+     * @return Поток несжатых байтов.
+     * @throws IOException Если произошла ошибка при чтении сигнатуры.
+     */
+    public static InputStream newInputStream(InputStream source) throws IOException {
+        InputStream in = new BufferedInputStream(source, 64 * 1024);
+        in.mark(2);
+        boolean gzip = in.read() == GZIP_MAGIC_1 && in.read() == GZIP_MAGIC_2;
+        in.reset();
+        return gzip ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+
+    /**
+     * Открывает файл для построчного чтения в кодировке UTF-8, распаковывая его, если он сжат в формате gzip.
+     * Некорректные последовательности UTF-8 приводят к ошибке, как и в {@link Files#newBufferedReader(Path)}.
+     *
+     * @param filePath Путь к файлу.
+     * @return Буферизованный поток чтения.
+     * @throws IOException Если произошла ошибка при открытии файла.
+     */
+    public static BufferedReader newBufferedReader(Path filePath) throws IOException {
+        return newBufferedReader(newInputStream(filePath));
+    }
+
+    /**
+     * Открывает поток байтов для построчного чтения в кодировке UTF-8.
+     * Некорректные последовательности UTF-8 приводят к ошибке.
+     *
+     * @param in Поток байтов.
+     * @return Буферизованный поток чтения.
+     */
+    public static BufferedReader newBufferedReader(InputStream in) {
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)));
+    }
+
+    /**
+     * Открывает участок несжатого файла для построчного чтения в кодировке UTF-8.
+     *
+     * @param filePath Путь к файлу.
+     * @param from     Начало участка в байтах.
+     * @param to       Конец участка в байтах (не включительно).
+     * @return Буферизованный поток чтения участка.
+     * @throws IOException Если произошла ошибка при открытии файла.
+     */
+    public static BufferedReader newBufferedReader(Path filePath, long from, long to) throws IOException {
+        FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ).position(from);
+        InputStream in = new FilterInputStream(Channels.newInputStream(channel)) {
+            private long remaining = to - from;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) return -1;
+                int b = super.read();
+                if (b >= 0) remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                if (remaining <= 0) return -1;
+                int read = super.read(bytes, offset, (int) Math.min(length, remaining));
+                if (read > 0) remaining -= read;
+                return read;
+            }
+        };
+        return newBufferedReader(new BufferedInputStream(in, 64 * 1024));
+    }
+
+    /**
+     * Находит конец последней завершенной строки несжатого файла, то есть позицию сразу после
+     * последнего перевода строки. Символ {@code \r} в самом конце файла не считается концом строки,
+     * потому что за ним еще может быть дописан {@code \n}.
+     *
+     * @param filePath Путь к файлу.
+     * @param size     Размер файла.
+     * @return Позиция после последнего перевода строки или 0, если завершенных строк нет.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    public static long completeLinesEnd(Path filePath, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long end = size;
+            while (end > 0) {
+                long start = Math.max(0, end - buffer.capacity());
+                buffer.clear().limit((int) (end - start));
+                while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                    // Дочитываем участок целиком
+                }
+                for (int i = buffer.position() - 1; i >= 0; i--) {
+                    byte b = buffer.get(i);
+                    if (b == '\n' || (b == '\r' && start + i < size - 1)) return start + i + 1;
+                }
+                end = start;
+            }
+            return 0;
+        }
+    }
+}
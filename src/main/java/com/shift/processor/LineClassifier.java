@@ -0,0 +1,114 @@
+package com.shift.processor;
+
+import com.shift.data.DataType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Классификатор строк входных файлов.
+ * Определяет категорию строки за один проход по символам без создания объектов.
+ * Результат полностью совпадает с проверкой регулярными выражениями
+ * {@code -?\d+} для целых чисел и {@code -?\d+(\.\d+)?([eE][-+]?\d+)?} для вещественных чисел,
+ * где {@code \d} - это только ASCII-цифры.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public final class LineClassifier {
+
+    private LineClassifier() {
+    }
+
+    /**
+     * Определяет категорию строки.
+     *
+     * @param line Строка для классификации.
+     * @return {@link DataType#INTEGER}, {@link DataType#FLOAT} или {@link DataType#STRING}.
+     */
+    public static DataType classify(CharSequence line) {
+        int length = line.length();
+        int i = 0;
+
+        // Необязательный знак минус
+        if (i < length && line.charAt(i) == '-') i++;
+
+        // Целая часть: хотя бы одна цифра
+        int start = i;
+        while (i < length && isDigit(line.charAt(i))) i++;
+        if (i == start) return DataType.STRING;
+        if (i == length) return DataType.INTEGER;
+
+        // Необязательная дробная часть: точка и хотя бы одна цифра
+        if (line.charAt(i) == '.') {
+            start = ++i;
+            while (i < length && isDigit(line.charAt(i))) i++;
+            if (i == start) return DataType.STRING;
+            if (i == length) return DataType.FLOAT;
+        }
+
+        // Необязательная экспонента: e или E, необязательный знак и хотя бы одна цифра
+        char c = line.charAt(i);
+        if (c != 'e' && c != 'E') return DataType.STRING;
+        i++;
+        if (i < length && (line.charAt(i) == '+' || line.charAt(i) == '-')) i++;
+        start = i;
+        while (i < length && isDigit(line.charAt(i))) i++;
+        return i > start && i == length ? DataType.FLOAT : DataType.STRING;
+    }
+
+    /**
+     * Определяет категорию строки, заданной байтами в кодировке UTF-8 (или любой ASCII-совместимой).
+     * Байты не декодируются: числа состоят только из ASCII-символов, а любой байт многобайтового символа
+     * делает строку строкой. Результат совпадает с {@link #classify(CharSequence)} для декодированной строки.
+     *
+     * @param bytes Буфер с байтами строки.
+     * @param from  Индекс первого байта строки.
+     * @param to    Индекс байта после конца строки.
+     * @return {@link DataType#INTEGER}, {@link DataType#FLOAT} или {@link DataType#STRING}.
+     */
+    public static DataType classify(ByteBuffer bytes, int from, int to) {
+        int i = from;
+
+        if (i < to && bytes.get(i) == '-') i++;
+
+        int start = i;
+        while (i < to && isDigit(bytes.get(i))) i++;
+        if (i == start) return DataType.STRING;
+        if (i == to) return DataType.INTEGER;
+
+        if (bytes.get(i) == '.') {
+            start = ++i;
+            while (i < to && isDigit(bytes.get(i))) i++;
+            if (i == start) return DataType.STRING;
+            if (i == to) return DataType.FLOAT;
+        }
+
+        byte b = bytes.get(i);
+        if (b != 'e' && b != 'E') return DataType.STRING;
+        i++;
+        if (i < to && (bytes.get(i) == '+' || bytes.get(i) == '-')) i++;
+        start = i;
+        while (i < to && isDigit(bytes.get(i))) i++;
+        return i > start && i == to ? DataType.FLOAT : DataType.STRING;
+    }
+
+    /**
+     * Проверяет, является ли байт ASCII-цифрой.
+     *
+     * @param b Проверяемый байт.
+     * @return {@code true}, если байт от '0' до '9'.
+     */
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Проверяет, является ли символ ASCII-цифрой.
+     *
+     * @param c Проверяемый символ.
+     * @return {@code true}, если символ от '0' до '9'.
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
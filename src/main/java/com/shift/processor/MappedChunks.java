@@ -0,0 +1,141 @@
+package com.shift.processor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Вспомогательные методы для разбора файла, отображенного в память, по частям (чанкам).
+ * Границы чанков всегда проходят сразу после перевода строки ({@code \n}, {@code \r} или {@code \r\n} целиком),
+ * поэтому каждый чанк содержит только целые строки и может разбираться независимо от остальных.
+ * Разбиение на строки совпадает с {@link java.io.BufferedReader#readLine()}:
+ * разделителями считаются {@code \n}, {@code \r} и {@code \r\n}.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+final class MappedChunks {
+
+    /**
+     * Размер буфера для поиска границы чанка.
+     */
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private MappedChunks() {
+    }
+
+    /**
+     * Обработчик строк чанка.
+     */
+    @FunctionalInterface
+    interface LineHandler {
+        /**
+         * Обрабатывает очередную строку.
+         *
+         * @param line Строка без символов перевода строки.
+         * @throws IOException Если произошла ошибка при обработке строки.
+         */
+        void handle(String line) throws IOException;
+    }
+
+    /**
+     * Находит конец чанка, начинающегося с позиции {@code start}.
+     * Конец чанка - это позиция сразу после первого перевода строки, найденного не раньше {@code start + chunkSize}.
+     * Если перевод строки - символ {@code \r}, за которым следует {@code \n}, конец чанка сдвигается за {@code \n},
+     * чтобы пара {@code \r\n} не разделилась между чанками и не дала лишнюю пустую строку.
+     *
+     * @param channel   Канал файла.
+     * @param start     Начало чанка.
+     * @param chunkSize Желаемый размер чанка.
+     * @param size      Размер файла.
+     * @return Позиция конца чанка (не включительно).
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    static long chunkEnd(FileChannel channel, long start, int chunkSize, long size) throws IOException {
+        long position = start + chunkSize;
+        if (position >= size) return size;
+
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') return position + i + 1;
+                if (b == '\r') {
+                    long end = position + i + 1;
+                    int next = i + 1 < read ? buffer.get(i + 1) : byteAt(channel, end);
+                    return next == '\n' ? end + 1 : end;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Читает один байт файла.
+     *
+     * @param channel  Канал файла.
+     * @param position Позиция байта.
+     * @return Байт или -1, если позиция за концом файла.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    private static int byteAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        return channel.read(one, position) == 1 ? one.get(0) : -1;
+    }
+
+    /**
+     * Отображает участок файла в память и передает его строки обработчику.
+     * Байты декодируются как UTF-8; некорректные последовательности приводят к ошибке,
+     * как и при чтении через {@link java.nio.file.Files#newBufferedReader(java.nio.file.Path)}.
+     *
+     * @param channel Канал файла.
+     * @param start   Начало участка.
+     * @param end     Конец участка (не включительно).
+     * @param handler Обработчик строк.
+     * @throws IOException Если произошла ошибка при чтении или декодировании файла.
+     */
+    static void forEachLine(FileChannel channel, long start, long end, LineHandler handler) throws IOException {
+        ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        // Декодер работает с массивом в куче заметно быстрее, чем с отображенной памятью, поэтому копируем чанк целиком
+        ByteBuffer bytes = ByteBuffer.wrap(new byte[mapped.remaining()]);
+        bytes.put(mapped).flip();
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer chars = decoder.decode(bytes);
+        forEachLine(chars, handler);
+    }
+
+    /**
+     * Разбивает текст на строки и передает их обработчику.
+     * Пустой остаток после последнего перевода строки строкой не считается.
+     *
+     * @param chars   Текст в буфере с доступным массивом.
+     * @param handler Обработчик строк.
+     * @throws IOException Если произошла ошибка при обработке строки.
+     */
+    static void forEachLine(CharBuffer chars, LineHandler handler) throws IOException {
+        char[] text = chars.array();
+        int length = chars.arrayOffset() + chars.limit();
+        int lineStart = chars.arrayOffset() + chars.position();
+        for (int i = lineStart; i < length; i++) {
+            char c = text[i];
+            if (c == '\n' || c == '\r') {
+                handler.handle(new String(text, lineStart, i - lineStart));
+                if (c == '\r' && i + 1 < length && text[i + 1] == '\n') i++;
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < length) {
+            handler.handle(new String(text, lineStart, length - lineStart));
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package com.shift.processor;
+
+import com.shift.data.sketch.Hashing;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Множество уже встреченных строк для режима удаления повторов.
+ * Вместо самих строк хранятся их 128-битные отпечатки - два независимых 64-битных хеша {@link Hashing}
+ * по байтам UTF-8, поэтому строка, прочитанная как текст и как байты, получает один и тот же отпечаток.
+ * Вероятность того, что среди миллиарда различных строк хотя бы две совпадут по отпечатку, меньше 10<sup>-20</sup>.
+ * <p>
+ * Отпечатки хранятся вне кучи Java в таблице с открытой адресацией и линейным пробированием
+ * в прямом {@link ByteBuffer}, по 16 байт на ячейку. Номер ячейки берется из старших битов отпечатка,
+ * поэтому порядок ячеек почти совпадает с порядком отпечатков. Таблица растет удвоением до предела памяти.
+ * Когда заполнен и предел, таблица сортируется на месте и сбрасывается на диск в файл-серию, после чего очищается.
+ * Серии отображаются в память, и для каждой в куче хранится индекс корзин по старшим битам отпечатка,
+ * в среднем по {@value #BUCKET_SIZE} записи на корзину (около 0,8% объема серии), поэтому проверка серии
+ * читает несколько соседних записей одной корзины.
+ * Когда серий становится больше {@value #MAX_RUNS}, они сливаются в одну.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class UniqueLines implements Closeable {
+    /**
+     * Имя файла с отпечатками строк, сохраняемого рядом с манифестом контрольной точки.
+     */
+    public static final String FILE_NAME = "unique.fingerprints";
+
+    /**
+     * Начальные значения двух хеш-функций отпечатка.
+     */
+    private static final long SEED_HIGH = 0x9e3779b97f4a7c15L;
+    private static final long SEED_LOW = 0xc2b2ae3d27d4eb4fL;
+
+    /**
+     * Размер ячейки таблицы и записи в файле-серии в байтах.
+     */
+    private static final int SLOT = 16;
+
+    /**
+     * Начальное количество ячеек таблицы.
+     */
+    private static final int MIN_CAPACITY = 1 << 12;
+
+    /**
+     * Наибольшее количество ячеек таблицы: 1 ГБ, поскольку прямой буфер не может превышать 2 ГБ.
+     */
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    /**
+     * Наибольшее количество файлов-серий до их слияния.
+     */
+    private static final int MAX_RUNS = 4;
+
+    /**
+     * Среднее количество записей в корзине индекса серии.
+     */
+    private static final int BUCKET_SIZE = 64;
+
+    /**
+     * Наибольший размер одного отображаемого в память участка серии: целое число записей.
+     */
+    private static final int SEGMENT_SIZE = 1 << 30;
+
+    /**
+     * Нули для очистки таблицы.
+     */
+    private static final byte[] ZEROS = new byte[64 * 1024];
+
+    /**
+     * Директория для файлов-серий.
+     */
+    private final Path directory;
+
+    /**
+     * Наибольшее количество ячеек таблицы при заданном пределе памяти.
+     */
+    private final int maxCapacity;
+
+    /**
+     * Таблица отпечатков: старшая и младшая половины в каждой ячейке, нулевая ячейка свободна.
+     */
+    private ByteBuffer table;
+
+    /**
+     * Маска номера ячейки и сдвиг, дающий номер ячейки из старшей половины отпечатка.
+     */
+    private int mask;
+    private int shift;
+
+    /**
+     * Количество отпечатков в таблице.
+     */
+    private int size;
+
+    /**
+     * Файлы-серии с отпечатками, сброшенными из таблицы. Серии не пересекаются между собой и с таблицей.
+     */
+    private final List<Run> runs = new ArrayList<>();
+
+    /**
+     * Конструктор класса.
+     *
+     * @param directory   Директория для файлов-серий.
+     * @param memoryLimit Предел памяти таблицы в байтах.
+     */
+    public UniqueLines(Path directory, long memoryLimit) {
+        this.directory = directory;
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && (long) capacity * 2 * SLOT <= memoryLimit) capacity *= 2;
+        this.maxCapacity = capacity;
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Добавляет строку в множество.
+     *
+     * @param line Строка.
+     * @return {@code true}, если строка встретилась впервые.
+     * @throws IOException Если произошла ошибка при сбросе таблицы на диск.
+     */
+    public boolean add(CharSequence line) throws IOException {
+        return add(Hashing.hash(line, SEED_HIGH), Hashing.hash(line, SEED_LOW));
+    }
+
+    /**
+     * Добавляет в множество строку, заданную байтами UTF-8.
+     *
+     * @param buffer Буфер.
+     * @param from   Начало строки (включительно).
+     * @param to     Конец строки (не включительно).
+     * @return {@code true}, если строка встретилась впервые.
+     * @throws IOException Если произошла ошибка при сбросе таблицы на диск.
+     */
+    public boolean add(ByteBuffer buffer, int from, int to) throws IOException {
+        return add(Hashing.hash(buffer, from, to, SEED_HIGH), Hashing.hash(buffer, from, to, SEED_LOW));
+    }
+
+    /**
+     * Возвращает количество различных строк в множестве.
+     *
+     * @return Количество строк.
+     */
+    public long size() {
+        long total = size;
+        for (Run run : runs) total += run.count;
+        return total;
+    }
+
+    private boolean add(long high, long low) throws IOException {
+        // Нулевой отпечаток обозначает свободную ячейку
+        if ((high | low) == 0) low = 1;
+        int slot = (int) (high >>> shift);
+        while (true) {
+            int offset = slot * SLOT;
+            long h = table.getLong(offset);
+            long l = table.getLong(offset + 8);
+            if ((h | l) == 0) break;
+            if (h == high && l == low) return false;
+            slot = slot + 1 & mask;
+        }
+        for (Run run : runs) {
+            if (run.contains(high, low)) return false;
+        }
+
+        table.putLong(slot * SLOT, high);
+        table.putLong(slot * SLOT + 8, low);
+        if (++size > (mask + 1) / 4 * 3) {
+            if (mask + 1 < maxCapacity) grow();
+            else spill();
+        }
+        return true;
+    }
+
+    private void allocate(int capacity) {
+        table = ByteBuffer.allocateDirect(capacity * SLOT);
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        size = 0;
+    }
+
+    /**
+     * Удваивает таблицу и переносит в нее отпечатки.
+     */
+    private void grow() {
+        ByteBuffer old = table;
+        allocate((mask + 1) * 2);
+        for (int offset = 0; offset < old.capacity(); offset += SLOT) {
+            long high = old.getLong(offset);
+            long low = old.getLong(offset + 8);
+            if ((high | low) == 0) continue;
+            int slot = (int) (high >>> shift);
+            while (table.getLong(slot * SLOT) != 0 || table.getLong(slot * SLOT + 8) != 0) slot = slot + 1 & mask;
+            table.putLong(slot * SLOT, high);
+            table.putLong(slot * SLOT + 8, low);
+            size++;
+        }
+    }
+
+    /**
+     * Сортирует таблицу, записывает ее в новый файл-серию и очищает.
+     *
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void spill() throws IOException {
+        int count = sortTable();
+        Files.createDirectories(directory);
+        Path file = Files.createTempFile(directory, "unique-", ".tmp");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer data = table.slice(0, count * SLOT);
+            while (data.hasRemaining()) channel.write(data);
+        }
+        runs.add(new Run(file, count));
+        for (int offset = 0; offset < table.capacity(); offset += ZEROS.length) {
+            table.put(offset, ZEROS, 0, Math.min(ZEROS.length, table.capacity() - offset));
+        }
+        size = 0;
+        if (runs.size() > MAX_RUNS) mergeRuns();
+    }
+
+    /**
+     * Сжимает отпечатки таблицы в ее начало и сортирует их на месте.
+     * Ячейки уже идут в порядке старших битов отпечатков, кроме сдвинутых внутри цепочек пробирования
+     * и перенесенных через конец таблицы в ее начало. Перенесенные откладываются в конец, а остальной
+     * беспорядок локален, поэтому сортировка вставками работает почти за линейное время.
+     *
+     * @return Количество отпечатков.
+     */
+    private int sortTable() {
+        int capacity = mask + 1;
+        long[] wrapped = new long[0];
+        int count = 0;
+        boolean leadingChain = true;
+        for (int slot = 0; slot < capacity; slot++) {
+            long high = table.getLong(slot * SLOT);
+            long low = table.getLong(slot * SLOT + 8);
+            if ((high | low) == 0) {
+                leadingChain = false;
+                continue;
+            }
+            if (leadingChain && (int) (high >>> shift) > slot) {
+                wrapped = Arrays.copyOf(wrapped, wrapped.length + 2);
+                wrapped[wrapped.length - 2] = high;
+                wrapped[wrapped.length - 1] = low;
+                continue;
+            }
+            table.putLong(count * SLOT, high);
+            table.putLong(count * SLOT + 8, low);
+            count++;
+        }
+        for (int i = 0; i < wrapped.length; i += 2) {
+            table.putLong(count * SLOT, wrapped[i]);
+            table.putLong(count * SLOT + 8, wrapped[i + 1]);
+            count++;
+        }
+
+        for (int i = 1; i < count; i++) {
+            long high = table.getLong(i * SLOT);
+            long low = table.getLong(i * SLOT + 8);
+            int j = i - 1;
+            while (j >= 0 && compare(table.getLong(j * SLOT), table.getLong(j * SLOT + 8), high, low) > 0) {
+                table.putLong((j + 1) * SLOT, table.getLong(j * SLOT));
+                table.putLong((j + 1) * SLOT + 8, table.getLong(j * SLOT + 8));
+                j--;
+            }
+            table.putLong((j + 1) * SLOT, high);
+            table.putLong((j + 1) * SLOT + 8, low);
+        }
+        return count;
+    }
+
+    /**
+     * Сливает все файлы-серии в одну.
+     *
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void mergeRuns() throws IOException {
+        Path file = Files.createTempFile(directory, "unique-", ".tmp");
+        long total = 0;
+        long[] positions = new long[runs.size()];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            while (true) {
+                int best = -1;
+                for (int i = 0; i < runs.size(); i++) {
+                    if (positions[i] == runs.get(i).count) continue;
+                    if (best < 0 || compare(runs.get(i).high(positions[i]), runs.get(i).low(positions[i]),
+                            runs.get(best).high(positions[best]), runs.get(best).low(positions[best])) < 0) {
+                        best = i;
+                    }
+                }
+                if (best < 0) break;
+                Run run = runs.get(best);
+                out.writeLong(run.high(positions[best]));
+                out.writeLong(run.low(positions[best]));
+                positions[best]++;
+                total++;
+            }
+        }
+        for (Run run : runs) run.delete();
+        runs.clear();
+        runs.add(new Run(file, total));
+    }
+
+    /**
+     * Сохраняет все отпечатки в файл, который затем можно загрузить методом {@link #load(Path)}.
+     * Файл сначала пишется во временный, который затем атомарно заменяет прежний.
+     *
+     * @param path Путь к файлу отпечатков.
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    public void save(Path path) throws IOException {
+        if (size > 0) spill();
+        if (runs.size() > 1) mergeRuns();
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        if (runs.isEmpty()) Files.write(temp, new byte[0]);
+        else Files.copy(runs.get(0).file, temp, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Добавляет в множество отпечатки, сохраненные методом {@link #save(Path)}. Отсутствующий файл пропускается.
+     * Вызывается до добавления строк.
+     *
+     * @param path Путь к файлу отпечатков.
+     * @throws IOException Если файл не удалось прочитать или он поврежден.
+     */
+    public void load(Path path) throws IOException {
+        if (!Files.exists(path)) return;
+        long bytes = Files.size(path);
+        if (bytes % SLOT != 0) throw new IOException("Файл отпечатков поврежден: " + path);
+        if (bytes == 0) return;
+        Files.createDirectories(directory);
+        Path file = Files.createTempFile(directory, "unique-", ".tmp");
+        Files.copy(path, file, StandardCopyOption.REPLACE_EXISTING);
+        runs.add(new Run(file, bytes / SLOT));
+    }
+
+    /**
+     * Удаляет файлы-серии. Память таблицы освобождается сборщиком мусора.
+     */
+    @Override
+    public void close() {
+        for (Run run : runs) run.delete();
+        runs.clear();
+        table = null;
+    }
+
+    /**
+     * Сравнивает отпечатки как 128-битные беззнаковые числа.
+     */
+    private static int compare(long high1, long low1, long high2, long low2) {
+        int result = Long.compareUnsigned(high1, high2);
+        return result != 0 ? result : Long.compareUnsigned(low1, low2);
+    }
+
+    /**
+     * Файл-серия: отсортированные отпечатки, отображенные в память участками.
+     */
+    private static final class Run {
+        private final Path file;
+        private final long count;
+        private final ByteBuffer[] segments;
+
+        /**
+         * Количество старших битов отпечатка, задающих номер корзины индекса.
+         */
+        private final int bucketBits;
+
+        /**
+         * Номер первой записи каждой корзины; последний элемент равен количеству записей.
+         */
+        private final long[] bucketStarts;
+
+        private Run(Path file, long count) throws IOException {
+            this.file = file;
+            this.count = count;
+            long bytes = count * SLOT;
+            segments = new ByteBuffer[(int) ((bytes + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int i = 0; i < segments.length; i++) {
+                    long position = (long) i * SEGMENT_SIZE;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, bytes - position));
+                }
+            }
+            bucketBits = Math.max(0, 63 - Long.numberOfLeadingZeros(count / BUCKET_SIZE));
+            bucketStarts = new long[(1 << bucketBits) + 1];
+            int bucket = 0;
+            for (long record = 0; record < count; record++) {
+                int recordBucket = bucket(high(record));
+                while (bucket < recordBucket) bucketStarts[++bucket] = record;
+            }
+            while (bucket < bucketStarts.length - 1) bucketStarts[++bucket] = count;
+        }
+
+        private int bucket(long high) {
+            return bucketBits == 0 ? 0 : (int) (high >>> 64 - bucketBits);
+        }
+
+        private long high(long record) {
+            long offset = record * SLOT;
+            return segments[(int) (offset / SEGMENT_SIZE)].getLong((int) (offset % SEGMENT_SIZE));
+        }
+
+        private long low(long record) {
+            long offset = record * SLOT + 8;
+            return segments[(int) (offset / SEGMENT_SIZE)].getLong((int) (offset % SEGMENT_SIZE));
+        }
+
+        /**
+         * Ищет отпечаток внутри его корзины. Отпечатки распределены равномерно, поэтому положение записи
+         * оценивается по следующим за номером корзины битам, а от оценки запись ищется линейно:
+         * в среднем это несколько соседних записей в одной-двух строках кэша.
+         */
+        private boolean contains(long high, long low) {
+            int bucket = bucket(high);
+            long start = bucketStarts[bucket];
+            long end = bucketStarts[bucket + 1];
+            if (start == end) return false;
+            long fraction = high << bucketBits >>> 32;
+            long record = start + (fraction * (end - start) >>> 32);
+            int result = compare(high(record), low(record), high, low);
+            if (result < 0) {
+                // Запись меньше искомой: идем вперед, пока записи меньше и корзина не кончилась
+                while (result < 0 && ++record < end) {
+                    result = compare(high(record), low(record), high, low);
+                }
+            }
+            else {
+                // Запись больше искомой: идем назад, пока записи больше и корзина не кончилась
+                while (result > 0 && --record >= start) {
+                    result = compare(high(record), low(record), high, low);
+                }
+            }
+            return result == 0;
+        }
+
+        private void delete() {
+            try {
+                Files.deleteIfExists(file);
+            }
+            catch (IOException e) {
+                // Отображенный в память файл на некоторых системах нельзя удалить сразу
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+}
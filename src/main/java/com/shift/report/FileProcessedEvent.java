@@ -0,0 +1,31 @@
+package com.shift.report;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Событие Java Flight Recorder об обработке одного входного файла.
+ * Длительность события равна времени обработки файла. Если запись JFR не ведется, событие ничего не стоит.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+@Name("com.shift.FileProcessed")
+@Label("File Processed")
+@Category("File Filter")
+@Description("Обработка одного входного файла")
+public class FileProcessedEvent extends Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Lines")
+    public long lines;
+}
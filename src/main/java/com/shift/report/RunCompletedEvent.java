@@ -0,0 +1,57 @@
+package com.shift.report;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Событие Java Flight Recorder с итогами запуска: объем данных, количество строк по категориям и время этапов.
+ * Время этапов разбора, обновления статистики и записи оценивается по выборке строк (см. {@link RunMetrics}).
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+@Name("com.shift.RunCompleted")
+@Label("Run Completed")
+@Category("File Filter")
+@Description("Итоги обработки входных файлов")
+public class RunCompletedEvent extends Event {
+    @Label("Files")
+    public int files;
+
+    @Label("Bytes Read")
+    @DataAmount
+    public long bytesRead;
+
+    @Label("Lines")
+    public long lines;
+
+    @Label("Integers")
+    public long integers;
+
+    @Label("Floats")
+    public long floats;
+
+    @Label("Strings")
+    public long strings;
+
+    @Label("Classification Time")
+    @Timespan
+    public long classifyNanos;
+
+    @Label("Statistics Time")
+    @Timespan
+    public long statisticsNanos;
+
+    @Label("Write Time")
+    @Timespan
+    public long writeNanos;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+}
@@ -0,0 +1,435 @@
+package com.shift.report;
+
+import com.shift.category.Category;
+import com.shift.category.CategoryDispatcher;
+import com.shift.cli.CommandLineOptions;
+import com.shift.data.CategoryStatistics;
+import com.shift.data.DataType;
+import com.shift.data.Statistics;
+import com.shift.output.CategoryWriters;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры одного запуска обработки: объем и количество строк по каждому входному файлу, время этапов
+ * (чтение, классификация, обновление статистики, запись), объем записанных данных по встроенным
+ * и пользовательским категориям, а также количество сборок мусора и объем выделенной памяти.
+ * <p>
+ * Чтобы не замедлять обработку, время этапов измеряется не для каждой строки, а для каждой
+ * {@value #SAMPLE_RATE}-й, и умножается на частоту выборки. Время чтения оценивается как остаток
+ * времени обработки файлов за вычетом остальных этапов. Выборка включается, только если запрошен
+ * отчет или включена запись события {@link RunCompletedEvent} в Java Flight Recorder;
+ * иначе на строку приходится одна проверка флага.
+ * <p>
+ * Частичные замеры параллельной обработки объединяются методом {@link #merge(RunMetrics)}.
+ * Итоги публикуются событием JFR и при необходимости записываются в отчет JSON.
+ * <p>
+ * Счетчики сборки мусора и выделенной памяти JVM общие для всего процесса. В задаче демона одновременно
+ * с ней могут выполняться другие задачи, поэтому в отчете такие счетчики помечаются областью {@code process},
+ * а в отдельном запуске, где процесс выполняет только его, - областью {@code run}.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class RunMetrics {
+    /**
+     * Частота выборки строк для замера времени этапов (степень двойки).
+     */
+    public static final int SAMPLE_RATE = 64;
+
+    /**
+     * Замеры одного входного файла.
+     *
+     * @param path  Путь к файлу.
+     * @param bytes Количество прочитанных байтов.
+     * @param lines Количество обработанных строк.
+     * @param nanos Время обработки в наносекундах.
+     */
+    public record FileMetrics(String path, long bytes, long lines, long nanos) {
+
+        private FileMetrics add(FileMetrics other) {
+            return new FileMetrics(path, bytes + other.bytes, lines + other.lines, nanos + other.nanos);
+        }
+    }
+
+    /**
+     * Измерять ли время этапов по выборке строк.
+     */
+    private final boolean sampling;
+
+    /**
+     * Пользовательские категории в порядке номеров, начиная с {@link CategoryDispatcher#FIRST_CUSTOM}.
+     */
+    private final List<Category> categories;
+
+    /**
+     * Счетчик строк для выборки.
+     */
+    private int sampleCounter;
+
+    /**
+     * Замеры входных файлов по пути. Повторная обработка файла (например, в режиме слежения) суммируется.
+     */
+    private final Map<String, FileMetrics> files = new LinkedHashMap<>();
+
+    /**
+     * Оценки времени этапов классификации и обновления статистики в наносекундах.
+     */
+    private long classifyNanos;
+    private long statisticsNanos;
+
+    /**
+     * Время записи по номерам категорий (встроенные, затем пользовательские)
+     * и время закрытия выходных файлов в наносекундах.
+     */
+    private final long[] writeNanos;
+    private long closeNanos;
+
+    /**
+     * Состояние на начало запуска: время, размеры выходных файлов по номерам категорий,
+     * сборки мусора и выделенная память.
+     */
+    private long startNanos;
+    private final long[] initialOutputSizes;
+    private long initialCollections;
+    private long initialCollectionMillis;
+    private long initialAllocatedBytes;
+
+    /**
+     * Конструктор класса.
+     *
+     * @param sampling   Измерять ли время этапов по выборке строк.
+     * @param categories Пользовательские категории в порядке номеров.
+     */
+    public RunMetrics(boolean sampling, List<Category> categories) {
+        this.sampling = sampling;
+        this.categories = List.copyOf(categories);
+        this.writeNanos = new long[CategoryDispatcher.FIRST_CUSTOM + categories.size()];
+        this.initialOutputSizes = new long[writeNanos.length];
+    }
+
+    /**
+     * Определяет, нужно ли измерять время этапов для запуска с указанными настройками.
+     *
+     * @param options Настройки командной строки.
+     * @return {@code true}, если запрошен отчет или включена запись итогового события JFR.
+     */
+    public static boolean isSamplingRequested(CommandLineOptions options) {
+        // Метаданные событий запрашиваются, только если запись JFR уже запущена, чтобы не загружать JFR без нужды
+        return options.getReport() != null
+                || FlightRecorder.isInitialized() && EventType.getEventType(RunCompletedEvent.class).isEnabled();
+    }
+
+    /**
+     * Запоминает состояние на начало запуска. Вызывается только для общего результата, а не для частичных.
+     *
+     * @param options Настройки командной строки, определяющие выходные файлы.
+     */
+    public void begin(CommandLineOptions options) {
+        startNanos = System.nanoTime();
+        for (int category = 0; category < initialOutputSizes.length; category++) {
+            initialOutputSizes[category] = options.getOutputMode() == CommandLineOptions.OutputMode.APPEND
+                    ? outputSize(options, fileName(category)) : 0;
+        }
+        initialCollections = collections();
+        initialCollectionMillis = collectionMillis();
+        initialAllocatedBytes = allocatedBytes();
+    }
+
+    /**
+     * Отмечает очередную строку и определяет, попала ли она в выборку для замера времени этапов.
+     *
+     * @return {@code true}, если время этапов этой строки нужно измерить.
+     */
+    public boolean sample() {
+        return sampling && (++sampleCounter & (SAMPLE_RATE - 1)) == 0;
+    }
+
+    /**
+     * Учитывает время этапов строки, попавшей в выборку.
+     *
+     * @param category   Номер категории строки: {@link DataType#ordinal()} или номер пользовательской категории.
+     * @param classify   Время классификации в наносекундах.
+     * @param statistics Время обновления статистики в наносекундах.
+     * @param write      Время записи в наносекундах.
+     */
+    public void recordSample(int category, long classify, long statistics, long write) {
+        classifyNanos += classify * SAMPLE_RATE;
+        statisticsNanos += statistics * SAMPLE_RATE;
+        recordWrite(category, write * SAMPLE_RATE);
+    }
+
+    /**
+     * Учитывает точно измеренное время записи категории.
+     *
+     * @param category Номер категории: {@link DataType#ordinal()} или номер пользовательской категории.
+     * @param nanos    Время записи в наносекундах.
+     */
+    public void recordWrite(int category, long nanos) {
+        writeNanos[category] += nanos;
+    }
+
+    /**
+     * Учитывает время закрытия выходных файлов (сброс буферов и завершение сжатия).
+     *
+     * @param nanos Время в наносекундах.
+     */
+    public void recordClose(long nanos) {
+        closeNanos += nanos;
+    }
+
+    /**
+     * Учитывает обработку входного файла и публикует событие JFR.
+     *
+     * @param event Событие, начатое перед обработкой файла.
+     * @param path  Путь к файлу.
+     * @param bytes Количество прочитанных байтов.
+     * @param lines Количество обработанных строк.
+     * @param nanos Время обработки в наносекундах.
+     */
+    public void recordFile(FileProcessedEvent event, Path path, long bytes, long lines, long nanos) {
+        files.merge(path.toString(), new FileMetrics(path.toString(), bytes, lines, nanos), FileMetrics::add);
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path.toString();
+            event.bytes = bytes;
+            event.lines = lines;
+            event.commit();
+        }
+    }
+
+    /**
+     * Добавляет к этим замерам частичные замеры другого потока.
+     *
+     * @param other Частичные замеры.
+     */
+    public void merge(RunMetrics other) {
+        other.files.values().forEach(file -> files.merge(file.path(), file, FileMetrics::add));
+        classifyNanos += other.classifyNanos;
+        statisticsNanos += other.statisticsNanos;
+        for (int i = 0; i < writeNanos.length; i++) writeNanos[i] += other.writeNanos[i];
+        closeNanos += other.closeNanos;
+    }
+
+    /**
+     * Завершает запуск: публикует итоговое событие JFR и записывает отчет JSON, если он запрошен.
+     *
+     * @param options    Настройки командной строки.
+     * @param statistics Итоговая статистика запуска.
+     * @throws IOException Если не удалось записать отчет.
+     */
+    public void finish(CommandLineOptions options, Statistics statistics) throws IOException {
+        long wallNanos = System.nanoTime() - startNanos;
+        long bytesRead = 0, lines = 0, processNanos = 0;
+        for (FileMetrics file : files.values()) {
+            bytesRead += file.bytes();
+            lines += file.lines();
+            processNanos += file.nanos();
+        }
+        long[] written = new long[writeNanos.length];
+        long totalWritten = 0, totalWriteNanos = closeNanos;
+        for (int category = 0; category < written.length; category++) {
+            written[category] = Math.max(0, outputSize(options, fileName(category)) - initialOutputSizes[category]);
+            totalWritten += written[category];
+            totalWriteNanos += writeNanos[category];
+        }
+
+        RunCompletedEvent event = new RunCompletedEvent();
+        if (event.shouldCommit()) {
+            event.files = files.size();
+            event.bytesRead = bytesRead;
+            event.lines = lines;
+            event.integers = statistics.getIntegerCount();
+            event.floats = statistics.getFloatCount();
+            event.strings = statistics.getStringCount();
+            event.classifyNanos = classifyNanos;
+            event.statisticsNanos = statisticsNanos;
+            event.writeNanos = totalWriteNanos;
+            event.bytesWritten = totalWritten;
+            event.commit();
+        }
+
+        if (options.getReport() == null) return;
+
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n  \"wallTimeMillis\": ").append(millis(wallNanos));
+        json.append(",\n  \"totals\": {\"files\": ").append(files.size())
+                .append(", \"bytesRead\": ").append(bytesRead)
+                .append(", \"lines\": ").append(lines)
+                .append(", \"linesPerSecond\": ").append(rate(lines, wallNanos))
+                .append(", \"bytesPerSecond\": ").append(rate(bytesRead, wallNanos)).append('}');
+
+        json.append(",\n  \"files\": [");
+        String separator = "\n    ";
+        for (FileMetrics file : files.values()) {
+            json.append(separator).append("{\"path\": ").append(quote(file.path()))
+                    .append(", \"bytes\": ").append(file.bytes())
+                    .append(", \"lines\": ").append(file.lines())
+                    .append(", \"millis\": ").append(millis(file.nanos()))
+                    .append(", \"linesPerSecond\": ").append(rate(file.lines(), file.nanos())).append('}');
+            separator = ",\n    ";
+        }
+        json.append(files.isEmpty() ? "]" : "\n  ]");
+
+        json.append(",\n  \"stages\": {\"sampled\": ").append(sampling)
+                .append(", \"sampleRate\": ").append(SAMPLE_RATE)
+                .append(", \"processMillis\": ").append(millis(processNanos))
+                .append(", \"readMillis\": ").append(millis(Math.max(0, processNanos - classifyNanos - statisticsNanos
+                        - (totalWriteNanos - closeNanos))))
+                .append(", \"classifyMillis\": ").append(millis(classifyNanos))
+                .append(", \"statisticsMillis\": ").append(millis(statisticsNanos))
+                .append(", \"writeMillis\": ").append(millis(totalWriteNanos)).append('}');
+
+        json.append(",\n  \"categories\": {");
+        separator = "\n    ";
+        for (int category = 0; category < written.length; category++) {
+            String fileName = fileName(category);
+            long writeTime = writeNanos[category];
+            json.append(separator).append(quote(fileName.substring(0, fileName.lastIndexOf('.')))).append(": {")
+                    .append("\"lines\": ").append(count(statistics, category))
+                    .append(", \"bytesWritten\": ").append(written[category])
+                    .append(", \"writeMillis\": ").append(millis(writeTime))
+                    .append(", \"bytesPerSecond\": ").append(rate(written[category], writeTime)).append('}');
+            separator = ",\n    ";
+        }
+        json.append("\n  }");
+
+        json.append(",\n  \"statistics\": {")
+                .append("\"integers\": {\"count\": ").append(statistics.getIntegerCount())
+                .append(", \"min\": ").append(statistics.getMinInteger())
+                .append(", \"max\": ").append(statistics.getMaxInteger())
+                .append(", \"sum\": ").append(statistics.getSumInteger())
+                .append(", \"avg\": ").append(statistics.getAvgInteger()).append('}')
+                .append(", \"floats\": {\"count\": ").append(statistics.getFloatCount())
+                .append(", \"min\": ").append(statistics.getMinFloat())
+                .append(", \"max\": ").append(statistics.getMaxFloat())
+                .append(", \"sum\": ").append(statistics.getSumFloat())
+                .append(", \"avg\": ").append(statistics.getAvgFloat()).append('}')
+                .append(", \"strings\": {\"count\": ").append(statistics.getStringCount());
+        if (statistics.getStringCount() > 0) {
+            json.append(", \"minLength\": ").append(statistics.getMinStringLength())
+                    .append(", \"maxLength\": ").append(statistics.getMaxStringLength());
+        }
+        json.append("}}");
+
+        json.append(",\n  \"gc\": {\"scope\": ").append(quote(options.isDaemonJob() ? "process" : "run"))
+                .append(", \"collections\": ").append(collections() - initialCollections)
+                .append(", \"collectionMillis\": ").append(collectionMillis() - initialCollectionMillis)
+                .append(", \"allocatedBytes\": ").append(initialAllocatedBytes < 0 ? -1 : allocatedBytes() - initialAllocatedBytes)
+                .append("}\n}\n");
+
+        Path reportPath = Path.of(options.getReport());
+        Path reportDir = reportPath.toAbsolutePath().getParent();
+        if (reportDir != null) Files.createDirectories(reportDir);
+        try (BufferedWriter writer = Files.newBufferedWriter(reportPath)) {
+            writer.write(json.toString());
+        }
+    }
+
+    /**
+     * Возвращает имя выходного файла категории (без префикса).
+     *
+     * @param category Номер категории: {@link DataType#ordinal()} или номер пользовательской категории.
+     * @return Имя файла.
+     */
+    private String fileName(int category) {
+        return category < CategoryDispatcher.FIRST_CUSTOM ? DataType.values()[category].getFileName()
+                : categories.get(category - CategoryDispatcher.FIRST_CUSTOM).fileName();
+    }
+
+    private long count(Statistics statistics, int category) {
+        if (category >= CategoryDispatcher.FIRST_CUSTOM) {
+            CategoryStatistics custom = statistics.getCategories()
+                    .get(categories.get(category - CategoryDispatcher.FIRST_CUSTOM).name());
+            return custom == null ? 0 : custom.getCount();
+        }
+        return switch (DataType.values()[category]) {
+            case INTEGER -> statistics.getIntegerCount();
+            case FLOAT -> statistics.getFloatCount();
+            case STRING -> statistics.getStringCount();
+        };
+    }
+
+    private static long outputSize(CommandLineOptions options, String fileName) {
+        try {
+            return CategoryWriters.outputSize(options, fileName);
+        }
+        catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String millis(long nanos) {
+        return Double.toString(nanos / 1_000_000.0);
+    }
+
+    private static long rate(long amount, long nanos) {
+        return nanos <= 0 ? 0 : (long) (amount * (double) TimeUnit.SECONDS.toNanos(1) / nanos);
+    }
+
+    /**
+     * Экранирует строку для JSON.
+     *
+     * @param value Строка.
+     * @return Строка JSON в кавычках.
+     */
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) quoted.append(String.format("\\u%04x", (int) c));
+                    else quoted.append(c);
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static long collections() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long collectionMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * Возвращает объем памяти, выделенной в куче всеми потоками с запуска JVM.
+     *
+     * @return Объем в байтах или -1, если JVM не поддерживает этот замер.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean extended && extended.isThreadAllocatedMemoryEnabled()) {
+            return extended.getTotalThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
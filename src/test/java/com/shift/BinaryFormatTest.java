@@ -0,0 +1,147 @@
+package com.shift;
+
+import com.shift.cli.CommandLineOptions;
+import com.shift.data.DataType;
+import com.shift.output.BinaryColumnReader;
+import com.shift.output.BinaryColumnWriter;
+import com.shift.processor.FileProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс для тестирования двоичного формата файлов чисел ({@link BinaryColumnWriter} и {@link BinaryColumnReader}).
+ * Проверяет, что обратное преобразование дает исходные строки, а заголовки блоков - точную статистику.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class BinaryFormatTest {
+
+    /**
+     * Тест для проверки записи и чтения целых чисел: малые значения, значения на границах {@code long},
+     * числа больше 64 бит и неканонические записи, в нескольких блоках.
+     *
+     * @param tempDir Временная директория для файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testIntegersRoundTrip(@TempDir Path tempDir) throws IOException {
+        Random random = new Random(19);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            lines.add(switch (i % 10) {
+                case 0 -> Long.toString(random.nextLong());
+                case 1 -> new BigInteger(100, random).subtract(BigInteger.ONE.shiftLeft(99)).toString();
+                case 2 -> "00" + random.nextInt(1000);
+                case 3 -> i % 20 == 3 ? "-0" : "0";
+                default -> Integer.toString(random.nextInt(2000) - 1000);
+            });
+        }
+        lines.add(Long.toString(Long.MIN_VALUE));
+        lines.add(Long.toString(Long.MAX_VALUE));
+        Path file = tempDir.resolve("integers.bin");
+        try (BinaryColumnWriter writer = new BinaryColumnWriter(Files.newOutputStream(file), DataType.INTEGER, true)) {
+            for (String line : lines) writer.write(line);
+        }
+
+        int index = 0;
+        int blocks = 0;
+        try (BinaryColumnReader reader = new BinaryColumnReader(file)) {
+            assertEquals(DataType.INTEGER, reader.getType());
+            while (reader.next()) {
+                BinaryColumnReader.Block block = reader.getBlock();
+                BigInteger min = null;
+                BigInteger max = null;
+                BigInteger sum = BigInteger.ZERO;
+                for (int i = 0; i < block.count(); i++, index++) {
+                    String line = lines.get(index);
+                    BigInteger expected = new BigInteger(line);
+                    assertEquals(line, reader.getText(i));
+                    assertEquals(expected, reader.getBigInteger(i));
+                    if (expected.bitLength() < Long.SIZE) assertEquals(expected.longValue(), reader.getLong(i));
+                    else {
+                        int position = i;
+                        assertThrows(ArithmeticException.class, () -> reader.getLong(position));
+                    }
+                    min = min == null || expected.compareTo(min) < 0 ? expected : min;
+                    max = max == null || expected.compareTo(max) > 0 ? expected : max;
+                    sum = sum.add(expected);
+                }
+                assertEquals(new BigDecimal(min), block.min());
+                assertEquals(new BigDecimal(max), block.max());
+                assertEquals(new BigDecimal(sum), block.sum());
+                blocks++;
+            }
+        }
+        assertEquals(lines.size(), index);
+        assertEquals(3, blocks);
+
+        Path text = tempDir.resolve("integers.txt");
+        assertEquals(lines.size(), BinaryColumnReader.decode(file, text));
+        assertEquals(lines, Files.readAllLines(text));
+    }
+
+    /**
+     * Тест для проверки вещественных чисел и записи через утилиту: в двоичном формате пишутся только числа,
+     * блоки дописываются в режиме добавления, а обратное преобразование совпадает с текстовым форматом.
+     *
+     * @param tempDir Временная директория для файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testProcessorOutput(@TempDir Path tempDir) throws IOException {
+        Path input = tempDir.resolve("in.txt");
+        Files.writeString(input, "3.1415\n1.50\n-0.001\n1e3\n2.5E-10\n42\n007\nabc\n123456789012345678901234567890\n0.1\n");
+
+        CommandLineOptions options = new CommandLineOptions();
+        options.setOutputPath(tempDir.resolve("text").toString());
+        FileProcessor processor = new FileProcessor(options);
+        processor.processFiles(List.of(input, input));
+        processor.writeResults();
+
+        options.setOutputPath(tempDir.resolve("binary").toString());
+        options.setFormat(CommandLineOptions.OutputFormat.BINARY);
+        options.setStreaming(true);
+        processor = new FileProcessor(options);
+        processor.processFile(input);
+        processor.writeResults();
+        options.setAppend(true);
+        options.setStreaming(false);
+        processor = new FileProcessor(options);
+        processor.processFile(input);
+        processor.writeResults();
+
+        assertTrue(Files.exists(tempDir.resolve("binary/strings.txt")));
+        assertFalse(Files.exists(tempDir.resolve("binary/floats.txt")));
+        for (String name : List.of("integers", "floats")) {
+            Path decoded = tempDir.resolve(name + ".txt");
+            BinaryColumnReader.decode(tempDir.resolve("binary/" + name + ".bin"), decoded);
+            assertEquals(Files.readAllLines(tempDir.resolve("text/" + name + ".txt")), Files.readAllLines(decoded));
+        }
+
+        try (BinaryColumnReader reader = new BinaryColumnReader(tempDir.resolve("binary/floats.bin"))) {
+            assertTrue(reader.next());
+            assertEquals(6, reader.getBlock().count());
+            assertEquals(3.1415, reader.getDouble(0));
+            assertEquals(new BigDecimal("1.50"), reader.getDecimal(1));
+            assertEquals(new BigDecimal("1e3"), reader.getBlock().max());
+            assertEquals(new BigDecimal("-0.001"), reader.getBlock().min());
+            assertTrue(reader.next());
+            assertFalse(reader.next());
+        }
+
+        options.setGzipOutput(true);
+        assertThrows(IllegalArgumentException.class, () -> new FileProcessor(options));
+    }
+}
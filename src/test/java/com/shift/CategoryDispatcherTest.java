@@ -0,0 +1,155 @@
+package com.shift;
+
+import com.shift.category.Categories;
+import com.shift.category.Category;
+import com.shift.category.CategoryDispatcher;
+import com.shift.cli.CommandLineOptions;
+import com.shift.data.DataType;
+import com.shift.processor.FileProcessor;
+import com.shift.processor.LineClassifier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс для тестирования пользовательских категорий и классификатора {@link CategoryDispatcher}.
+ * Результаты автомата сравниваются с последовательной проверкой регулярных выражений {@link Pattern}.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class CategoryDispatcherTest {
+
+    /**
+     * Пользовательские категории для тестов.
+     */
+    private static final List<Category> CATEGORIES = List.of(
+            new Category("uuid", "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}"),
+            new Category("date", "^\\d{4}-(0[1-9]|1[0-2])-(0[1-9]|[12]\\d|3[01])$"),
+            new Category("hex", "(?:0x)?[0-9A-Fa-f]+"),
+            new Category("word", "[^\\d\\s]\\w*"),
+            new Category("pair", "(ab|a)*b?c{2,3}"),
+            new Category("dots", "x.+"));
+
+    /**
+     * Классифицирует строку последовательной проверкой регулярных выражений.
+     *
+     * @param line Строка для классификации.
+     * @return Ожидаемый номер категории.
+     */
+    private static int classifyByRegex(String line) {
+        DataType builtIn = LineClassifier.classify(line);
+        if (builtIn != DataType.STRING) return builtIn.ordinal();
+        for (int i = 0; i < CATEGORIES.size(); i++) {
+            if (Pattern.compile(CATEGORIES.get(i).pattern()).matcher(line).matches()) {
+                return CategoryDispatcher.FIRST_CUSTOM + i;
+            }
+        }
+        return DataType.STRING.ordinal();
+    }
+
+    /**
+     * Тест на характерных строках и на случайных строках из алфавита выражений.
+     */
+    @Test
+    public void testMatchesRegex() {
+        CategoryDispatcher dispatcher = new CategoryDispatcher(CATEGORIES);
+        List<String> lines = List.of("", "42", "-1.5e3", "0x1F", "1F", "abc", "2024-02-29", "2024-13-01",
+                "123e4567-e89b-12d3-a456-426614174000", "ababcc", "acc", "ac", "_x", "строка", "a b", "ccc", "x1",
+                "x\u0085", "x\u2028", "x\u2029", "xж\u2029", "x\r", "x\u2027");
+        for (String line : lines) {
+            assertEquals(classifyByRegex(line), dispatcher.classify(line), "Строка: \"" + line + "\"");
+        }
+
+        String alphabet = "0123456789abcfxAF-.eE _ж\u0085\u2028\u2029";
+        Random random = new Random(5);
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder line = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            assertEquals(classifyByRegex(line.toString()), dispatcher.classify(line), "Строка: \"" + line + "\"");
+        }
+    }
+
+    /**
+     * Тест для проверки ошибок в выражениях: неподдерживаемые конструкции должны отклоняться при загрузке.
+     */
+    @Test
+    public void testInvalidPatterns() {
+        for (String pattern : List.of("(a", "a)", "[a", "a{3,1}", "(?=a)", "\\1", "*a", "ж", "a^b")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> new CategoryDispatcher(List.of(new Category("bad", pattern))), pattern);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new Category("bad name", "a"));
+    }
+
+    /**
+     * Тест для проверки ограничения размера автомата: вложенные повторения, раскрывающиеся в миллионы состояний,
+     * отклоняются сразу, а одиночное повторение с наибольшим количеством допускается.
+     */
+    @Test
+    public void testNestedRepeatLimit() {
+        for (String pattern : List.of("(a{1000}){1000}", "((ab){100}){100}", "(a{1,1000}){60}", "((a|b)+){1000}")) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> assertTimeoutPreemptively(
+                    Duration.ofSeconds(5), () -> new CategoryDispatcher(List.of(new Category("x", pattern)))), pattern);
+            assertTrue(e.getMessage().contains("состояний"), e.getMessage());
+        }
+        CategoryDispatcher dispatcher = new CategoryDispatcher(List.of(new Category("x", "a{1000}")));
+        assertEquals(CategoryDispatcher.FIRST_CUSTOM, dispatcher.classify("a".repeat(1000)));
+    }
+
+    /**
+     * Тест для проверки обработки файлов с категориями из файла описания:
+     * строки категорий записываются в собственные файлы, а числа остаются в своих категориях,
+     * и отчет о запуске содержит объем записи пользовательских категорий.
+     *
+     * @param tempDir Временная директория для входных и выходных файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testCategoriesFile(@TempDir Path tempDir) throws IOException {
+        Path config = tempDir.resolve("categories.conf");
+        Files.writeString(config, """
+                # Пользовательские категории
+                uuid = [0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}
+                date = \\d{4}-\\d{2}-\\d{2}
+                """);
+        Path input = tempDir.resolve("in.txt");
+        Files.writeString(input, "12\n2024-01-31\nhello\n123e4567-e89b-12d3-a456-426614174000\n1.5\n2023-12-01\n");
+
+        CommandLineOptions options = new CommandLineOptions();
+        options.setOutputPath(tempDir.resolve("out").toString());
+        options.setCategoriesFile(config.toString());
+        options.setReport(tempDir.resolve("run.json").toString());
+        assertEquals(2, Categories.load(options).getCategories().size());
+
+        FileProcessor processor = new FileProcessor(options);
+        processor.processFiles(List.of(input));
+        processor.writeResults();
+        processor.finishRun();
+
+        Path out = tempDir.resolve("out");
+        assertEquals(List.of("2024-01-31", "2023-12-01"), Files.readAllLines(out.resolve("date.txt")));
+        assertEquals(List.of("123e4567-e89b-12d3-a456-426614174000"), Files.readAllLines(out.resolve("uuid.txt")));
+        assertEquals(List.of("hello"), Files.readAllLines(out.resolve("strings.txt")));
+        assertEquals(List.of("12"), Files.readAllLines(out.resolve("integers.txt")));
+        assertEquals(2, processor.getStatistics().getCategories().get("date").getCount());
+        assertEquals(36, processor.getStatistics().getCategories().get("uuid").getMaxLength());
+        assertEquals(1, processor.getStatistics().getStringCount());
+        String report = Files.readString(tempDir.resolve("run.json"));
+        assertTrue(report.contains("\"date\": {\"lines\": 2, \"bytesWritten\": " + Files.size(out.resolve("date.txt"))), report);
+        assertTrue(report.contains("\"uuid\": {\"lines\": 1, \"bytesWritten\": 37,"), report);
+
+        Files.writeString(config, "integers = \\d+\n");
+        assertThrows(IllegalArgumentException.class, () -> Categories.load(options));
+    }
+}
@@ -0,0 +1,147 @@
+package com.shift;
+
+import com.shift.cli.CommandLineOptions;
+import com.shift.daemon.Daemon;
+import com.shift.daemon.DaemonClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс для тестирования режима демона ({@link Daemon} и {@link DaemonClient}).
+ * Проверяет одновременное выполнение задач клиентов, передачу вывода и кодов завершения.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class DaemonTest {
+
+    /**
+     * Результат задачи клиента: код завершения, вывод и ошибки.
+     */
+    private record Result(int status, String out, String err) {
+    }
+
+    private static Result client(String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = DaemonClient.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+        return new Result(status, out.toString(StandardCharsets.UTF_8), err.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Тест для проверки задач клиентов: несколько задач выполняются одновременно и записывают те же результаты,
+     * что и утилита командной строки, а ошибки в аргументах возвращаются клиенту без остановки демона.
+     *
+     * @param tempDir Временная директория для сокета и результатов.
+     * @throws Exception Если произошла ошибка при работе с демоном.
+     */
+    @Test
+    public void testConcurrentJobs(@TempDir Path tempDir) throws Exception {
+        String socket = tempDir.resolve("d.sock").toString();
+        CommandLineOptions options = new CommandLineOptions();
+        options.setSocket(socket);
+        options.setMaxJobs(2);
+        Daemon daemon = new Daemon(options, System.out, System.err);
+        Thread server = Thread.ofPlatform().start(() -> {
+            try {
+                daemon.serve();
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            while (!Files.exists(Path.of(socket))) Thread.sleep(10);
+
+            List<Future<Result>> jobs = new ArrayList<>();
+            try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+                for (int i = 0; i < 4; i++) {
+                    String output = tempDir.resolve("out" + i).toString();
+                    jobs.add(executor.submit(() -> client("--client", "--socket", socket, "-f", "-o", output,
+                            "src/test/resources/in/in1.txt", "src/test/resources/in/in2.txt")));
+                }
+            }
+            for (int i = 0; i < jobs.size(); i++) {
+                Result result = jobs.get(i).get();
+                assertEquals(0, result.status(), result.err());
+                assertTrue(result.out().startsWith("Full statistics:"), result.out());
+                assertTrue(result.out().contains("Integers: 3 "), result.out());
+                assertEquals(List.of("45", "100500", "1234567890123456789"),
+                        Files.readAllLines(tempDir.resolve("out" + i + "/integers.txt")));
+            }
+
+            Result error = client("--client", "--socket=" + socket, "--no-such-option");
+            assertEquals(2, error.status());
+            assertTrue(error.err().contains("--no-such-option"), error.err());
+
+            Result missing = client("--client", "--socket", socket, "-s", "-o", tempDir.toString(), "missing.txt");
+            assertEquals(0, missing.status());
+            assertTrue(missing.err().contains("Файл не найден"), missing.err());
+            assertTrue(missing.out().contains("Integers: 0"), missing.out());
+
+            assertEquals(2, client("--client", "--socket", socket, "--follow", "in.txt").status());
+        }
+        finally {
+            daemon.stop();
+            server.join();
+        }
+        assertFalse(Files.exists(Path.of(socket)));
+        assertEquals(1, client("--client", "--socket", socket, "-s").status());
+    }
+
+    /**
+     * Тест для проверки остановки демона при соединении клиента, который так и не прислал запрос:
+     * остановка закрывает такое соединение и не ждет его.
+     *
+     * @param tempDir Временная директория для сокета.
+     * @throws Exception Если произошла ошибка при работе с демоном.
+     */
+    @Test
+    public void testStopWithIdleConnection(@TempDir Path tempDir) throws Exception {
+        Path socket = tempDir.resolve("d.sock");
+        CommandLineOptions options = new CommandLineOptions();
+        options.setSocket(socket.toString());
+        Daemon daemon = new Daemon(options, System.out, System.err);
+        Thread server = Thread.ofPlatform().start(() -> {
+            try {
+                daemon.serve();
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        while (!Files.exists(socket)) Thread.sleep(10);
+
+        try (SocketChannel idle = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            idle.connect(UnixDomainSocketAddress.of(socket));
+            // Даем демону принять соединение и начать чтение запроса
+            Thread.sleep(200);
+            daemon.stop();
+            assertTrue(server.join(Duration.ofSeconds(5)), "демон не остановился");
+        }
+        finally {
+            daemon.stop();
+            server.join(Duration.ofSeconds(5));
+        }
+        assertFalse(Files.exists(socket));
+    }
+}
@@ -2,17 +2,35 @@ package com.shift;
 
 import com.shift.cli.CommandLineOptions;
 import com.shift.data.Statistics;
+import com.shift.output.AsyncLineWriter;
+import com.shift.output.LineWriter;
+import com.shift.processor.FileFollower;
 import com.shift.processor.FileProcessor;
+import com.shift.processor.InputFiles;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -149,4 +167,692 @@ public class FileProcessorTest {
         // Проверяем, что файл не существует
         assertFalse(Files.exists(nonExistentPath));
     }
+
+    /**
+     * Тест для проверки потокового режима.
+     * Проверяет, что результаты совпадают с обычным режимом, а файлы пустых категорий не создаются.
+     *
+     * @param outDir Временная директория для результатов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testStreamingMode(@TempDir Path outDir) throws IOException {
+        options.setOutputPath(outDir.toString());
+        options.setStreaming(true);
+        FileProcessor streamingProcessor = new FileProcessor(options);
+
+        streamingProcessor.processFile(Paths.get("src/test/resources/in/in1.txt"));
+        streamingProcessor.processFile(Paths.get("src/test/resources/in/in2.txt"));
+        streamingProcessor.writeResults();
+
+        // В потоковом режиме строки не накапливаются в памяти
+        assertTrue(streamingProcessor.getIntegers().isEmpty());
+        assertTrue(streamingProcessor.getStrings().isEmpty());
+
+        assertEquals(List.of("45", "100500", "1234567890123456789"),
+                Files.readAllLines(outDir.resolve("tests-integers.txt")));
+        assertEquals(List.of("3.1415", "-0.001", "1.528535047E-25"),
+                Files.readAllLines(outDir.resolve("tests-floats.txt")));
+        assertEquals(6, Files.readAllLines(outDir.resolve("tests-strings.txt")).size());
+        assertEquals(3, streamingProcessor.getStatistics().getIntegerCount());
+
+        // Файл с одними строками не должен порождать пустые файлы чисел
+        Path stringsOnly = outDir.resolve("strings-only.txt");
+        Files.write(stringsOnly, List.of("abc", "def"));
+        options.setPrefix("only-");
+        FileProcessor onlyStrings = new FileProcessor(options);
+        onlyStrings.processFile(stringsOnly);
+        onlyStrings.writeResults();
+
+        assertTrue(Files.exists(outDir.resolve("only-strings.txt")));
+        assertFalse(Files.exists(outDir.resolve("only-integers.txt")));
+        assertFalse(Files.exists(outDir.resolve("only-floats.txt")));
+    }
+
+    /**
+     * Тест для проверки параллельной обработки файлов.
+     * Проверяет, что порядок строк и статистика совпадают с последовательной обработкой.
+     *
+     * @throws IOException Если произошла ошибка при чтении файлов.
+     */
+    @Test
+    public void testParallelProcessing() throws IOException {
+        List<Path> files = List.of(
+                Paths.get("src/test/resources/in/in1.txt"),
+                Paths.get("src/test/resources/in/in2.txt"),
+                Paths.get("src/test/resources/in/in1.txt"),
+                Paths.get("src/test/resources/in/non-existent.txt"),
+                Paths.get("src/test/resources/in/in2.txt"));
+
+        processor.processFiles(files);
+
+        options.setThreads(4);
+        FileProcessor parallelProcessor = new FileProcessor(options);
+        parallelProcessor.processFiles(files);
+
+        assertEquals(processor.getIntegers(), parallelProcessor.getIntegers());
+        assertEquals(processor.getFloats(), parallelProcessor.getFloats());
+        assertEquals(processor.getStrings(), parallelProcessor.getStrings());
+
+        Statistics expected = processor.getStatistics();
+        Statistics actual = parallelProcessor.getStatistics();
+        assertEquals(expected.getIntegerCount(), actual.getIntegerCount());
+        assertEquals(expected.getSumInteger(), actual.getSumInteger());
+        assertEquals(expected.getAvgInteger(), actual.getAvgInteger());
+        assertEquals(expected.getMinFloat(), actual.getMinFloat());
+        assertEquals(expected.getMaxFloat(), actual.getMaxFloat());
+        assertEquals(expected.getAvgFloat(), actual.getAvgFloat());
+        assertEquals(expected.getStringCount(), actual.getStringCount());
+        assertEquals(expected.getMinStringLength(), actual.getMinStringLength());
+        assertEquals(expected.getMaxStringLength(), actual.getMaxStringLength());
+    }
+
+    /**
+     * Тест для проверки директорий и шаблонов glob во входных файлах и их чтения в виртуальных потоках.
+     * Файлы раскрываются в порядке путей, а результат совпадает с последовательной обработкой того же списка.
+     *
+     * @param tempDir Временная директория для входных файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testDirectoryAndGlobInputs(@TempDir Path tempDir) throws IOException {
+        Path nested = Files.createDirectories(tempDir.resolve("logs/nested"));
+        for (int i = 0; i < 40; i++) {
+            Path dir = i % 3 == 0 ? nested : nested.getParent();
+            Files.writeString(dir.resolve("part-" + (char) ('a' + i % 26) + i + ".txt"), i + "\n" + i + ".5\nline " + i + "\n");
+        }
+        Files.writeString(nested.getParent().resolve("notes.csv"), "csv\n");
+
+        List<Path> flat = InputFiles.expand(List.of(tempDir.resolve("logs").toString()), false);
+        List<Path> recursive = InputFiles.expand(List.of(tempDir.resolve("logs").toString()), true);
+        List<Path> glob = InputFiles.expand(List.of(tempDir + "/logs/*.txt"), false);
+        List<Path> deepGlob = InputFiles.expand(List.of(tempDir + "/logs/**.txt"), false);
+        assertEquals(27, flat.size());
+        assertEquals(41, recursive.size());
+        assertEquals(26, glob.size());
+        assertEquals(40, deepGlob.size());
+        assertEquals(recursive.stream().sorted().toList(), recursive);
+        assertEquals(glob, flat.stream().filter(path -> path.toString().endsWith(".txt")).toList());
+        assertTrue(InputFiles.expand(List.of(tempDir + "/logs/*.log"), false).isEmpty());
+
+        processor.processFiles(recursive);
+
+        options.setConcurrency(8);
+        FileProcessor concurrentProcessor = new FileProcessor(options);
+        concurrentProcessor.processFiles(recursive);
+
+        assertEquals(processor.getIntegers(), concurrentProcessor.getIntegers());
+        assertEquals(processor.getFloats(), concurrentProcessor.getFloats());
+        assertEquals(processor.getStrings(), concurrentProcessor.getStrings());
+        assertEquals(41, concurrentProcessor.getStrings().size());
+        assertEquals(processor.getStatistics().getSumInteger(), concurrentProcessor.getStatistics().getSumInteger());
+        assertEquals(processor.getStatistics().getMaxStringLength(), concurrentProcessor.getStatistics().getMaxStringLength());
+    }
+
+    /**
+     * Тест для проверки разбора файла по частям через отображение в память.
+     * Файл содержит разные разделители строк и многобайтовые символы, а размер части выбран маленьким,
+     * чтобы границы частей попадали внутрь строк. Результат должен совпадать с последовательным чтением.
+     *
+     * @param tempDir Временная директория для входного файла.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testMemoryMappedProcessing(@TempDir Path tempDir) throws IOException {
+        StringBuilder content = new StringBuilder();
+        String[] separators = {"\n", "\r\n", "\r"};
+        for (int i = 0; i < 500; i++) {
+            content.append(switch (i % 4) {
+                case 0 -> String.valueOf(i * 7919L - 100_000);
+                case 1 -> i + ".5e-" + (i % 10);
+                case 2 -> "Строка номер " + i;
+                default -> "";
+            });
+            content.append(separators[i % separators.length]);
+        }
+        content.append("последняя строка без перевода");
+        Path input = tempDir.resolve("mixed.txt");
+        Files.writeString(input, content);
+
+        processor.processFile(input);
+
+        options.setMemoryMapped(true);
+        options.setThreads(3);
+        options.setChunkSize(37);
+        FileProcessor mappedProcessor = new FileProcessor(options);
+        mappedProcessor.processFiles(List.of(input));
+
+        assertEquals(processor.getIntegers(), mappedProcessor.getIntegers());
+        assertEquals(processor.getFloats(), mappedProcessor.getFloats());
+        assertEquals(processor.getStrings(), mappedProcessor.getStrings());
+        assertEquals(processor.getStatistics().getSumFloat(), mappedProcessor.getStatistics().getSumFloat());
+        assertEquals(processor.getStatistics().getMaxStringLength(), mappedProcessor.getStatistics().getMaxStringLength());
+    }
+
+    /**
+     * Тест для проверки разбора по частям файла, в котором строки разделены только символом {@code \r}:
+     * границы частей должны проходить по {@code \r}, не теряя и не добавляя строк, в том числе пустых.
+     *
+     * @param tempDir Временная директория для входного файла.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    @Test
+    public void testMemoryMappedCarriageReturns(@TempDir Path tempDir) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            content.append(i % 5 == 0 ? "" : i % 2 == 0 ? String.valueOf(i * 31) : "строка " + i).append('\r');
+        }
+        Path input = tempDir.resolve("cr.txt");
+        Files.writeString(input, content);
+
+        processor.processFile(input);
+
+        options.setMemoryMapped(true);
+        options.setThreads(4);
+        options.setChunkSize(16);
+        FileProcessor mappedProcessor = new FileProcessor(options);
+        mappedProcessor.processFiles(List.of(input));
+
+        assertEquals(120, processor.getIntegers().size());
+        assertEquals(processor.getIntegers(), mappedProcessor.getIntegers());
+        assertEquals(processor.getStrings(), mappedProcessor.getStrings());
+        assertEquals(processor.getStatistics().getStringCount(), mappedProcessor.getStatistics().getStringCount());
+    }
+
+    /**
+     * Тест для проверки асинхронной записи.
+     * Пакеты и очередь выбраны минимальными, чтобы разбор постоянно упирался в ограничение очереди.
+     * Содержимое файлов должно совпадать с обычным режимом.
+     *
+     * @param outDir Временная директория для результатов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testAsyncWrite(@TempDir Path outDir) throws IOException {
+        List<Path> files = List.of(
+                Paths.get("src/test/resources/in/in1.txt"),
+                Paths.get("src/test/resources/in/in2.txt"),
+                Paths.get("src/test/resources/in/in1.txt"));
+        processor.processFiles(files);
+
+        options.setOutputPath(outDir.toString());
+        options.setAsyncWrite(true);
+        options.setBatchSize(2);
+        options.setQueueDepth(1);
+        FileProcessor asyncProcessor = new FileProcessor(options);
+        asyncProcessor.processFiles(files);
+        asyncProcessor.writeResults();
+
+        assertEquals(processor.getIntegers(), Files.readAllLines(outDir.resolve("tests-integers.txt")));
+        assertEquals(processor.getFloats(), Files.readAllLines(outDir.resolve("tests-floats.txt")));
+        assertEquals(processor.getStrings(), Files.readAllLines(outDir.resolve("tests-strings.txt")));
+    }
+
+    /**
+     * Тест для проверки прерванного закрытия асинхронной записи: поток записи занят, очередь заполнена,
+     * а закрывающий поток прерван. Закрытие должно сообщить о прерывании, а поток записи - закрыть приемник.
+     *
+     * @throws Exception Если произошла ошибка при записи или ожидании.
+     */
+    @Test
+    public void testAsyncCloseInterrupted() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch targetClosed = new CountDownLatch(1);
+        LineWriter target = new LineWriter() {
+            @Override
+            public void write(String line) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+                targetClosed.countDown();
+            }
+        };
+        AsyncLineWriter writer = new AsyncLineWriter(target, "async-test", 1, 1);
+        writer.write("первая");
+        writing.await();
+        // Пакет размером в одну строку: вторая строка заполняет очередь глубины 1
+        writer.write("вторая");
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedIOException.class, writer::close);
+        assertTrue(Thread.interrupted());
+        release.countDown();
+        assertTrue(targetClosed.await(10, TimeUnit.SECONDS), "приемник не закрыт");
+    }
+
+    /**
+     * Тест для проверки побайтового режима.
+     * Входной файл содержит разные разделители строк, кириллицу и символы вне базовой плоскости Unicode.
+     * Содержимое выходных файлов и статистика, включая длины строк, должны совпадать с обычным режимом.
+     *
+     * @param tempDir Временная директория для входных и выходных файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testByteMode(@TempDir Path tempDir) throws IOException {
+        Path input = tempDir.resolve("bytes.txt");
+        Files.writeString(input, "12\n3.5\r\nтекст\rsmile \uD83D\uDE00\n-7\n-7\n99999999999999999999999\r\n\n1e5\nконец");
+        processor.processFile(input);
+
+        Path outDir = tempDir.resolve("out");
+        options.setOutputPath(outDir.toString());
+        options.setByteMode(true);
+        FileProcessor byteProcessor = new FileProcessor(options);
+        byteProcessor.processFiles(List.of(input));
+        byteProcessor.writeResults();
+
+        assertEquals(processor.getIntegers(), Files.readAllLines(outDir.resolve("tests-integers.txt")));
+        assertEquals(processor.getFloats(), Files.readAllLines(outDir.resolve("tests-floats.txt")));
+        assertEquals(processor.getStrings(), Files.readAllLines(outDir.resolve("tests-strings.txt")));
+
+        Statistics expected = processor.getStatistics();
+        Statistics actual = byteProcessor.getStatistics();
+        assertEquals(expected.getSumInteger(), actual.getSumInteger());
+        assertEquals(expected.getSumFloat(), actual.getSumFloat());
+        assertEquals(expected.getStringCount(), actual.getStringCount());
+        assertEquals(expected.getMinStringLength(), actual.getMinStringLength());
+        assertEquals(expected.getMaxStringLength(), actual.getMaxStringLength());
+    }
+
+    /**
+     * Тест для проверки сжатых входных и выходных файлов.
+     * Сжатый входной файл должен распознаваться по сигнатуре, а сжатые результаты совпадать с обычным режимом
+     * как в построчном, так и в побайтовом режиме.
+     *
+     * @param tempDir Временная директория для входных и выходных файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testGzipInputAndOutput(@TempDir Path tempDir) throws IOException {
+        Path input = Paths.get("src/test/resources/in/in1.txt");
+        Path compressedInput = tempDir.resolve("in1.data");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressedInput))) {
+            Files.copy(input, out);
+        }
+        processor.processFile(input);
+
+        for (boolean byteMode : new boolean[]{false, true}) {
+            Path outDir = tempDir.resolve(byteMode ? "bytes" : "lines");
+            options.setOutputPath(outDir.toString());
+            options.setGzipOutput(true);
+            options.setStreaming(true);
+            options.setByteMode(byteMode);
+            FileProcessor gzipProcessor = new FileProcessor(options);
+            gzipProcessor.processFile(compressedInput);
+            gzipProcessor.writeResults();
+
+            assertEquals(processor.getIntegers(), readGzipLines(outDir.resolve("tests-integers.txt.gz")));
+            assertEquals(processor.getFloats(), readGzipLines(outDir.resolve("tests-floats.txt.gz")));
+            assertEquals(processor.getStrings(), readGzipLines(outDir.resolve("tests-strings.txt.gz")));
+            assertEquals(processor.getStatistics().getMaxStringLength(), gzipProcessor.getStatistics().getMaxStringLength());
+        }
+    }
+
+    /**
+     * Читает строки из файла в формате gzip.
+     *
+     * @param path Путь к файлу.
+     * @return Строки файла.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    private static List<String> readGzipLines(Path path) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+
+    /**
+     * Тест для проверки инкрементального режима.
+     * Второй запуск должен обработать только дописанные строки и вывести накопленную статистику,
+     * а после усечения, ротации copytruncate или перезаписи на месте файл должен читаться заново с начала.
+     *
+     * @param tempDir Временная директория для входных и выходных файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testIncrementalMode(@TempDir Path tempDir) throws IOException {
+        Path input = tempDir.resolve("log.txt");
+        Path outDir = tempDir.resolve("out");
+        options.setOutputPath(outDir.toString());
+        options.setIncremental(true);
+
+        Files.writeString(input, "1\nabc\n2.5\nнезавершен");
+        runIncremental(input);
+        assertEquals(List.of("1"), Files.readAllLines(outDir.resolve("tests-integers.txt")));
+        assertEquals(List.of("abc"), Files.readAllLines(outDir.resolve("tests-strings.txt")));
+
+        Files.writeString(input, "ная\n5\n", StandardOpenOption.APPEND);
+        Statistics cumulative = runIncremental(input);
+        assertEquals(List.of("1", "5"), Files.readAllLines(outDir.resolve("tests-integers.txt")));
+        assertEquals(List.of("abc", "незавершенная"), Files.readAllLines(outDir.resolve("tests-strings.txt")));
+        assertEquals(2, cumulative.getIntegerCount());
+        assertEquals(new BigInteger("6"), cumulative.getSumInteger());
+        assertEquals(1, cumulative.getFloatCount());
+        assertEquals(13, cumulative.getMaxStringLength());
+
+        // Файл не изменился: новых строк нет
+        runIncremental(input);
+        assertEquals(List.of("1", "5"), Files.readAllLines(outDir.resolve("tests-integers.txt")));
+
+        // Файл усечен: читается заново с начала
+        Files.writeString(input, "7\n");
+        cumulative = runIncremental(input);
+        assertEquals(List.of("1", "5", "7"), Files.readAllLines(outDir.resolve("tests-integers.txt")));
+        assertEquals(3, cumulative.getIntegerCount());
+        assertTrue(Files.exists(outDir.resolve("tests-checkpoint.properties")));
+
+        // Ротация copytruncate: файл усечен и до запуска вырос больше прежнего размера, inode тот же
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+        }
+        Files.writeString(input, "8\n9\n10\n", StandardOpenOption.APPEND);
+        cumulative = runIncremental(input);
+        assertEquals(List.of("1", "5", "7", "8", "9", "10"), Files.readAllLines(outDir.resolve("tests-integers.txt")));
+        assertEquals(6, cumulative.getIntegerCount());
+
+        // Файл переписан на месте содержимым того же размера: начало изменилось, читается заново
+        Files.writeString(input, "11\n12\n13\n");
+        runIncremental(input);
+        assertEquals(List.of("1", "5", "7", "8", "9", "10", "11", "12", "13"),
+                Files.readAllLines(outDir.resolve("tests-integers.txt")));
+
+        // Манифест сохранен без сводок: запуск со сводками не может их продолжить и отклоняется
+        options.setSketches(true);
+        IOException mismatch = assertThrows(IOException.class, () -> runIncremental(input));
+        assertTrue(mismatch.getMessage().contains("--sketches"), mismatch.getMessage());
+        assertEquals(9, Files.readAllLines(outDir.resolve("tests-integers.txt")).size());
+    }
+
+    /**
+     * Выполняет один инкрементальный запуск, как это делает приложение.
+     *
+     * @param input Входной файл.
+     * @return Накопленная статистика после запуска.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    private Statistics runIncremental(Path input) throws IOException {
+        FileProcessor incremental = new FileProcessor(options);
+        incremental.loadCheckpoint();
+        incremental.processFiles(List.of(input));
+        incremental.writeResults();
+        return incremental.getStatistics();
+    }
+
+    /**
+     * Тест для проверки режима слежения за файлами.
+     * Дописанные в файл строки должны попасть в выходные файлы без перезапуска,
+     * а после остановки слежения статистика должна учитывать все строки.
+     *
+     * @param tempDir Временная директория для входных и выходных файлов.
+     * @throws Exception Если произошла ошибка при обработке файлов или ожидании.
+     */
+    @Test
+    public void testFollowMode(@TempDir Path tempDir) throws Exception {
+        Path input = tempDir.resolve("log.txt");
+        Path outDir = tempDir.resolve("out");
+        options.setOutputPath(outDir.toString());
+        options.setFollow(true);
+        options.setPollInterval(20);
+        options.setFlushInterval(20);
+        options.setStatsInterval(20);
+        options.setShortStats(true);
+        Files.writeString(input, "1\nabc\n");
+
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        FileProcessor following = new FileProcessor(options);
+        FileFollower follower = new FileFollower(following, List.of(input),
+                new PrintStream(printed, true, StandardCharsets.UTF_8));
+        Thread thread = new Thread(() -> {
+            try {
+                follower.follow();
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+
+        Path integers = outDir.resolve("tests-integers.txt");
+        Files.writeString(input, "2\n3.5\nнезавершен", StandardOpenOption.APPEND);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!(Files.exists(integers) && Files.readAllLines(integers).equals(List.of("1", "2")))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(List.of("1", "2"), Files.readAllLines(integers));
+        while (!printed.toString(StandardCharsets.UTF_8).contains("Short statistics:")
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        follower.stop();
+        thread.join(10_000);
+        assertFalse(thread.isAlive());
+        following.writeResults();
+
+        assertEquals(List.of("3.5"), Files.readAllLines(outDir.resolve("tests-floats.txt")));
+        assertEquals(List.of("abc"), Files.readAllLines(outDir.resolve("tests-strings.txt")));
+        assertEquals(2, following.getStatistics().getIntegerCount());
+        assertEquals(1, following.getStatistics().getFloatCount());
+        // Периодическая статистика выводится в переданный поток
+        String output = printed.toString(StandardCharsets.UTF_8);
+        assertTrue(output.startsWith("Short statistics:") && output.contains("Integers: "), output);
+    }
+
+    /**
+     * Тест для проверки отчета о запуске.
+     * Отчет должен содержать замеры каждого входного файла при параллельной обработке,
+     * количество строк и объем записанных данных по категориям.
+     *
+     * @param tempDir Временная директория для выходных файлов и отчета.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testRunReport(@TempDir Path tempDir) throws IOException {
+        Path report = tempDir.resolve("report/run.json");
+        options.setOutputPath(tempDir.toString());
+        options.setReport(report.toString());
+        options.setThreads(2);
+
+        FileProcessor reporting = new FileProcessor(options);
+        reporting.processFiles(List.of(Paths.get("src/test/resources/in/in1.txt"), Paths.get("src/test/resources/in/in2.txt")));
+        reporting.writeResults();
+        reporting.finishRun();
+
+        String json = Files.readString(report);
+        assertTrue(json.contains("\"totals\": {\"files\": 2, \"bytesRead\": 238, \"lines\": 12,"));
+        assertTrue(json.contains("{\"path\": \"src/test/resources/in/in1.txt\", \"bytes\": 118, \"lines\": 8,"));
+        assertTrue(json.contains("\"integers\": {\"lines\": 3, \"bytesWritten\": " + Files.size(tempDir.resolve("tests-integers.txt"))));
+        assertTrue(json.contains("\"strings\": {\"count\": 6, \"minLength\": 4, \"maxLength\": 42}"));
+        assertTrue(json.contains("\"gc\": {\"scope\": \"run\", \"collections\": "), json);
+    }
+
+    /**
+     * Тест для проверки режима удаления повторов.
+     * Предел памяти задан так, чтобы таблица отпечатков несколько раз сбрасывалась на диск:
+     * в результатах должно остаться первое вхождение каждой строки в исходном порядке,
+     * статистика должна считаться по различным строкам, а побайтовый режим должен давать тот же результат.
+     *
+     * @param tempDir Временная директория для входных и выходных файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testUniqueMode(@TempDir Path tempDir) throws IOException {
+        StringBuilder first = new StringBuilder();
+        StringBuilder second = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            first.append(i).append('\n').append("строка ").append(i % 5000).append('\n');
+            second.append(i * 2).append('\n');
+        }
+        Path in1 = tempDir.resolve("in1.txt");
+        Path in2 = tempDir.resolve("in2.txt");
+        Files.writeString(in1, first);
+        Files.writeString(in2, second);
+        options.setUnique(true);
+        options.setUniqueMemory(64 * 1024);
+
+        for (boolean bytes : new boolean[]{false, true}) {
+            Path outDir = tempDir.resolve(bytes ? "bytes" : "text");
+            options.setOutputPath(outDir.toString());
+            options.setByteMode(bytes);
+            FileProcessor deduplicating = new FileProcessor(options);
+            deduplicating.processFiles(List.of(in1, in2));
+            deduplicating.writeResults();
+
+            List<String> integers = Files.readAllLines(outDir.resolve("tests-integers.txt"));
+            assertEquals(30000, integers.size());
+            assertEquals("19999", integers.get(19999));
+            assertEquals("20000", integers.get(20000));
+            assertEquals("39998", integers.get(29999));
+            List<String> strings = Files.readAllLines(outDir.resolve("tests-strings.txt"));
+            assertEquals(5000, strings.size());
+            assertEquals("строка 4999", strings.get(4999));
+
+            Statistics distinct = deduplicating.getStatistics();
+            assertEquals(30000, distinct.getIntegerCount());
+            assertEquals(BigInteger.valueOf(19999L * 20000 / 2 + 10000L * (20000 + 39998) / 2), distinct.getSumInteger());
+            assertEquals(5000, distinct.getStringCount());
+            // Временные файлы отпечатков удаляются по завершении
+            try (var files = Files.list(outDir)) {
+                assertEquals(2, files.count());
+            }
+        }
+    }
+
+    /**
+     * Тест для проверки удаления повторов между инкрементальными запусками:
+     * строки, записанные в прошлом запуске, не должны записываться повторно.
+     *
+     * @param tempDir Временная директория для входных и выходных файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testUniqueAcrossIncrementalRuns(@TempDir Path tempDir) throws IOException {
+        Path input = tempDir.resolve("log.txt");
+        Path outDir = tempDir.resolve("out");
+        options.setOutputPath(outDir.toString());
+        options.setIncremental(true);
+        options.setUnique(true);
+
+        Files.writeString(input, "1\nabc\n1\n");
+        runIncremental(input);
+        Files.writeString(input, "abc\n2\n1\n", StandardOpenOption.APPEND);
+        Statistics cumulative = runIncremental(input);
+
+        assertEquals(List.of("1", "2"), Files.readAllLines(outDir.resolve("tests-integers.txt")));
+        assertEquals(List.of("abc"), Files.readAllLines(outDir.resolve("tests-strings.txt")));
+        assertEquals(2, cumulative.getIntegerCount());
+        assertTrue(Files.exists(outDir.resolve("tests-unique.fingerprints")));
+    }
+
+    /**
+     * Тест для проверки сортировки выходных файлов.
+     * Бюджет памяти задан так, чтобы строки сбрасывались во множество серий и сливались в несколько проходов.
+     * Числа должны идти по значению, в том числе выходящие за пределы {@code long}, строки - лексикографически,
+     * временные файлы должны быть удалены, а в режиме добавления существующие строки сортируются вместе с новыми.
+     *
+     * @param tempDir Временная директория для входных и выходных файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testSortedOutput(@TempDir Path tempDir) throws IOException {
+        StringBuilder content = new StringBuilder("99999999999999999999999\n-99999999999999999999999\n1e3\n999.5\n");
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0; i < 5000; i++) {
+            content.append(random.nextInt(2_000_000) - 1_000_000).append('\n');
+            content.append(random.nextInt(1000) - 500).append('.').append(random.nextInt(100)).append('\n');
+            content.append("слово").append(random.nextInt(100_000)).append('\n');
+        }
+        Path input = tempDir.resolve("in.txt");
+        Files.writeString(input, content);
+        Path outDir = tempDir.resolve("out");
+        options.setOutputPath(outDir.toString());
+        options.setSort(true);
+        options.setSortMemory(4096);
+        options.setThreads(2);
+
+        FileProcessor sorting = new FileProcessor(options);
+        sorting.processFiles(List.of(input, input));
+        sorting.writeResults();
+
+        List<String> integers = Files.readAllLines(outDir.resolve("tests-integers.txt"));
+        assertEquals(10004, integers.size());
+        assertEquals("-99999999999999999999999", integers.get(0));
+        assertEquals("99999999999999999999999", integers.get(integers.size() - 1));
+        for (int i = 1; i < integers.size(); i++) {
+            assertTrue(new BigInteger(integers.get(i - 1)).compareTo(new BigInteger(integers.get(i))) <= 0);
+        }
+        List<String> floats = Files.readAllLines(outDir.resolve("tests-floats.txt"));
+        assertEquals(10004, floats.size());
+        assertEquals("999.5", floats.get(floats.size() - 3));
+        assertEquals("1e3", floats.get(floats.size() - 1));
+        for (int i = 1; i < floats.size(); i++) {
+            assertTrue(new BigDecimal(floats.get(i - 1)).compareTo(new BigDecimal(floats.get(i))) <= 0);
+        }
+        List<String> strings = Files.readAllLines(outDir.resolve("tests-strings.txt"));
+        assertEquals(10000, strings.size());
+        assertEquals(strings.stream().sorted().toList(), strings);
+        try (var files = Files.list(outDir)) {
+            assertEquals(3, files.count());
+        }
+
+        Files.writeString(input, "0\n");
+        options.setAppend(true);
+        FileProcessor appending = new FileProcessor(options);
+        appending.processFiles(List.of(input));
+        appending.writeResults();
+        integers = Files.readAllLines(outDir.resolve("tests-integers.txt"));
+        assertEquals(10005, integers.size());
+        assertEquals("0", integers.get(integers.indexOf("0")));
+        assertTrue(new BigInteger(integers.get(integers.indexOf("0") - 1)).signum() < 0);
+        assertTrue(new BigInteger(integers.get(integers.indexOf("0") + 1)).signum() >= 0);
+    }
+
+    /**
+     * Тест для проверки освобождения ресурсов без записи результатов: после ошибки обработки
+     * временные файлы сортировки и удаления повторов удаляются, а выходные файлы не создаются.
+     *
+     * @param tempDir Временная директория для файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testCloseWithoutResults(@TempDir Path tempDir) throws IOException {
+        Path input = tempDir.resolve("in.txt");
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 5000; i++) lines.append(i * 31 % 7919).append('\n').append("s").append(i).append('\n');
+        Files.writeString(input, lines);
+        Path outDir = tempDir.resolve("out");
+
+        CommandLineOptions options = new CommandLineOptions();
+        options.setOutputPath(outDir.toString());
+        options.setSort(true);
+        options.setSortMemory(4096);
+        options.setUnique(true);
+        options.setUniqueMemory(1024);
+        FileProcessor processor = new FileProcessor(options);
+        processor.processFiles(List.of(input));
+        try (var files = Files.list(outDir)) {
+            assertTrue(files.findAny().isPresent());
+        }
+
+        processor.close();
+        processor.close();
+        try (var files = Files.list(outDir)) {
+            assertEquals(List.of(), files.toList());
+        }
+    }
 }
@@ -0,0 +1,89 @@
+package com.shift;
+
+import com.shift.data.DataType;
+import com.shift.processor.LineClassifier;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс для тестирования функциональности класса {@link LineClassifier}.
+ * Результаты классификатора сравниваются с регулярными выражениями, которые использовались ранее.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class LineClassifierTest {
+
+    /**
+     * Регулярное выражение для целых чисел.
+     */
+    private static final Pattern INTEGER = Pattern.compile("-?\\d+");
+    /**
+     * Регулярное выражение для вещественных чисел.
+     */
+    private static final Pattern FLOAT = Pattern.compile("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?");
+
+    /**
+     * Классифицирует строку регулярными выражениями.
+     *
+     * @param line Строка для классификации.
+     * @return Ожидаемая категория строки.
+     */
+    private static DataType classifyByRegex(String line) {
+        if (INTEGER.matcher(line).matches()) return DataType.INTEGER;
+        if (FLOAT.matcher(line).matches()) return DataType.FLOAT;
+        return DataType.STRING;
+    }
+
+    /**
+     * Тест на граничных случаях.
+     * Проверяет знаки, точки, экспоненты, пустую строку и не-ASCII цифры.
+     */
+    @Test
+    public void testEdgeCases() {
+        List<String> lines = List.of(
+                "", "-", "+", ".", "e", "E", "0", "-0", "+1", "--1", "007", "1.", ".1", "-.1", "1.5",
+                "1.5.5", "1e", "1e5", "1E+5", "1e-5", "1e+", "1e-", "1.5e10", "1.e5", "1e5.5", "1ee5",
+                "-1.0E-0", " 1", "1 ", "1_000", "١٢٣", "1٢", "12345678901234567890123", "abc", "1a",
+                "3.1415", "-0.001", "1.528535047E-25", "Long", "1e+-5", "-e5", "1E5E5");
+
+        for (String line : lines) {
+            assertEquals(classifyByRegex(line), LineClassifier.classify(line), "Строка: \"" + line + "\"");
+        }
+    }
+
+    /**
+     * Тест на случайных строках.
+     * Строки собираются из символов, значимых для разбора чисел, чтобы часто попадать в пограничные состояния.
+     */
+    @Test
+    public void testRandomLines() {
+        char[] alphabet = {'0', '1', '9', '-', '+', '.', 'e', 'E', 'x', ' ', '٣'};
+        Random random = new Random(42);
+
+        for (int n = 0; n < 200_000; n++) {
+            int length = random.nextInt(12);
+            StringBuilder line = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                // Чаще выбираем цифры, чтобы получалось больше корректных чисел
+                line.append(random.nextInt(3) == 0
+                        ? (char) ('0' + random.nextInt(10))
+                        : alphabet[random.nextInt(alphabet.length)]);
+            }
+            String value = line.toString();
+            assertEquals(classifyByRegex(value), LineClassifier.classify(value), "Строка: \"" + value + "\"");
+
+            // Побайтовая классификация должна совпадать с посимвольной, в том числе для строки внутри буфера
+            byte[] bytes = ("#" + value + "#").getBytes(StandardCharsets.UTF_8);
+            assertEquals(LineClassifier.classify(value), LineClassifier.classify(ByteBuffer.wrap(bytes), 1, bytes.length - 1),
+                    "Байты строки: \"" + value + "\"");
+        }
+    }
+}
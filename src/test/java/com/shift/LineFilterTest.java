@@ -0,0 +1,168 @@
+package com.shift;
+
+import com.shift.api.ClassifiedLine;
+import com.shift.api.LineFilter;
+import com.shift.category.Category;
+import com.shift.cli.CommandLineOptions;
+import com.shift.data.DataType;
+import com.shift.data.Statistics;
+import com.shift.processor.FileProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс для тестирования программного интерфейса {@link LineFilter}.
+ * Проверяет совпадение результатов с утилитой командной строки, управление скоростью через запрос подписчика
+ * и все виды входных данных.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class LineFilterTest {
+
+    private static final Path INPUT = Path.of("src/test/resources/in/in1.txt");
+
+    /**
+     * Подписчик, который запрашивает строки по одной и может отменить подписку после заданного количества.
+     */
+    private static final class Collector implements Flow.Subscriber<ClassifiedLine> {
+        private final List<ClassifiedLine> lines = new ArrayList<>();
+        private final int limit;
+        private Flow.Subscription subscription;
+        private boolean completed;
+        private Throwable error;
+
+        private Collector(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ClassifiedLine item) {
+            lines.add(item);
+            if (lines.size() == limit) subscription.cancel();
+            else subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        private List<String> lines(DataType type) {
+            return lines.stream().filter(line -> line.type() == type).map(ClassifiedLine::line).toList();
+        }
+    }
+
+    /**
+     * Тест для проверки совпадения строк и статистики с обработкой файла утилитой.
+     *
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    @Test
+    public void testMatchesFileProcessor() throws IOException {
+        CommandLineOptions options = new CommandLineOptions();
+        FileProcessor processor = new FileProcessor(options);
+        processor.processFile(INPUT);
+
+        Collector collector = new Collector(Integer.MAX_VALUE);
+        Statistics statistics = new LineFilter().process(INPUT, collector);
+
+        assertTrue(collector.completed);
+        assertNull(collector.error);
+        assertEquals(processor.getIntegers(), collector.lines(DataType.INTEGER));
+        assertEquals(processor.getFloats(), collector.lines(DataType.FLOAT));
+        assertEquals(processor.getStrings(), collector.lines(DataType.STRING));
+        assertEquals(processor.getStatistics().getSumInteger(), statistics.getSumInteger());
+        assertEquals(processor.getStatistics().getMaxFloat(), statistics.getMaxFloat());
+        assertEquals(processor.getStatistics().getStringCount(), statistics.getStringCount());
+    }
+
+    /**
+     * Тест для проверки отмены подписки: статистика учитывает только переданные строки,
+     * а издатель входных данных выдает буферы только по запросу и не опережает обработку.
+     *
+     * @throws IOException Если произошла ошибка при чтении данных.
+     */
+    @Test
+    public void testCancellationAndBackpressure() throws IOException {
+        byte[] chunk = "1\n2.5\nabc\n4\n5\n6\n7\n8\n9\n10\n".getBytes(StandardCharsets.UTF_8);
+        AtomicInteger published = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        // Издатель тысячи буферов по 10 строк, выдающий буферы прямо из request
+        Flow.Publisher<ByteBuffer> publisher = subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                for (long i = 0; i < n && published.get() < 1000; i++) {
+                    if (published.incrementAndGet() % 7 == 0) subscriber.onNext(ByteBuffer.allocate(0));
+                    subscriber.onNext(ByteBuffer.wrap(chunk));
+                }
+                if (published.get() == 1000) subscriber.onComplete();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled.incrementAndGet();
+            }
+        });
+
+        Collector collector = new Collector(25);
+        Statistics statistics = new LineFilter().process(publisher, collector);
+
+        assertEquals(25, collector.lines.size());
+        assertFalse(collector.completed);
+        assertEquals(19, statistics.getIntegerCount());
+        assertEquals(3, statistics.getFloatCount());
+        assertEquals(3, statistics.getStringCount());
+        assertEquals(1, cancelled.get());
+        assertTrue(published.get() < 100, "издатель не должен опережать обработку: " + published.get());
+    }
+
+    /**
+     * Тест для проверки сжатого потока байтов и пользовательских категорий.
+     *
+     * @throws IOException Если произошла ошибка при чтении данных.
+     */
+    @Test
+    public void testGzipStreamWithCategories() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(Files.readAllBytes(INPUT));
+            gzip.write("\nid-42\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        Collector collector = new Collector(Integer.MAX_VALUE);
+        LineFilter filter = new LineFilter(List.of(new Category("id", "id-\\d+")), false);
+        Statistics statistics = filter.process(new ByteArrayInputStream(bytes.toByteArray()), collector);
+
+        assertTrue(collector.completed);
+        assertEquals(List.of(new ClassifiedLine(null, "id", "id-42")),
+                collector.lines.stream().filter(ClassifiedLine::isCustom).toList());
+        assertEquals(1, statistics.getCategories().get("id").getCount());
+        assertEquals(List.of("45", "100500"), collector.lines(DataType.INTEGER));
+    }
+}
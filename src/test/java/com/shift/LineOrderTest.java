@@ -0,0 +1,66 @@
+package com.shift;
+
+import com.shift.output.LineOrder;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс для тестирования порядков сортировки {@link LineOrder}.
+ * Числовой порядок сравнивается с {@link BigDecimal#compareTo}, строковый - с побайтовым порядком UTF-8.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class LineOrderTest {
+
+    /**
+     * Тест числового порядка на граничных случаях и случайных числах.
+     * Знак результата должен совпадать с {@link BigDecimal#compareTo}, а численно равные записи - сравниваться как строки.
+     */
+    @Test
+    public void testNumericOrder() {
+        List<String> numbers = new ArrayList<>(List.of(
+                "0", "-0", "0.000", "007", "7", "7.0", "7e0", "70e-1", "-7", "-7.5", "1e-5", "0.00001", "-1e-5",
+                "12345678901234567890123", "-12345678901234567890123", "12345678901234567890124", "9223372036854775807",
+                "9223372036854775808", "1.5e10", "1.5E+10", "15000000000", "1.528535047E-25", "3.1415", "3.14150001"));
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            StringBuilder number = new StringBuilder();
+            if (random.nextBoolean()) number.append('-');
+            number.append(random.nextInt(1000));
+            if (random.nextBoolean()) number.append('.').append(String.format("%03d", random.nextInt(1000)));
+            if (random.nextInt(3) == 0) number.append('e').append(random.nextInt(21) - 10);
+            numbers.add(number.toString());
+        }
+
+        for (String a : numbers) {
+            for (String b : numbers) {
+                int expected = new BigDecimal(a).compareTo(new BigDecimal(b));
+                if (expected == 0) expected = a.compareTo(b);
+                assertEquals(Integer.signum(expected), Integer.signum(LineOrder.NUMERIC.compare(a, b)), a + " <=> " + b);
+            }
+        }
+    }
+
+    /**
+     * Тест строкового порядка: он должен совпадать с побайтовым сравнением UTF-8, в том числе для символов вне BMP.
+     */
+    @Test
+    public void testTextOrder() {
+        List<String> strings = List.of("", "a", "ab", "b", "B", "я", "", "�", "😀", "😀a", "a😀", "ÿ");
+        for (String a : strings) {
+            for (String b : strings) {
+                int expected = Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+                assertEquals(Integer.signum(expected), Integer.signum(LineOrder.TEXT.compare(a, b)), a + " <=> " + b);
+            }
+        }
+    }
+}
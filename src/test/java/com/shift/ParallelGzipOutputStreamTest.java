@@ -0,0 +1,132 @@
+package com.shift;
+
+import com.shift.output.ParallelGzipOutputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс для тестирования функциональности класса {@link ParallelGzipOutputStream}.
+ * Сжатые данные распаковываются стандартным {@link GZIPInputStream} и сравниваются с исходными.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class ParallelGzipOutputStreamTest {
+
+    /**
+     * Сжимает данные, записывая их порциями случайного размера.
+     *
+     * @param data      Исходные данные.
+     * @param blockSize Размер блока сжатия.
+     * @return Сжатые данные.
+     * @throws IOException Если произошла ошибка при сжатии.
+     */
+    private static byte[] compress(byte[] data, int blockSize) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Random random = new Random(1);
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, blockSize)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int length = Math.min(data.length - offset, 1 + random.nextInt(100_000));
+                out.write(data, offset, length);
+                offset += length;
+            }
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Распаковывает данные в формате gzip.
+     *
+     * @param compressed Сжатые данные.
+     * @return Распакованные данные.
+     * @throws IOException Если данные повреждены.
+     */
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Тест для проверки сжатия многих блоков.
+     * Данные хорошо сжимаются и повторяются через границы блоков, чтобы проверить передачу словаря.
+     *
+     * @throws IOException Если произошла ошибка при сжатии или распаковке.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(5);
+        while (text.length() < 3_000_000) {
+            text.append(random.nextInt(1000)).append(random.nextBoolean() ? "\n" : " повтор строки\n");
+        }
+        byte[] data = text.toString().getBytes();
+
+        byte[] compressed = compress(data, 64 * 1024);
+
+        assertArrayEquals(data, decompress(compressed));
+        assertTrue(compressed.length < data.length / 2);
+    }
+
+    /**
+     * Тест для проверки пустого потока и двух членов gzip, записанных друг за другом, как в режиме добавления.
+     *
+     * @throws IOException Если произошла ошибка при сжатии или распаковке.
+     */
+    @Test
+    public void testEmptyAndConcatenated() throws IOException {
+        byte[] empty = compress(new byte[0], 1);
+        assertEquals(0, decompress(empty).length);
+
+        byte[] first = compress("first\n".getBytes(), 1024);
+        byte[] second = compress("second\n".getBytes(), 1024);
+        byte[] both = new byte[first.length + second.length];
+        System.arraycopy(first, 0, both, 0, first.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+
+        assertEquals("first\nsecond\n", new String(decompress(both)));
+    }
+
+    /**
+     * Тест для проверки явного сброса: данные, записанные до {@link ParallelGzipOutputStream#flush()},
+     * распаковываются из уже записанной части потока до закрытия, а итоговый поток остается корректным.
+     *
+     * @throws IOException         Если произошла ошибка при сжатии или распаковке.
+     * @throws DataFormatException Если записанная часть потока повреждена.
+     */
+    @Test
+    public void testFlushPartialBlock() throws IOException, DataFormatException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        StringBuilder expected = new StringBuilder();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, 64 * 1024)) {
+            for (int i = 0; i < 5; i++) {
+                String chunk = "строка " + i + " повтор строки\n".repeat(i * 3000 + 1);
+                out.write(chunk.getBytes());
+                expected.append(chunk);
+                out.flush();
+
+                // Пропускаем заголовок gzip и распаковываем записанную часть потока deflate
+                byte[] written = compressed.toByteArray();
+                Inflater inflater = new Inflater(true);
+                inflater.setInput(Arrays.copyOfRange(written, 10, written.length));
+                byte[] buffer = new byte[expected.length() * 4];
+                int length = inflater.inflate(buffer);
+                inflater.end();
+                assertEquals(expected.toString(), new String(buffer, 0, length));
+            }
+        }
+        assertEquals(expected.toString(), new String(decompress(compressed.toByteArray())));
+    }
+}
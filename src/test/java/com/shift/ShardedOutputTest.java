@@ -0,0 +1,144 @@
+package com.shift;
+
+import com.shift.cli.CommandLineOptions;
+import com.shift.output.ShardedLineWriter;
+import com.shift.processor.FileProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс для тестирования деления выходных файлов на части ({@link ShardedLineWriter}).
+ * Проверяет границы частей, манифест, продолжение последней части в режиме добавления
+ * и удаление лишних частей при перезаписи.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class ShardedOutputTest {
+
+    private static Properties manifest(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    private static List<String> readShards(Path directory, String prefix, int count) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            lines.addAll(Files.readAllLines(directory.resolve(prefix + String.format("-%05d.txt", i))));
+        }
+        return lines;
+    }
+
+    /**
+     * Тест для проверки деления по количеству строк: части вместе дают тот же файл, что и без деления,
+     * манифест содержит диапазоны строк и статистику частей, а режим добавления продолжает последнюю часть.
+     *
+     * @param tempDir Временная директория для файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testLineShardsAndAppend(@TempDir Path tempDir) throws IOException {
+        List<String> numbers = new ArrayList<>();
+        for (int i = 1; i <= 25000; i++) numbers.add(Integer.toString(i * 7 - 30000));
+        Path input = tempDir.resolve("in.txt");
+        Files.write(input, numbers);
+
+        CommandLineOptions options = new CommandLineOptions();
+        options.setOutputPath(tempDir.resolve("out").toString());
+        options.setPrefix("p-");
+        options.setShardLines(10000);
+        options.setStreaming(true);
+        FileProcessor processor = new FileProcessor(options);
+        processor.processFile(input);
+        processor.writeResults();
+
+        Path out = tempDir.resolve("out");
+        assertEquals(numbers, readShards(out, "p-integers", 3));
+        assertFalse(Files.exists(out.resolve("p-integers-00004.txt")));
+        Properties properties = manifest(out.resolve("p-integers.shards.properties"));
+        assertEquals("3", properties.getProperty("shards"));
+        assertEquals("25000", properties.getProperty("lines"));
+        assertEquals("10001", properties.getProperty("shard.2.firstLine"));
+        assertEquals("20000", properties.getProperty("shard.2.lastLine"));
+        assertEquals("p-integers-00003.txt", properties.getProperty("shard.3.file"));
+        assertEquals("5000", properties.getProperty("shard.3.stats.integerCount"));
+        assertEquals(numbers.get(10000), properties.getProperty("shard.2.stats.minIntegerLong"));
+
+        // Добавление дописывает последнюю часть до 10000 строк и начинает следующие
+        options.setAppend(true);
+        options.setStreaming(false);
+        processor = new FileProcessor(options);
+        processor.processFile(input);
+        processor.writeResults();
+
+        List<String> expected = new ArrayList<>(numbers);
+        expected.addAll(numbers);
+        assertEquals(expected, readShards(out, "p-integers", 5));
+        assertEquals(10000, Files.readAllLines(out.resolve("p-integers-00003.txt")).size());
+        properties = manifest(out.resolve("p-integers.shards.properties"));
+        assertEquals("5", properties.getProperty("shards"));
+        assertEquals("10000", properties.getProperty("shard.3.stats.integerCount"));
+        assertEquals("50000", properties.getProperty("shard.5.lastLine"));
+
+        // Перезапись удаляет части, не вошедшие в новый результат
+        options.setAppend(false);
+        options.setShardLines(20000);
+        processor = new FileProcessor(options);
+        processor.processFile(input);
+        processor.writeResults();
+        assertEquals(numbers, readShards(out, "p-integers", 2));
+        assertFalse(Files.exists(out.resolve("p-integers-00003.txt")));
+        assertFalse(Files.exists(out.resolve("p-integers-00005.txt")));
+    }
+
+    /**
+     * Тест для проверки деления по объему: объем части в байтах UTF-8 не превышает предела,
+     * а строка длиннее предела занимает отдельную часть.
+     *
+     * @param tempDir Временная директория для файлов.
+     * @throws IOException Если произошла ошибка при чтении или записи файлов.
+     */
+    @Test
+    public void testSizeShards(@TempDir Path tempDir) throws IOException {
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 300; i++) strings.add("строка " + i);
+        strings.add("x".repeat(500));
+        strings.add("последняя");
+        Path input = tempDir.resolve("in.txt");
+        Files.write(input, strings);
+
+        CommandLineOptions options = new CommandLineOptions();
+        options.setOutputPath(tempDir.toString());
+        options.setShardSize(256);
+        FileProcessor processor = new FileProcessor(options);
+        processor.processFile(input);
+        processor.writeResults();
+
+        Properties properties = manifest(tempDir.resolve("strings.shards.properties"));
+        int shards = Integer.parseInt(properties.getProperty("shards"));
+        assertEquals(strings, readShards(tempDir, "strings", shards));
+        for (int i = 1; i <= shards; i++) {
+            Path shard = tempDir.resolve(properties.getProperty("shard." + i + ".file"));
+            long size = Files.size(shard);
+            assertEquals(Long.parseLong(properties.getProperty("shard." + i + ".bytes")), size);
+            List<String> lines = Files.readAllLines(shard, StandardCharsets.UTF_8);
+            assertTrue(size <= 256 || lines.size() == 1, "часть " + i + ": " + size);
+        }
+        assertEquals(List.of("x".repeat(500)), Files.readAllLines(tempDir.resolve(
+                properties.getProperty("shard." + (shards - 1) + ".file"))));
+    }
+}
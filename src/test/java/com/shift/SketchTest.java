@@ -0,0 +1,114 @@
+package com.shift;
+
+import com.shift.data.Statistics;
+import com.shift.data.sketch.CategorySketch;
+import com.shift.data.sketch.Hashing;
+import com.shift.data.sketch.HyperLogLog;
+import com.shift.data.sketch.KllSketch;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс для тестирования вероятностных сводок статистики: квантилей KLL и подсчета различных значений HyperLogLog.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class SketchTest {
+
+    /**
+     * Тест для проверки точности квантилей и объединения частичных сводок.
+     * Ошибка ранга должна оставаться в пределах нескольких процентов, а объединение - давать ту же точность.
+     */
+    @Test
+    public void testKllQuantiles() {
+        KllSketch whole = new KllSketch();
+        KllSketch left = new KllSketch();
+        KllSketch right = new KllSketch();
+        int n = 200_000;
+        Random random = new Random(11);
+        for (int i = 0; i < n; i++) {
+            // Перемешанная перестановка чисел 0..n-1: квантиль q равен q * n
+            double value = (i * 7919L) % n;
+            whole.update(value);
+            (random.nextBoolean() ? left : right).update(value);
+        }
+        KllSketch merged = left.merge(right);
+
+        assertEquals(n, whole.getCount());
+        assertEquals(n, merged.getCount());
+        for (double rank : new double[]{0.5, 0.9, 0.99}) {
+            assertEquals(rank * n, whole.quantile(rank), 0.03 * n);
+            assertEquals(rank * n, merged.quantile(rank), 0.03 * n);
+        }
+        assertTrue(whole.serializedSize() < 16 * 1024);
+    }
+
+    /**
+     * Тест для проверки оценки количества различных значений и объединения структур HyperLogLog.
+     */
+    @Test
+    public void testHyperLogLogDistinct() {
+        HyperLogLog small = new HyperLogLog();
+        for (int i = 0; i < 1000; i++) small.add(Hashing.hash64(i % 10));
+        assertEquals(10, small.estimate());
+
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            // Половина значений встречается в обеих частях
+            left.add(Hashing.hash64(i));
+            right.add(Hashing.hash64(i + 50_000));
+        }
+        assertEquals(150_000, left.merge(right).estimate(), 150_000 * 0.05);
+    }
+
+    /**
+     * Тест для проверки того, что хеш строки совпадает с хешем ее байтов в UTF-8.
+     */
+    @Test
+    public void testStringHashMatchesUtf8Bytes() {
+        for (String text : new String[]{"", "abc", "строка", "mixed ünïcödé 😀 text", "12345678"}) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            assertEquals(Hashing.hash64(bytes), Hashing.hash64(text));
+            assertEquals(Hashing.hash64(bytes), Hashing.hash64(ByteBuffer.wrap(bytes), 0, bytes.length));
+        }
+        assertNotEquals(Hashing.hash64("abc"), Hashing.hash64("abd"));
+    }
+
+    /**
+     * Тест для проверки сводок в статистике: объединение, сохранение в свойства и восстановление.
+     */
+    @Test
+    public void testStatisticsSketches() {
+        Statistics first = new Statistics(true);
+        Statistics second = new Statistics(true);
+        for (int i = 1; i <= 1000; i++) {
+            (i % 2 == 0 ? first : second).updateIntegerStatistics(i);
+            first.updateFloatStatistics(new BigDecimal(i % 5 + ".50"));
+            second.updateFloatStatistics(new BigDecimal(i % 5 + ".5"));
+            first.updateStringStatistics("x".repeat(i % 20));
+        }
+        first.merge(second);
+
+        Properties properties = new Properties();
+        first.store(properties, "stats.");
+        Statistics restored = Statistics.load(properties, "stats.");
+        assertTrue(restored.isSketchesEnabled());
+
+        CategorySketch integers = restored.getIntegerSketch();
+        assertEquals(1000, integers.distinctCount(), 50);
+        assertEquals(500, integers.quantile(0.5), 30);
+        // 1.5 и 1.50 - одно и то же число
+        assertEquals(5, restored.getFloatSketch().distinctCount());
+        assertEquals(20, restored.getStringSketch().distinctCount());
+        assertFalse(new Statistics().isSketchesEnabled());
+    }
+}
@@ -0,0 +1,84 @@
+package com.shift;
+
+import com.shift.data.Statistics;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс для тестирования функциональности класса {@link Statistics}.
+ * Проверяет, что накопление в {@code long} с переходом на {@link BigInteger} дает точные результаты.
+ *
+ * @author Мельников Никита
+ * @version 1.0
+ */
+public class StatisticsTest {
+
+    /**
+     * Тест для проверки переполнения суммы целых чисел.
+     * Значения близки к границам {@code long}, поэтому сумма многократно переполняется в обе стороны.
+     */
+    @Test
+    public void testIntegerSumOverflow() {
+        Statistics statistics = new Statistics();
+        Random random = new Random(7);
+        BigInteger expectedSum = BigInteger.ZERO;
+        BigInteger expectedMin = null;
+        BigInteger expectedMax = null;
+
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextBoolean() ? Long.MAX_VALUE - random.nextInt(1000) : Long.MIN_VALUE + random.nextInt(1000);
+            if (random.nextInt(3) == 0) value = random.nextLong();
+            statistics.updateIntegerStatistics(value);
+
+            BigInteger big = BigInteger.valueOf(value);
+            expectedSum = expectedSum.add(big);
+            expectedMin = expectedMin == null ? big : expectedMin.min(big);
+            expectedMax = expectedMax == null ? big : expectedMax.max(big);
+        }
+
+        assertEquals(10_000, statistics.getIntegerCount());
+        assertEquals(expectedSum, statistics.getSumInteger());
+        assertEquals(expectedMin, statistics.getMinInteger());
+        assertEquals(expectedMax, statistics.getMaxInteger());
+        assertEquals(new BigDecimal(expectedSum).divide(BigDecimal.valueOf(10_000), RoundingMode.HALF_UP),
+                statistics.getAvgInteger());
+    }
+
+    /**
+     * Тест для проверки чисел, не помещающихся в {@code long}, и объединения статистик.
+     */
+    @Test
+    public void testWideIntegersAndMerge() {
+        BigInteger huge = new BigInteger("123456789012345678901234567890");
+        BigInteger hugeNegative = huge.negate();
+
+        Statistics first = new Statistics();
+        first.updateIntegerStatistics(5);
+        first.updateIntegerStatistics(huge);
+
+        Statistics second = new Statistics();
+        second.updateIntegerStatistics(hugeNegative.subtract(BigInteger.ONE));
+        second.updateIntegerStatistics(new BigInteger("-7"));
+        second.updateIntegerStatistics(Long.MAX_VALUE);
+
+        first.merge(second);
+
+        assertEquals(5, first.getIntegerCount());
+        assertEquals(hugeNegative.subtract(BigInteger.ONE), first.getMinInteger());
+        assertEquals(huge, first.getMaxInteger());
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).subtract(BigInteger.valueOf(3)), first.getSumInteger());
+
+        // Пустая статистика сохраняет прежний вывод
+        Statistics empty = new Statistics();
+        assertNull(empty.getMinInteger());
+        assertEquals(BigDecimal.ZERO, empty.getAvgInteger());
+        assertEquals(BigDecimal.ZERO, empty.getAvgFloat());
+        assertEquals(BigInteger.ZERO, empty.getSumInteger());
+    }
+}